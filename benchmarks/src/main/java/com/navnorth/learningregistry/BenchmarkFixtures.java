@@ -0,0 +1,319 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+
+import java.util.Date;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPEncryptedData;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPKeyPair;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBESecretKeyEncryptorBuilder;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Fixture data for the benchmarks
+ * Keys and documents are generated locally from a fixed seed, so runs can be compared without a node or key server.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class BenchmarkFixtures
+{
+    static final String passPhrase = "benchmark";
+    static final String publicKeyLocation = "http://localhost/benchmark.asc";
+    static final String submitter = "LRJavaLib benchmarks";
+    static final String submitterType = "agent";
+    static final String submissionTOS = "http://www.learningregistry.org/tos/cc0/v0-5/";
+
+    private static final long seed = 20261019L;
+    private static final String[] words = {"learning", "registry", "resource", "lesson", "algebra", "biology",
+        "chemistry", "history", "reading", "grade", "standard", "assessment", "video", "activity", "teacher"};
+
+    private static String privateKey;
+    private static String publicKey;
+
+    private BenchmarkFixtures()
+    {
+    }
+
+    /**
+     * Get the armored private key of the benchmark key pair, generating the pair on first use
+     *
+     * @return armored private key
+     */
+    static synchronized String getPrivateKey() throws Exception
+    {
+        if (privateKey == null)
+        {
+            generateKeys();
+        }
+        return privateKey;
+    }
+
+    /**
+     * Get the armored public key of the benchmark key pair, generating the pair on first use
+     *
+     * @return armored public key
+     */
+    static synchronized String getPublicKey() throws Exception
+    {
+        if (publicKey == null)
+        {
+            generateKeys();
+        }
+        return publicKey;
+    }
+
+    /**
+     * Create a signer for the benchmark key pair
+     *
+     * @return signer
+     */
+    static LRSigner createSigner() throws Exception
+    {
+        return new LRSigner(publicKeyLocation, getPrivateKey(), passPhrase);
+    }
+
+    /**
+     * Create an envelope of the named type
+     *
+     * @param type one of "json", "simple", "activity" or "delete"
+     * @param index number of the document, used to vary its content
+     * @param payloadSize approximate size of the resource data in characters
+     * @return envelope
+     */
+    static LREnvelope createEnvelope(String type, int index, int payloadSize) throws LRException
+    {
+        Random random = new Random(seed + index);
+        String locator = "http://example.org/resource/" + index;
+        String[] tags = {words[random.nextInt(words.length)], words[random.nextInt(words.length)], "grade " + (index % 12 + 1)};
+
+        if ("json".equals(type))
+        {
+            return new LRJSONDocument(createResourceData(random, payloadSize), "metadata", locator, null, null, tags,
+                "inline", null, new String[] {"LOM"}, submitter, submitterType, submissionTOS, null, null);
+        }
+        else if ("simple".equals(type))
+        {
+            return new LRSimpleDocument(createText(random, payloadSize), "metadata", locator, null, null, tags,
+                "inline", null, new String[] {"DC 1.1"}, submitter, submitterType, submissionTOS, null, null);
+        }
+        else if ("activity".equals(type))
+        {
+            LRActivityBuilder builder = new LRActivityBuilder(submitter, submitterType, submissionTOS, null, null);
+            builder.setResourceLocator(locator).setTags(tags);
+            builder.setActor("educator", null, null, new String[] {"grade " + (index % 12 + 1)});
+            builder.setVerb("viewed", new Date(1790000000000L), new Date(1790086400000L), null, null);
+            builder.setMeasure("count", Integer.valueOf(random.nextInt(1000)), null, null, null);
+            builder.setObject("resource", locator, null);
+            builder.setContent(createText(random, Math.min(payloadSize, 200)));
+            return builder.build();
+        }
+        else if ("delete".equals(type))
+        {
+            return new LRDelete(submitter, submitterType, submissionTOS, null, null, new String[] {Long.toHexString(random.nextLong())});
+        }
+
+        throw new IllegalArgumentException("Unknown envelope type: " + type);
+    }
+
+    /**
+     * Create a list of envelopes of the named type
+     *
+     * @param type envelope type, as for createEnvelope
+     * @param count number of envelopes
+     * @param payloadSize approximate size of the resource data in characters
+     * @return envelopes
+     */
+    static List<LREnvelope> createEnvelopes(String type, int count, int payloadSize) throws LRException
+    {
+        List<LREnvelope> envelopes = new ArrayList<LREnvelope>(count);
+        for (int i = 0; i < count; i++)
+        {
+            envelopes.add(createEnvelope(type, i, payloadSize));
+        }
+        return envelopes;
+    }
+
+    /**
+     * Create the JSON text of an obtain page, as returned by a node
+     *
+     * @param count number of documents on the page
+     * @param payloadSize approximate size of the resource data of each document
+     * @return JSON text of the page
+     */
+    static String createObtainPage(int count, int payloadSize) throws Exception
+    {
+        JSONArray documents = new JSONArray();
+
+        for (int i = 0; i < count; i++)
+        {
+            JSONObject envelope = createStoredEnvelope(i, payloadSize);
+            JSONObject document = new JSONObject();
+            document.put("doc_ID", envelope.getString("resource_locator"));
+            document.put("document", new JSONArray().put(envelope));
+            documents.put(document);
+        }
+
+        JSONObject page = new JSONObject();
+        page.put("documents", documents);
+        page.put("resumption_token", "benchmark-" + count);
+        return page.toString();
+    }
+
+    /**
+     * Create the JSON text of a harvest page, as returned by a node
+     *
+     * @param count number of records on the page
+     * @param payloadSize approximate size of the resource data of each record
+     * @return JSON text of the page
+     */
+    static String createHarvestPage(int count, int payloadSize) throws Exception
+    {
+        JSONArray records = new JSONArray();
+
+        for (int i = 0; i < count; i++)
+        {
+            JSONObject envelope = createStoredEnvelope(i, payloadSize);
+            JSONObject header = new JSONObject();
+            header.put("identifier", envelope.getString("doc_ID"));
+            header.put("datestamp", "2026-10-19T00:00:00Z");
+            header.put("status", "active");
+            JSONObject record = new JSONObject();
+            record.put("header", header);
+            record.put("resource_data", envelope);
+            records.put(record);
+        }
+
+        JSONObject getRecord = new JSONObject();
+        getRecord.put("record", records);
+        JSONObject page = new JSONObject();
+        page.put("getrecord", getRecord);
+        page.put("resumption_token", "benchmark-" + count);
+        return page.toString();
+    }
+
+    /**
+     * Create an envelope as stored by a node, with the fields the node adds
+     */
+    private static JSONObject createStoredEnvelope(int index, int payloadSize) throws Exception
+    {
+        JSONObject envelope = new JSONObject(createEnvelope("json", index, payloadSize).getSendableData());
+        envelope.put("doc_ID", Long.toHexString(new Random(seed - index).nextLong()));
+        envelope.put("publishing_node", "benchmark");
+        envelope.put("node_timestamp", "2026-10-19T00:00:00.000000Z");
+        envelope.put("create_timestamp", "2026-10-19T00:00:00.000000Z");
+        envelope.put("update_timestamp", "2026-10-19T00:00:00.000000Z");
+        return envelope;
+    }
+
+    /**
+     * Create LOM-like resource data of roughly the requested size
+     */
+    private static JSONObject createResourceData(Random random, int payloadSize) throws LRException
+    {
+        try
+        {
+            JSONObject data = new JSONObject();
+            data.put("title", createText(random, 40));
+            data.put("language", "en");
+            data.put("keywords", new JSONArray().put(words[random.nextInt(words.length)]).put(words[random.nextInt(words.length)]));
+            data.put("published", true);
+            data.put("rating", JSONObject.NULL);
+            data.put("description", createText(random, Math.max(payloadSize - 120, 0)));
+            return data;
+        }
+        catch (Exception e)
+        {
+            throw new LRException(LRException.JSON_FAILED);
+        }
+    }
+
+    /**
+     * Create text of words of roughly the requested length
+     */
+    private static String createText(Random random, int length)
+    {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length)
+        {
+            if (text.length() > 0)
+            {
+                text.append(' ');
+            }
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Generate an RSA signing key pair protected by the benchmark pass phrase
+     */
+    private static void generateKeys() throws Exception
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "BC");
+        generator.initialize(2048, new SecureRandom());
+        KeyPair pair = generator.generateKeyPair();
+
+        PGPKeyPair keyPair = new JcaPGPKeyPair(PGPPublicKey.RSA_GENERAL, pair, new Date());
+        PGPDigestCalculator sha1 = new JcaPGPDigestCalculatorProviderBuilder().build().get(HashAlgorithmTags.SHA1);
+        PGPSecretKey secretKey = new PGPSecretKey(PGPSignature.DEFAULT_CERTIFICATION, keyPair, submitter, sha1, null, null,
+            new JcaPGPContentSignerBuilder(keyPair.getPublicKey().getAlgorithm(), HashAlgorithmTags.SHA256),
+            new JcePBESecretKeyEncryptorBuilder(PGPEncryptedData.CAST5, sha1).setProvider("BC").build(passPhrase.toCharArray()));
+
+        ByteArrayOutputStream privateOut = new ByteArrayOutputStream();
+        ArmoredOutputStream armored = new ArmoredOutputStream(privateOut);
+        secretKey.encode(armored);
+        armored.close();
+
+        ByteArrayOutputStream publicOut = new ByteArrayOutputStream();
+        armored = new ArmoredOutputStream(publicOut);
+        secretKey.getPublicKey().encode(armored);
+        armored.close();
+
+        privateKey = privateOut.toString("UTF-8");
+        publicKey = publicOut.toString("UTF-8");
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.Map;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of normalizing, bencoding and hashing the signable data of an envelope
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BencodeBenchmark
+{
+    @Param({"200", "20000"})
+    public int payloadSize;
+
+    private Map<String, Object> signable;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        signable = BenchmarkFixtures.createEnvelope("json", 0, payloadSize).getSignableData();
+    }
+
+    @Benchmark
+    public String bencode() throws LRException
+    {
+        return LRSigner.bencode(signable);
+    }
+}
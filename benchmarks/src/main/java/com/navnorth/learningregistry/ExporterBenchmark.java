@@ -0,0 +1,98 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of serializing a batch of signed envelopes into a publish request body
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExporterBenchmark
+{
+    @Param({"10", "100"})
+    public int batchSize;
+
+    @Param({"2000"})
+    public int payloadSize;
+
+    private List<LREnvelope> envelopes;
+    private List<Object> sendable;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        LRSigner signer = BenchmarkFixtures.createSigner();
+        envelopes = BenchmarkFixtures.createEnvelopes("json", batchSize, payloadSize);
+        sendable = new ArrayList<Object>(batchSize);
+        for (LREnvelope envelope : envelopes)
+        {
+            signer.sign(envelope);
+            sendable.add(envelope.getSendableData());
+        }
+    }
+
+    /**
+     * Serialization of sendable data that has already been built
+     */
+    @Benchmark
+    public String serializeBatch() throws LRException
+    {
+        return LRExporter.getBatchJSON(sendable);
+    }
+
+    /**
+     * Building the sendable data of each envelope and serializing the batch, as a publish does
+     */
+    @Benchmark
+    public String buildAndSerializeBatch() throws LRException
+    {
+        List<Object> batch = new ArrayList<Object>(envelopes.size());
+        for (LREnvelope envelope : envelopes)
+        {
+            batch.add(envelope.getSendableData());
+        }
+        return LRExporter.getBatchJSON(batch);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Throughput of parsing obtain and harvest result pages as returned by a node
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultBenchmark
+{
+    @Param({"obtain", "harvest"})
+    public String page;
+
+    @Param({"100"})
+    public int pageSize;
+
+    @Param({"2000"})
+    public int payloadSize;
+
+    private String text;
+    private LRResult result;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        if ("obtain".equals(page))
+        {
+            text = BenchmarkFixtures.createObtainPage(pageSize, payloadSize);
+        }
+        else
+        {
+            text = BenchmarkFixtures.createHarvestPage(pageSize, payloadSize);
+        }
+        result = new LRResult(new JSONObject(text));
+    }
+
+    /**
+     * Parsing the JSON text of a page, as the importer does for each request
+     */
+    @Benchmark
+    public LRResult parse() throws JSONException
+    {
+        return new LRResult(new JSONObject(text));
+    }
+
+    /**
+     * Listing the doc IDs of a parsed page
+     */
+    @Benchmark
+    public List<String> getDocIDs()
+    {
+        return result.getDocIDs();
+    }
+
+    /**
+     * Listing the resource data of a parsed page
+     */
+    @Benchmark
+    public List<JSONObject> getResourceData()
+    {
+        return result.getResourceData();
+    }
+}
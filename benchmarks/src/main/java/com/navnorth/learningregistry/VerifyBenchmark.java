@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.Map;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of verifying the clear signed message of a signed envelope against its public key
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VerifyBenchmark
+{
+    private static final String signatureHeader = "-----BEGIN PGP SIGNATURE-----";
+
+    private String message;
+    private String signature;
+    private String publicKey;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        LREnvelope envelope = BenchmarkFixtures.createEnvelope("json", 0, 2000);
+        BenchmarkFixtures.createSigner().sign(envelope);
+
+        Map<String, Object> digitalSignature = (Map<String, Object>) envelope.getSendableData().get("digital_signature");
+        message = (String) digitalSignature.get("signature");
+        signature = message.substring(message.indexOf(signatureHeader));
+        publicKey = BenchmarkFixtures.getPublicKey();
+
+        if (!LRVerify.VerifyStrings(signature, message, publicKey))
+        {
+            throw new IllegalStateException("Fixture signature does not verify");
+        }
+    }
+
+    @Benchmark
+    public boolean verify() throws LRException
+    {
+        return LRVerify.VerifyStrings(signature, message, publicKey);
+    }
+}
@@ -0,0 +1,529 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry.mock;
+
+import com.navnorth.learningregistry.LRClient;
+import com.navnorth.learningregistry.LRClientPolicy;
+import com.navnorth.learningregistry.LRException;
+import com.navnorth.learningregistry.LRExporter;
+import com.navnorth.learningregistry.LRImporter;
+import com.navnorth.learningregistry.LREnvelope;
+import com.navnorth.learningregistry.LRResult;
+import com.navnorth.learningregistry.LRSimpleDocument;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Drives an operation against a node at a target request rate and reports latency percentiles
+ * Requests are started on a fixed schedule whether or not earlier requests have finished, and latency is measured
+ * from the time each request was due, so a slow node shows up as higher latency rather than a lower request rate.
+ * Run main() against the embedded mock node, or against a real node with --node.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRLoadGenerator
+{
+    /**
+     * A single request made by the load generator
+     */
+    public interface Operation
+    {
+        /**
+         * Make one request; called from several threads at once
+         *
+         * @param sequence number of the request, starting at 0
+         * @throws Exception if the request failed
+         */
+        void execute(long sequence) throws Exception;
+    }
+
+    private final Operation operation;
+
+    private double rate = 100;
+    private long durationMillis = 10 * 1000;
+    private int concurrency = 16;
+
+    /**
+     * Creates a load generator for an operation
+     *
+     * @param operation request to make
+     */
+    public LRLoadGenerator(Operation operation)
+    {
+        this.operation = operation;
+    }
+
+    /**
+     * Sets the number of requests started each second (default 100)
+     *
+     * @param rate requests per second
+     */
+    public void setRate(double rate)
+    {
+        this.rate = rate;
+    }
+
+    /**
+     * Sets how long requests are started for (default 10 seconds)
+     *
+     * @param duration length of the run
+     * @param unit unit of the duration
+     */
+    public void setDuration(long duration, TimeUnit unit)
+    {
+        this.durationMillis = unit.toMillis(duration);
+    }
+
+    /**
+     * Sets the number of requests that may be in progress at once (default 16)
+     *
+     * @param concurrency number of request threads
+     */
+    public void setConcurrency(int concurrency)
+    {
+        this.concurrency = Math.max(concurrency, 1);
+    }
+
+    /**
+     * Run the load and wait for every started request to finish
+     *
+     * @return report of the run
+     */
+    public Report run() throws InterruptedException
+    {
+        final Report report = new Report(rate);
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+
+        long intervalNanos = (long) (1000000000L / rate);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        try
+        {
+            for (long sequence = 0; ; sequence++)
+            {
+                final long due = start + sequence * intervalNanos;
+                if (due >= end)
+                {
+                    break;
+                }
+
+                long wait = due - System.nanoTime();
+                if (wait > 0)
+                {
+                    LockSupport.parkNanos(wait);
+                }
+
+                final long number = sequence;
+                report.started.incrementAndGet();
+                pool.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            operation.execute(number);
+                            report.latency.record((System.nanoTime() - due) / 1000);
+                        }
+                        catch (Exception e)
+                        {
+                            report.errorLatency.record((System.nanoTime() - due) / 1000);
+                            report.recordError(e);
+                        }
+                    }
+                });
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+            pool.awaitTermination(durationMillis + 60 * 1000, TimeUnit.MILLISECONDS);
+            report.elapsedNanos = System.nanoTime() - start;
+        }
+
+        return report;
+    }
+
+    /**
+     * Outcome of a load generator run
+     */
+    public static class Report
+    {
+        private final double targetRate;
+        private final AtomicLong started = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram errorLatency = new LatencyHistogram();
+        private final Map<String, Long> errors = new HashMap<String, Long>();
+        private volatile long elapsedNanos;
+
+        Report(double targetRate)
+        {
+            this.targetRate = targetRate;
+        }
+
+        synchronized void recordError(Exception e)
+        {
+            String name = (e instanceof LRException) ? e.getMessage() : e.getClass().getSimpleName();
+            Long count = errors.get(name);
+            errors.put(name, (count == null) ? 1 : count + 1);
+        }
+
+        /**
+         * @return latencies of successful requests, in microseconds
+         */
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+
+        /**
+         * @return latencies of failed requests, in microseconds
+         */
+        public LatencyHistogram getErrorLatency()
+        {
+            return errorLatency;
+        }
+
+        /**
+         * @return number of requests started
+         */
+        public long getStarted()
+        {
+            return started.get();
+        }
+
+        /**
+         * @return number of requests that failed, by error
+         */
+        public synchronized Map<String, Long> getErrors()
+        {
+            return new HashMap<String, Long>(errors);
+        }
+
+        /**
+         * @return successful requests per second over the run
+         */
+        public double getAchievedRate()
+        {
+            return latency.getCount() * 1e9 / Math.max(elapsedNanos, 1);
+        }
+
+        /**
+         * Get the report as JSON, for comparing runs
+         *
+         * @return JSON of the report
+         */
+        public JSONObject toJSON() throws JSONException
+        {
+            JSONObject json = new JSONObject();
+            json.put("target_rate", targetRate);
+            json.put("achieved_rate", getAchievedRate());
+            json.put("started", getStarted());
+            json.put("succeeded", latency.getCount());
+            json.put("failed", errorLatency.getCount());
+            json.put("errors", new JSONObject(getErrors()));
+            json.put("elapsed_ms", elapsedNanos / 1000000);
+
+            JSONObject percentiles = new JSONObject();
+            percentiles.put("mean", latency.getMean());
+            percentiles.put("p50", latency.getPercentile(50));
+            percentiles.put("p90", latency.getPercentile(90));
+            percentiles.put("p99", latency.getPercentile(99));
+            percentiles.put("p99.9", latency.getPercentile(99.9));
+            percentiles.put("max", latency.getMax());
+            json.put("latency_us", percentiles);
+            return json;
+        }
+
+        public String toString()
+        {
+            return String.format("started %d, succeeded %d, failed %d %s; %.1f/s (target %.1f/s)%n"
+                + "latency ms: mean %.2f  p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f",
+                getStarted(), latency.getCount(), errorLatency.getCount(), getErrors(), getAchievedRate(), targetRate,
+                latency.getMean() / 1000, latency.getPercentile(50) / 1000.0, latency.getPercentile(90) / 1000.0,
+                latency.getPercentile(99) / 1000.0, latency.getPercentile(99.9) / 1000.0, latency.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * Create an operation publishing batches of generated documents
+     *
+     * @param exporter configured exporter
+     * @param batchSize documents in each request
+     * @param payloadSize size of the resource data of each document
+     * @return publish operation
+     */
+    public static Operation publish(final LRExporter exporter, final int batchSize, final int payloadSize)
+    {
+        final StringBuilder data = new StringBuilder();
+        while (data.length() < payloadSize)
+        {
+            data.append("learning registry load test ");
+        }
+
+        return new Operation()
+        {
+            public void execute(long sequence) throws Exception
+            {
+                List<LREnvelope> batch = new ArrayList<LREnvelope>(batchSize);
+                for (int i = 0; i < batchSize; i++)
+                {
+                    batch.add(new LRSimpleDocument(data.toString(), "metadata", "http://example.org/load/" + sequence + "/" + i,
+                        null, null, new String[] {"load test"}, "inline", null, new String[] {"DC 1.1"},
+                        "LRJavaLib load generator", "agent", "http://www.learningregistry.org/tos/cc0/v0-5/", null, null));
+                }
+                exporter.sendDocuments(batch);
+            }
+        };
+    }
+
+    /**
+     * Create an operation obtaining every page of documents for resource locators in turn
+     *
+     * @param importer importer for the node
+     * @param resourceLocators locators to obtain, cycled through
+     * @return obtain operation
+     */
+    public static Operation obtain(final LRImporter importer, final List<String> resourceLocators)
+    {
+        return new Operation()
+        {
+            public void execute(long sequence) throws Exception
+            {
+                String locator = resourceLocators.get((int) (sequence % resourceLocators.size()));
+                LRResult result = importer.getObtainJSONData(locator, true, false, false);
+                while (result.getResumptionToken() != null)
+                {
+                    result = importer.getObtainJSONData(result.getResumptionToken());
+                }
+            }
+        };
+    }
+
+    /**
+     * Create an operation harvesting records by resource locator in turn
+     *
+     * @param importer importer for the node
+     * @param resourceLocators locators to harvest, cycled through
+     * @return harvest operation
+     */
+    public static Operation harvest(final LRImporter importer, final List<String> resourceLocators)
+    {
+        return new Operation()
+        {
+            public void execute(long sequence) throws Exception
+            {
+                String locator = resourceLocators.get((int) (sequence % resourceLocators.size()));
+                importer.getHarvestJSONData(locator, true, false);
+            }
+        };
+    }
+
+    /**
+     * Create an operation extracting documents by discriminator in turn
+     *
+     * @param importer importer for the node
+     * @param discriminators keys to extract, cycled through
+     * @return extract operation
+     */
+    public static Operation extract(final LRImporter importer, final List<String> discriminators)
+    {
+        return new Operation()
+        {
+            public void execute(long sequence) throws Exception
+            {
+                String discriminator = discriminators.get((int) (sequence % discriminators.size()));
+                importer.getExtractDiscriminatorJSONData("resource-by-discriminator", "standards-alignment-related",
+                    discriminator, false, null, null, false);
+            }
+        };
+    }
+
+    /**
+     * Run a load test from the command line
+     * Options: --mode publish|obtain|harvest|extract, --rate, --duration (seconds), --concurrency, --batch, --payload,
+     * --node host:port (otherwise an embedded mock node is used), --documents, --latency min,max (ms), --errors rate,
+     * --throttle requests/s, --gzip true|false (compressed responses and publish bodies), --json file
+     *
+     * @param args command line options
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+
+        String mode = option(options, "mode", "publish");
+        int documents = Integer.parseInt(option(options, "documents", "1000"));
+        int payload = Integer.parseInt(option(options, "payload", "2000"));
+        boolean gzip = Boolean.parseBoolean(option(options, "gzip", "false"));
+
+        LRClientPolicy policy = LRClient.getPolicy();
+        policy.setAcceptCompressedResponses(gzip);
+        policy.setCompressRequests(gzip);
+        LRClient.setPolicy(policy);
+
+        LRMockNode mock = null;
+        String nodeHost = options.get("node");
+
+        if (nodeHost == null)
+        {
+            mock = new LRMockNode(0);
+            String[] latency = option(options, "latency", "0,0").split(",");
+            mock.setLatency(Long.parseLong(latency[0]), Long.parseLong(latency[latency.length - 1]));
+            mock.setErrorRate(Double.parseDouble(option(options, "errors", "0")), 500);
+            mock.setMaxRequestsPerSecond(Integer.parseInt(option(options, "throttle", "0")));
+            mock.setCompression(gzip);
+            seed(mock, documents, payload);
+            mock.start();
+            nodeHost = mock.getNodeHost();
+        }
+
+        List<String> locators = new ArrayList<String>();
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < documents; i++)
+        {
+            locators.add(locator(i));
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            keys.add(key(i));
+        }
+
+        Operation operation;
+        if ("publish".equals(mode))
+        {
+            LRExporter exporter = new LRExporter(Integer.parseInt(option(options, "batch", "10")), nodeHost);
+            exporter.configure();
+            operation = publish(exporter, exporter.getBatchSize(), payload);
+        }
+        else if ("obtain".equals(mode))
+        {
+            operation = obtain(new LRImporter(nodeHost, "http"), locators);
+        }
+        else if ("harvest".equals(mode))
+        {
+            operation = harvest(new LRImporter(nodeHost, "http"), locators);
+        }
+        else if ("extract".equals(mode))
+        {
+            operation = extract(new LRImporter(nodeHost, "http"), keys);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+
+        LRLoadGenerator generator = new LRLoadGenerator(operation);
+        generator.setRate(Double.parseDouble(option(options, "rate", "100")));
+        generator.setDuration(Long.parseLong(option(options, "duration", "10")), TimeUnit.SECONDS);
+        generator.setConcurrency(Integer.parseInt(option(options, "concurrency", "16")));
+
+        Report report = generator.run();
+        System.out.println(mode + " against " + nodeHost + ": " + report);
+
+        if (options.containsKey("json"))
+        {
+            write(options.get("json"), report.toJSON().toString(2));
+        }
+
+        if (mock != null)
+        {
+            mock.stop();
+        }
+    }
+
+    /**
+     * Fill a mock node with generated envelopes
+     */
+    private static void seed(LRMockNode mock, int documents, int payloadSize) throws JSONException
+    {
+        StringBuilder data = new StringBuilder();
+        while (data.length() < payloadSize)
+        {
+            data.append("learning registry load test ");
+        }
+
+        for (int i = 0; i < documents; i++)
+        {
+            JSONObject envelope = new JSONObject();
+            envelope.put("doc_type", "resource_data");
+            envelope.put("doc_version", "0.51.0");
+            envelope.put("active", true);
+            envelope.put("resource_data_type", "metadata");
+            envelope.put("payload_placement", "inline");
+            envelope.put("resource_locator", locator(i));
+            envelope.put("keys", new JSONArray().put(key(i)).put("load test"));
+            envelope.put("resource_data", data.toString());
+            mock.addDocument(envelope);
+        }
+    }
+
+    private static String locator(int i)
+    {
+        return "http://example.org/resource/" + i;
+    }
+
+    private static String key(int i)
+    {
+        return "key" + (i % 10);
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue)
+    {
+        String value = options.get(name);
+        return (value != null) ? value : defaultValue;
+    }
+
+    private static void write(String file, String text) throws IOException
+    {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            out.write(text);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
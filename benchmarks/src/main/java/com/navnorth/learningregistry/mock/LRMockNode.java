@@ -0,0 +1,946 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry.mock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+
+import java.text.SimpleDateFormat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * In-process stand-in for a Learning Registry node, for load and latency testing without a network
+ * Serves /publish, /obtain, /harvest/getrecord, /harvest/listrecords and /extract from an in-memory dataset, with
+ * paging by resumption token. Published documents keep a doc ID they are given, so one node can mirror another.
+ * Latency, errors and throttling can be injected to see how a client behaves against a slow or failing node.
+ * With compression on, responses are gzipped for clients that accept it and gzipped request bodies are accepted;
+ * with it off, gzipped request bodies are refused with 415 like a node that does not support them.
+ * With validators on, results carry an ETag and a request whose If-None-Match matches is answered 304.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRMockNode
+{
+    private static final String publishPath = "/publish";
+    private static final String obtainPath = "/obtain";
+    private static final String harvestPath = "/harvest/getrecord";
+    private static final String listRecordsPath = "/harvest/listrecords";
+    private static final String extractPath = "/extract";
+
+    private static final String documentsField = "documents";
+    private static final String documentField = "document";
+    private static final String listRecordsField = "listrecords";
+    private static final String docIDField = "doc_ID";
+    private static final String resourceLocatorField = "resource_locator";
+    private static final String resourceDataField = "resource_data";
+    private static final String keysField = "keys";
+    private static final String nodeTimestampField = "node_timestamp";
+    private static final String resumptionTokenField = "resumption_token";
+
+    private static final String startsWithSuffix = "-starts-with";
+    private static final int timestampLength = 19;
+
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Dataset, in publish order
+    private final List<JSONObject> documents = new ArrayList<JSONObject>();
+    private final Map<String, JSONObject> byDocID = new HashMap<String, JSONObject>();
+    private final Map<String, List<JSONObject>> byResource = new HashMap<String, List<JSONObject>>();
+
+    // Open result sets of paged requests
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<String, Cursor>();
+
+    private final Random random = new Random();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    private int threads = 64;
+    private int pageSize = 100;
+    private volatile long minLatency = 0;
+    private volatile long maxLatency = 0;
+    private volatile double errorRate = 0;
+    private volatile int errorStatus = 500;
+    private volatile int maxRequestsPerSecond = 0;
+    private volatile boolean compression = false;
+    private volatile boolean validators = false;
+
+    private long throttleSecond = 0;
+    private int throttleCount = 0;
+
+    /**
+     * Creates a node listening on the specified local port
+     *
+     * @param port port to listen on, or 0 for any free port
+     */
+    public LRMockNode(int port)
+    {
+        this.port = port;
+    }
+
+    /**
+     * Start serving requests
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public synchronized void start() throws IOException
+    {
+        // Without TCP_NODELAY, delayed acknowledgements add tens of milliseconds to each keep-alive request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+        {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext(publishPath, new Handler()
+        {
+            JSONObject respond(HttpExchange exchange, Map<String, String> params) throws IOException, JSONException
+            {
+                return publish(readBody(exchange));
+            }
+        });
+        server.createContext(obtainPath, new Handler()
+        {
+            JSONObject respond(HttpExchange exchange, Map<String, String> params) throws JSONException
+            {
+                return obtain(params);
+            }
+        });
+        server.createContext(harvestPath, new Handler()
+        {
+            JSONObject respond(HttpExchange exchange, Map<String, String> params) throws JSONException
+            {
+                return harvest(params);
+            }
+        });
+        server.createContext(listRecordsPath, new Handler()
+        {
+            JSONObject respond(HttpExchange exchange, Map<String, String> params) throws JSONException
+            {
+                return listRecords(params);
+            }
+        });
+        server.createContext(extractPath, new Handler()
+        {
+            JSONObject respond(HttpExchange exchange, Map<String, String> params) throws JSONException
+            {
+                return extract(params);
+            }
+        });
+
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stop serving requests
+     */
+    public synchronized void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Get the host and port of the node, in the form expected by LRExporter and LRImporter
+     *
+     * @return host and port of the node
+     */
+    public synchronized String getNodeHost()
+    {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Add an envelope to the dataset, as if it had been published
+     *
+     * @param envelope envelope to add; a doc ID is assigned if it has none
+     * @return doc ID of the envelope
+     */
+    public String addDocument(JSONObject envelope) throws JSONException
+    {
+        if (!envelope.has(docIDField))
+        {
+            envelope.put(docIDField, UUID.randomUUID().toString().replace("-", ""));
+        }
+        if (!envelope.has(nodeTimestampField))
+        {
+            envelope.put(nodeTimestampField, timestamp(new Date()));
+        }
+
+        String docID = envelope.getString(docIDField);
+        String locator = envelope.optString(resourceLocatorField, null);
+
+        synchronized (documents)
+        {
+            documents.add(envelope);
+            byDocID.put(docID, envelope);
+            if (locator != null)
+            {
+                List<JSONObject> resource = byResource.get(locator);
+                if (resource == null)
+                {
+                    resource = new ArrayList<JSONObject>();
+                    byResource.put(locator, resource);
+                }
+                resource.add(envelope);
+            }
+        }
+
+        return docID;
+    }
+
+    /**
+     * Add every envelope of an NDJSON file to the dataset
+     *
+     * @param file file with one envelope per line
+     * @return number of envelopes added
+     * @throws IOException if the file cannot be read
+     */
+    public int load(File file) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        int count = 0;
+
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().length() > 0)
+                {
+                    addDocument(new JSONObject(line));
+                    count++;
+                }
+            }
+        }
+        catch (JSONException e)
+        {
+            throw new IOException("Invalid envelope on line " + (count + 1));
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * @return number of envelopes in the dataset
+     */
+    public int getDocumentCount()
+    {
+        synchronized (documents)
+        {
+            return documents.size();
+        }
+    }
+
+    /**
+     * @return number of requests received
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * @return number of requests answered with an injected error
+     */
+    public long getInjectedErrorCount()
+    {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @return number of requests rejected by throttling
+     */
+    public long getThrottledCount()
+    {
+        return throttled.get();
+    }
+
+    /**
+     * @return number of requests answered with 304 Not Modified
+     */
+    public long getNotModifiedCount()
+    {
+        return notModified.get();
+    }
+
+    /**
+     * Sets the number of threads serving requests (default 64); takes effect on start
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the number of results on each page of obtain and extract results (default 100)
+     *
+     * @param pageSize results per page
+     */
+    public void setPageSize(int pageSize)
+    {
+        this.pageSize = Math.max(pageSize, 1);
+    }
+
+    /**
+     * Sets the latency added to every request, chosen uniformly between the bounds
+     *
+     * @param minMillis smallest latency in milliseconds
+     * @param maxMillis largest latency in milliseconds
+     */
+    public void setLatency(long minMillis, long maxMillis)
+    {
+        this.minLatency = Math.max(minMillis, 0);
+        this.maxLatency = Math.max(maxMillis, this.minLatency);
+    }
+
+    /**
+     * Sets the fraction of requests answered with an error instead of a result
+     *
+     * @param errorRate fraction of requests, from 0 to 1
+     * @param status HTTP status of the errors
+     */
+    public void setErrorRate(double errorRate, int status)
+    {
+        this.errorRate = errorRate;
+        this.errorStatus = status;
+    }
+
+    /**
+     * Sets the number of requests accepted each second; further requests are answered with 503
+     *
+     * @param maxRequestsPerSecond requests per second, or 0 for no limit
+     */
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond)
+    {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    /**
+     * Sets whether responses are gzipped and gzipped request bodies accepted (default false)
+     *
+     * @param compression true to support compression
+     */
+    public void setCompression(boolean compression)
+    {
+        this.compression = compression;
+    }
+
+    /**
+     * Sets whether results carry an ETag and conditional requests are answered 304 when it matches (default false)
+     *
+     * @param validators true to support conditional requests
+     */
+    public void setValidators(boolean validators)
+    {
+        this.validators = validators;
+    }
+
+    /**
+     * Store the documents of a publish request
+     */
+    private JSONObject publish(String body) throws JSONException
+    {
+        JSONObject response = new JSONObject();
+        JSONArray batch;
+
+        try
+        {
+            batch = new JSONObject(body).getJSONArray(documentsField);
+        }
+        catch (JSONException e)
+        {
+            response.put("OK", false);
+            response.put("error", "Missing field 'documents' in post body");
+            return response;
+        }
+
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < batch.length(); i++)
+        {
+            JSONObject result = new JSONObject();
+            JSONObject envelope = batch.optJSONObject(i);
+
+            if (envelope == null || !envelope.has(resourceDataField))
+            {
+                result.put("OK", false);
+                result.put("error", "Document is missing resource_data");
+            }
+            else if (envelope.has(docIDField) && hasDocument(envelope.getString(docIDField)))
+            {
+                result.put(docIDField, envelope.getString(docIDField));
+                result.put("OK", false);
+                result.put("error", "conflict");
+            }
+            else
+            {
+                result.put(docIDField, addDocument(envelope));
+                result.put("OK", true);
+            }
+            results.put(result);
+        }
+
+        response.put("OK", true);
+        response.put("document_results", results);
+        return response;
+    }
+
+    private boolean hasDocument(String docID)
+    {
+        synchronized (documents)
+        {
+            return byDocID.containsKey(docID);
+        }
+    }
+
+    /**
+     * Answer an obtain request, by doc ID, by resource locator, or for every document
+     */
+    private JSONObject obtain(Map<String, String> params) throws JSONException
+    {
+        String token = params.get(resumptionTokenField);
+        if (token != null)
+        {
+            return page(token);
+        }
+
+        String requestID = params.get("request_ID");
+        boolean idIsDocID = "true".equals(params.get("by_doc_ID"));
+        boolean idsOnly = "true".equals(params.get("ids_only"));
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        synchronized (documents)
+        {
+            if (requestID == null)
+            {
+                for (JSONObject envelope : documents)
+                {
+                    results.add(obtainDocument(envelope.getString(docIDField), envelope, idsOnly));
+                }
+            }
+            else if (idIsDocID)
+            {
+                JSONObject envelope = byDocID.get(requestID);
+                if (envelope != null)
+                {
+                    results.add(obtainDocument(requestID, envelope, idsOnly));
+                }
+            }
+            else
+            {
+                List<JSONObject> resource = byResource.get(requestID);
+                JSONObject document = new JSONObject();
+                JSONArray envelopes = new JSONArray();
+                if (resource != null)
+                {
+                    for (JSONObject envelope : resource)
+                    {
+                        envelopes.put(idsOnly ? new JSONObject().put(docIDField, envelope.getString(docIDField)) : envelope);
+                    }
+                }
+                document.put(docIDField, requestID);
+                document.put(documentField, envelopes);
+                results.add(document);
+            }
+        }
+
+        return page(openCursor(results));
+    }
+
+    private JSONObject obtainDocument(String docID, JSONObject envelope, boolean idsOnly) throws JSONException
+    {
+        JSONObject document = new JSONObject();
+        document.put(docIDField, docID);
+        if (!idsOnly)
+        {
+            document.put(documentField, new JSONArray().put(envelope));
+        }
+        return document;
+    }
+
+    /**
+     * Answer a harvest getrecord request for a single doc ID or resource locator
+     */
+    private JSONObject harvest(Map<String, String> params) throws JSONException
+    {
+        String requestID = params.get("request_ID");
+        boolean byResourceID = "true".equals(params.get("by_resource_ID"));
+        JSONArray records = new JSONArray();
+
+        synchronized (documents)
+        {
+            List<JSONObject> matches = new ArrayList<JSONObject>();
+            if (requestID != null && byResourceID)
+            {
+                List<JSONObject> resource = byResource.get(requestID);
+                if (resource != null)
+                {
+                    matches.addAll(resource);
+                }
+            }
+            else if (requestID != null && byDocID.containsKey(requestID))
+            {
+                matches.add(byDocID.get(requestID));
+            }
+
+            for (JSONObject envelope : matches)
+            {
+                records.put(harvestRecord(envelope));
+            }
+        }
+
+        JSONObject response = new JSONObject();
+        if (records.length() == 0)
+        {
+            response.put("OK", false);
+            response.put("error", "idDoesNotExist");
+            return response;
+        }
+
+        response.put("OK", true);
+        response.put("getrecord", new JSONObject().put("record", records));
+        return response;
+    }
+
+    /**
+     * Answer a harvest listrecords request for the documents that reached the node in a date range, in that order
+     */
+    private JSONObject listRecords(Map<String, String> params) throws JSONException
+    {
+        String token = params.get(resumptionTokenField);
+        if (token != null)
+        {
+            return page(token);
+        }
+
+        String from = truncate(params.get("from"));
+        String until = truncate(params.get("until"));
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        synchronized (documents)
+        {
+            for (JSONObject envelope : documents)
+            {
+                String time = truncate(envelope.optString(nodeTimestampField));
+                if ((from != null && time.compareTo(from) < 0) || (until != null && time.compareTo(until) > 0))
+                {
+                    continue;
+                }
+                results.add(new JSONObject().put("record", harvestRecord(envelope)));
+            }
+        }
+
+        return page(openCursor(listRecordsField, results));
+    }
+
+    private static JSONObject harvestRecord(JSONObject envelope) throws JSONException
+    {
+        JSONObject header = new JSONObject();
+        header.put("identifier", envelope.getString(docIDField));
+        header.put("datestamp", envelope.optString(nodeTimestampField));
+        header.put("status", "active");
+        JSONObject record = new JSONObject();
+        record.put("header", header);
+        record.put(resourceDataField, envelope);
+        return record;
+    }
+
+    /**
+     * Answer an extract request, matching resource locators or keys, optionally by prefix and date range
+     */
+    private JSONObject extract(Map<String, String> params) throws JSONException
+    {
+        String token = params.get(resumptionTokenField);
+        if (token != null)
+        {
+            return page(token);
+        }
+
+        String field = null;
+        String value = null;
+        boolean partial = false;
+        for (String name : new String[] {"resource", "discriminator"})
+        {
+            if (params.containsKey(name))
+            {
+                field = name;
+                value = params.get(name);
+            }
+            else if (params.containsKey(name + startsWithSuffix))
+            {
+                field = name;
+                value = params.get(name + startsWithSuffix);
+                partial = true;
+            }
+        }
+
+        String from = truncate(params.get("from"));
+        String until = truncate(params.get("until"));
+        boolean idsOnly = "true".equals(params.get("ids_only"));
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        synchronized (documents)
+        {
+            for (JSONObject envelope : documents)
+            {
+                String time = truncate(envelope.optString(nodeTimestampField));
+                if ((from != null && time.compareTo(from) < 0) || (until != null && time.compareTo(until) > 0))
+                {
+                    continue;
+                }
+
+                if (field != null && !extractMatches(envelope, field, value, partial))
+                {
+                    continue;
+                }
+
+                JSONObject document = new JSONObject();
+                document.put(docIDField, envelope.getString(docIDField));
+                if (!idsOnly)
+                {
+                    document.put(resourceDataField, envelope);
+                }
+                results.add(document);
+            }
+        }
+
+        return page(openCursor(results));
+    }
+
+    private boolean extractMatches(JSONObject envelope, String field, String value, boolean partial)
+    {
+        if ("resource".equals(field))
+        {
+            return matches(envelope.optString(resourceLocatorField), value, partial);
+        }
+
+        JSONArray keys = envelope.optJSONArray(keysField);
+        for (int i = 0; keys != null && i < keys.length(); i++)
+        {
+            if (matches(keys.optString(i), value, partial))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String actual, String value, boolean partial)
+    {
+        return partial ? actual.startsWith(value) : actual.equals(value);
+    }
+
+    /**
+     * Hold a result set for paging, returning its first resumption token
+     */
+    private String openCursor(List<JSONObject> results)
+    {
+        return openCursor(documentsField, results);
+    }
+
+    /**
+     * Hold a result set for paging, whose pages list the results under a field of the given name
+     */
+    private String openCursor(String field, List<JSONObject> results)
+    {
+        String token = UUID.randomUUID().toString();
+        cursors.put(token, new Cursor(field, results, 0));
+        return token;
+    }
+
+    /**
+     * Answer with the page of a result set named by a resumption token
+     */
+    private JSONObject page(String token) throws JSONException
+    {
+        JSONObject response = new JSONObject();
+        Cursor cursor = cursors.remove(token);
+
+        if (cursor == null)
+        {
+            response.put("OK", false);
+            response.put("error", "Invalid resumption token");
+            return response;
+        }
+
+        int end = Math.min(cursor.offset + pageSize, cursor.results.size());
+        JSONArray page = new JSONArray();
+        for (int i = cursor.offset; i < end; i++)
+        {
+            page.put(cursor.results.get(i));
+        }
+
+        response.put("OK", true);
+        response.put(cursor.field, page);
+        if (end < cursor.results.size())
+        {
+            String next = UUID.randomUUID().toString();
+            cursors.put(next, new Cursor(cursor.field, cursor.results, end));
+            response.put(resumptionTokenField, next);
+        }
+        return response;
+    }
+
+    /**
+     * Decide whether a request is rejected by throttling, counting it against the current second
+     */
+    private synchronized boolean throttle()
+    {
+        if (maxRequestsPerSecond <= 0)
+        {
+            return false;
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        if (second != throttleSecond)
+        {
+            throttleSecond = second;
+            throttleCount = 0;
+        }
+        return ++throttleCount > maxRequestsPerSecond;
+    }
+
+    private synchronized boolean injectError()
+    {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    private synchronized long latency()
+    {
+        return minLatency + (long) (random.nextDouble() * (maxLatency - minLatency));
+    }
+
+    private static String timestamp(Date date)
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    /**
+     * Reduce a date to its "yyyy-MM-ddTHH:mm:ss" part, so node timestamps and request dates compare as text
+     */
+    private static String truncate(String date)
+    {
+        if (date == null)
+        {
+            return null;
+        }
+        return date.length() > timestampLength ? date.substring(0, timestampLength) : date;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException
+    {
+        InputStream in = exchange.getRequestBody();
+        if (isGzipped(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+        {
+            in = new GZIPInputStream(in);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0)
+        {
+            body.write(buffer, 0, n);
+        }
+        return body.toString("UTF-8");
+    }
+
+    private static boolean isGzipped(String contentEncoding)
+    {
+        return contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null)
+        {
+            return params;
+        }
+
+        for (String pair : query.split("&"))
+        {
+            int equals = pair.indexOf('=');
+            if (equals > 0)
+            {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * A result set being paged through, and the offset of the next page
+     */
+    private static class Cursor
+    {
+        final String field;
+        final List<JSONObject> results;
+        final int offset;
+
+        Cursor(String field, List<JSONObject> results, int offset)
+        {
+            this.field = field;
+            this.results = results;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Applies throttling, latency and error injection, then writes the JSON response of a service
+     */
+    private abstract class Handler implements HttpHandler
+    {
+        abstract JSONObject respond(HttpExchange exchange, Map<String, String> params) throws IOException, JSONException;
+
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            requests.incrementAndGet();
+
+            try
+            {
+                if (throttle())
+                {
+                    throttled.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, "{\"OK\": false, \"error\": \"Too many requests\"}");
+                    return;
+                }
+
+                long delay = latency();
+                if (delay > 0)
+                {
+                    Thread.sleep(delay);
+                }
+
+                String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                if (contentEncoding != null && !contentEncoding.trim().equalsIgnoreCase("identity") && !(compression && isGzipped(contentEncoding)))
+                {
+                    send(exchange, 415, "{\"OK\": false, \"error\": \"Unsupported content encoding\"}");
+                    return;
+                }
+
+                if (injectError())
+                {
+                    injectedErrors.incrementAndGet();
+                    send(exchange, errorStatus, "{\"OK\": false, \"error\": \"Injected error\"}");
+                    return;
+                }
+
+                String body = respond(exchange, parseQuery(exchange.getRequestURI().getRawQuery())).toString();
+                if (validators && exchange.getRequestMethod().equals("GET"))
+                {
+                    String etag = "\"" + Integer.toHexString(body.hashCode()) + "-" + Integer.toHexString(body.length()) + "\"";
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                    {
+                        notModified.incrementAndGet();
+                        exchange.sendResponseHeaders(304, -1);
+                        exchange.close();
+                        return;
+                    }
+                }
+                send(exchange, 200, body);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                send(exchange, 503, "{\"OK\": false, \"error\": \"Node stopping\"}");
+            }
+            catch (JSONException e)
+            {
+                send(exchange, 500, "{\"OK\": false, \"error\": \"Internal error\"}");
+            }
+        }
+
+        private void send(HttpExchange exchange, int status, String body) throws IOException
+        {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (compression && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip"))
+            {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+                GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+                gzip.write(bytes);
+                gzip.close();
+                bytes = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry.mock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in microseconds
+ * Values below 128 are exact; larger values fall in log-linear buckets of 64 per power of two, so
+ * reported percentiles are within about 1.6% of the recorded values.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LatencyHistogram
+{
+    private static final int exactLimit = 128;
+    private static final int subBucketBits = 6;
+    private static final int subBuckets = 1 << subBucketBits;
+    private static final int bucketCount = exactLimit + 58 * subBuckets;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency
+     *
+     * @param micros latency in microseconds
+     */
+    public void record(long micros)
+    {
+        long value = Math.max(micros, 0);
+
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * @return largest recorded latency in microseconds
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @return mean recorded latency in microseconds
+     */
+    public double getMean()
+    {
+        long n = count.get();
+        return (n == 0) ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Get the latency below which the given percentage of recorded latencies fall
+     *
+     * @param percentile percentage, from 0 to 100
+     * @return latency in microseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        long n = count.get();
+        if (n == 0)
+        {
+            return 0;
+        }
+
+        long target = Math.max((long) Math.ceil(percentile / 100.0 * n), 1);
+        long seen = 0;
+
+        for (int i = 0; i < bucketCount; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= target)
+            {
+                return Math.min(value(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    private static int index(long value)
+    {
+        if (value < exactLimit)
+        {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        int mantissa = (int) (value >>> shift);
+        return exactLimit + (shift - 1) * subBuckets + (mantissa - subBuckets);
+    }
+
+    /**
+     * Midpoint of the values that fall in a bucket
+     */
+    private static long value(int index)
+    {
+        if (index < exactLimit)
+        {
+            return index;
+        }
+
+        int shift = (index - exactLimit) / subBuckets + 1;
+        long mantissa = subBuckets + (index - exactLimit) % subBuckets;
+        return (mantissa << shift) + ((1L << shift) >>> 1);
+    }
+}
@@ -49,6 +49,9 @@ public class LRActivity extends LREnvelope
 
     List<Object> related = new ArrayList<Object>();
 
+    // Activity JSON written by LRActivityBuilder, used in place of the resource data map
+    private String encodedActivity;
+
     /**
      * Create a new activity with specified details
      *
@@ -141,8 +144,34 @@ public class LRActivity extends LREnvelope
         
     }
     
+    /**
+     * Create a new activity from activity JSON that has already been encoded
+     * Used by LRActivityBuilder; activities created this way cannot have children added
+     *
+     * @param resourceLocator value for "resource_locator"
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     * @param tags value for "keys"
+     * @param submitterTTL value for "submitter_TTL"
+     * @param encodedActivity encoded JSON for the resource data
+     */
+    LRActivity(String resourceLocator, String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer, String[] tags, String submitterTTL, String encodedActivity)
+    {
+        this(resourceLocator, submitter, submitterType, submissionTOS, submissionAttribution, signer, tags);
+        this.submitterTTL = submitterTTL;
+        this.encodedActivity = encodedActivity;
+    }
+    
     public Object getResourceData()
     {
+        if (encodedActivity != null)
+        {
+            return encodedActivity;
+        }
+        
         Map<String, Object> returnableData = new HashMap<String, Object>();
         Map<String, Object> activityData = new HashMap<String, Object>();
         
@@ -421,6 +450,11 @@ public class LRActivity extends LREnvelope
             container.put("content", content);
         }
 
+        if (encodedActivity != null)
+        {
+            return false;
+        }
+
         related.add(container);
         return true;
     }
@@ -453,9 +487,11 @@ public class LRActivity extends LREnvelope
     
         for(int i = 0; i < pathKeys.length; i++)
         {
-            if (selected.containsKey(pathKeys[i]) && selected.get(pathKeys[i]).getClass().equals(resourceData.getClass()))
+            Object child = selected.get(pathKeys[i]);
+            
+            if (child instanceof Map)
             {
-                selected = (Map<String, Object>) selected.get(pathKeys[i]);
+                selected = (Map<String, Object>) child;
             }
             else
             {
@@ -472,10 +508,15 @@ public class LRActivity extends LREnvelope
      * @param name Name of the object to add
      * @param value Object to add
      * @param pathKeys The path in which to add the object
-     * @return True if added, false if not (due to bad path or duplicate name at destination)
+     * @return True if added, false if not (due to bad path, duplicate name at destination or pre-encoded activity)
      */
     private boolean addChild(String name, Object value, String[] pathKeys)
     {
+        if (encodedActivity != null)
+        {
+            return false;
+        }
+        
         Map<String, Object> selected = (Map<String, Object>)resourceData;
         
         if (pathKeys != null)
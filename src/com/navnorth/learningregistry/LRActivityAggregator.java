@@ -0,0 +1,460 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.StringUtil;
+import com.navnorth.learningregistry.util.StripedCounter;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.TimeZone;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregator of raw learner activity events into activity paradata
+ * Events are counted per resource, verb and time bucket, and each group is emitted as a single
+ * LRActivity carrying a "count" measure, rather than publishing one envelope per event
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRActivityAggregator
+{
+    // Default bucket size, matching the day resolution of activity dates
+    public static final long DAILY = 24L * 60 * 60 * 1000;
+
+    private static final String countMeasureType = "count";
+
+    private final String submitter;
+    private final String submitterType;
+    private final String submissionTOS;
+    private final String submissionAttribution;
+    private final String signer;
+    private final long bucketMillis;
+
+    // Counters for each resource/verb/bucket group
+    private final ConcurrentMap<GroupKey, StripedCounter> groups = new ConcurrentHashMap<GroupKey, StripedCounter>();
+
+    private volatile LRException lastError;
+
+    /**
+     * Create a new aggregator using daily buckets
+     *
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     */
+    public LRActivityAggregator(String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer)
+    {
+        this(submitter, submitterType, submissionTOS, submissionAttribution, signer, DAILY);
+    }
+
+    /**
+     * Create a new aggregator with the specified bucket size
+     * Activity dates only have day resolution, so buckets smaller than a day produce activities sharing the same date
+     *
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     * @param bucketMillis length of each time bucket in milliseconds
+     */
+    public LRActivityAggregator(String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer, long bucketMillis)
+    {
+        if (bucketMillis <= 0)
+        {
+            throw new IllegalArgumentException("Bucket size must be larger than zero.");
+        }
+
+        this.submitter = StringUtil.nullifyBadInput(submitter);
+        this.submitterType = StringUtil.nullifyBadInput(submitterType);
+        this.submissionTOS = StringUtil.nullifyBadInput(submissionTOS);
+        this.submissionAttribution = StringUtil.nullifyBadInput(submissionAttribution);
+        this.signer = StringUtil.nullifyBadInput(signer);
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * Record a single event happening now
+     *
+     * @param resourceLocator locator of the resource the event happened on
+     * @param action the action type of the verb (e.g. "viewed")
+     * @return True if recorded, false if not (due to missing required fields)
+     */
+    public boolean record(String resourceLocator, String action)
+    {
+        return record(resourceLocator, action, System.currentTimeMillis(), 1);
+    }
+
+    /**
+     * Record a single event
+     *
+     * @param resourceLocator locator of the resource the event happened on
+     * @param action the action type of the verb (e.g. "viewed")
+     * @param timestamp time of the event in milliseconds
+     * @return True if recorded, false if not (due to missing required fields)
+     */
+    public boolean record(String resourceLocator, String action, long timestamp)
+    {
+        return record(resourceLocator, action, timestamp, 1);
+    }
+
+    /**
+     * Record a number of identical events
+     *
+     * @param resourceLocator locator of the resource the events happened on
+     * @param action the action type of the verb (e.g. "viewed")
+     * @param timestamp time of the events in milliseconds
+     * @param count number of events
+     * @return True if recorded, false if not (due to missing required fields)
+     */
+    public boolean record(String resourceLocator, String action, long timestamp, long count)
+    {
+        resourceLocator = StringUtil.nullifyBadInput(resourceLocator);
+        action = StringUtil.nullifyBadInput(action);
+
+        if (resourceLocator == null || action == null || count <= 0)
+        {
+            return false;
+        }
+
+        GroupKey key = new GroupKey(resourceLocator, action, bucketStart(timestamp));
+
+        while (true)
+        {
+            StripedCounter counter = groups.get(key);
+
+            if (counter == null)
+            {
+                counter = new StripedCounter();
+                StripedCounter existing = groups.putIfAbsent(key, counter);
+                if (existing != null)
+                {
+                    counter = existing;
+                }
+            }
+
+            if (counter.add(count))
+            {
+                return true;
+            }
+
+            // The counter was sealed by a flush; clear it out and retry with a fresh one
+            groups.remove(key, counter);
+        }
+    }
+
+    /**
+     * Get the number of resource/verb/bucket groups currently held
+     *
+     * @return number of groups
+     */
+    public int getGroupCount()
+    {
+        return groups.size();
+    }
+
+    /**
+     * Remove every group whose bucket has ended and build activities for them
+     * Events recorded later for an already flushed bucket are emitted by a following flush
+     *
+     * @return list of activities, one per group
+     */
+    public List<LRActivity> flush()
+    {
+        return toActivities(drain(bucketStart(System.currentTimeMillis())));
+    }
+
+    /**
+     * Remove every group, including those whose bucket is still open, and build activities for them
+     *
+     * @return list of activities, one per group
+     */
+    public List<LRActivity> flushAll()
+    {
+        return toActivities(drain(Long.MAX_VALUE));
+    }
+
+    /**
+     * Flush every group whose bucket has ended into the exporter
+     *
+     * @param exporter exporter to add the activities to
+     * @param signer signer for the activities, or null to add them unsigned
+     * @return number of activities added
+     * @throws LRException NOT_CONFIGURED, or any signing error
+     */
+    public int flush(LRExporter exporter, LRSigner signer) throws LRException
+    {
+        List<LRActivity> activities = flush();
+
+        for (LRActivity activity : activities)
+        {
+            if (signer != null)
+            {
+                signer.sign(activity);
+            }
+            exporter.addDocument(activity);
+        }
+
+        return activities.size();
+    }
+
+    /**
+     * Periodically flush every group whose bucket has ended and publish the activities through the exporter
+     * Groups that fail to publish are put back and retried on the next run; the failure is available from getLastError()
+     *
+     * @param scheduler scheduler to run the flushes on
+     * @param period time between flushes
+     * @param unit unit of the period
+     * @param exporter configured exporter to publish through
+     * @param signer signer for the activities, or null to publish them unsigned
+     * @return future for cancelling the periodic flush
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService scheduler, long period, TimeUnit unit, final LRExporter exporter, final LRSigner signer)
+    {
+        return scheduler.scheduleAtFixedRate(new Runnable()
+        {
+            public void run()
+            {
+                publish(exporter, signer);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Get the error from the last failed periodic publish
+     *
+     * @return last error, or null if every publish has succeeded
+     */
+    public LRException getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * Publish every group whose bucket has ended, putting the groups back if publishing fails
+     *
+     * @param exporter configured exporter to publish through
+     * @param signer signer for the activities, or null to publish them unsigned
+     */
+    private void publish(LRExporter exporter, LRSigner signer)
+    {
+        Map<GroupKey, Long> totals = drain(bucketStart(System.currentTimeMillis()));
+
+        if (totals.isEmpty())
+        {
+            return;
+        }
+
+        List<GroupKey> keys = new ArrayList<GroupKey>(totals.keySet());
+        int batchSize = Math.max(exporter.getBatchSize(), 1);
+        LRException error = null;
+
+        // Send one batch at a time, so that only unsent groups are put back on failure
+        for (int start = 0; start < keys.size(); start += batchSize)
+        {
+            Map<GroupKey, Long> batch = new LinkedHashMap<GroupKey, Long>();
+            for (GroupKey key : keys.subList(start, Math.min(start + batchSize, keys.size())))
+            {
+                batch.put(key, totals.get(key));
+            }
+
+            List<LRResponse> responses;
+            try
+            {
+                List<LRActivity> activities = toActivities(batch);
+
+                if (signer != null)
+                {
+                    for (LRActivity activity : activities)
+                    {
+                        signer.sign(activity);
+                    }
+                }
+
+                responses = exporter.sendDocuments(activities);
+            }
+            catch (LRException e)
+            {
+                for (GroupKey key : keys.subList(start, keys.size()))
+                {
+                    record(key.resourceLocator, key.action, key.bucketStart, totals.get(key));
+                }
+                lastError = e;
+                return;
+            }
+
+            // Put back the groups the node did not accept, including all of them if it gave no answer
+            List<Boolean> outcomes = new ArrayList<Boolean>();
+            for (LRResponse response : responses)
+            {
+                if (response.getBatchSuccess())
+                {
+                    outcomes.addAll(response.getResourceOutcomes());
+                }
+            }
+
+            int i = 0;
+            for (GroupKey key : batch.keySet())
+            {
+                if (i >= outcomes.size() || !outcomes.get(i))
+                {
+                    record(key.resourceLocator, key.action, key.bucketStart, totals.get(key));
+                    error = new LRException(LRException.INVALID_RESPONSE);
+                }
+                i++;
+            }
+        }
+
+        lastError = error;
+    }
+
+    /**
+     * Seal and remove every group whose bucket starts before the cutoff
+     *
+     * @param cutoff start of the first bucket to keep
+     * @return totals of the removed groups
+     */
+    private Map<GroupKey, Long> drain(long cutoff)
+    {
+        Map<GroupKey, Long> totals = new LinkedHashMap<GroupKey, Long>();
+
+        for (Map.Entry<GroupKey, StripedCounter> entry : groups.entrySet())
+        {
+            GroupKey key = entry.getKey();
+
+            if (key.bucketStart < cutoff)
+            {
+                StripedCounter counter = entry.getValue();
+                long total = counter.seal();
+                groups.remove(key, counter);
+
+                if (total > 0)
+                {
+                    Long previous = totals.get(key);
+                    totals.put(key, previous == null ? total : previous + total);
+                }
+            }
+        }
+
+        return totals;
+    }
+
+    /**
+     * Build an activity for each group total
+     *
+     * @param totals totals for each group
+     * @return list of activities
+     */
+    private List<LRActivity> toActivities(Map<GroupKey, Long> totals)
+    {
+        List<LRActivity> activities = new ArrayList<LRActivity>(totals.size());
+        LRActivityBuilder builder = new LRActivityBuilder(submitter, submitterType, submissionTOS, submissionAttribution, signer);
+
+        for (Map.Entry<GroupKey, Long> entry : totals.entrySet())
+        {
+            GroupKey key = entry.getKey();
+            Long count = entry.getValue();
+
+            Date dateStart = new Date(key.bucketStart);
+            Date dateEnd = null;
+            if (bucketMillis > DAILY)
+            {
+                dateEnd = new Date(key.bucketStart + bucketMillis - 1);
+            }
+
+            builder.reset().setResourceLocator(key.resourceLocator);
+            builder.setVerb(key.action, dateStart, dateEnd, null, null);
+            builder.setMeasure(countMeasureType, count, null, null, count);
+            builder.setObject(null, key.resourceLocator, null);
+
+            activities.add(builder.build());
+        }
+
+        return activities;
+    }
+
+    /**
+     * Get the start of the bucket containing the timestamp
+     * Buckets are aligned to the default time zone, so that daily buckets match the dates written into activities
+     *
+     * @param timestamp time in milliseconds
+     * @return start of the bucket in milliseconds
+     */
+    private long bucketStart(long timestamp)
+    {
+        long offset = TimeZone.getDefault().getOffset(timestamp);
+        long local = timestamp + offset;
+
+        return local - floorMod(local, bucketMillis) - offset;
+    }
+
+    private static long floorMod(long value, long divisor)
+    {
+        long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+
+    /**
+     * Key for a resource/verb/bucket group
+     */
+    private static final class GroupKey
+    {
+        final String resourceLocator;
+        final String action;
+        final long bucketStart;
+        private final int hash;
+
+        GroupKey(String resourceLocator, String action, long bucketStart)
+        {
+            this.resourceLocator = resourceLocator;
+            this.action = action;
+            this.bucketStart = bucketStart;
+            this.hash = (31 * resourceLocator.hashCode() + action.hashCode()) * 31 + (int) (bucketStart ^ (bucketStart >>> 32));
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof GroupKey))
+            {
+                return false;
+            }
+            GroupKey other = (GroupKey) o;
+            return bucketStart == other.bucketStart && resourceLocator.equals(other.resourceLocator) && action.equals(other.action);
+        }
+    }
+}
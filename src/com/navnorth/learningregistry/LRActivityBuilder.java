@@ -0,0 +1,566 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.StringUtil;
+
+import java.util.Date;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import org.json.JSONObject;
+import org.json.JSONException;
+
+/**
+ * Reusable builder for activity paradata
+ * Activity fields are held in fixed slots and written straight to JSON when the activity is built,
+ * instead of being collected in nested maps as LRActivity does. Call reset() between events to reuse the builder.
+ * A builder is not thread safe; use one builder per thread.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRActivityBuilder
+{
+    private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+    private final StringBuilder json = new StringBuilder(512);
+
+    // Envelope values, kept across resets
+    private final String submitter;
+    private final String submitterType;
+    private final String submissionTOS;
+    private final String submissionAttribution;
+    private final String signer;
+
+    // Envelope values for the current activity
+    private String resourceLocator;
+    private String[] tags;
+    private String submitterTTL;
+
+    // Actor
+    private String actorObjectType;
+    private String actorDisplayName;
+    private String actorUrl;
+    private String[] actorDescription;
+
+    // Verb
+    private String verbAction;
+    private String verbDate;
+    private String[] verbDescription;
+    private String verbComment;
+
+    // Measure of the verb
+    private String measureType;
+    private Number measureValue;
+    private Number measureScaleMin;
+    private Number measureScaleMax;
+    private Number measureSampleSize;
+
+    // Context of the verb, either a string or an object
+    private boolean hasContext;
+    private String contextString;
+    private String contextObjectType;
+    private String contextId;
+    private String[] contextDescription;
+
+    // Object
+    private boolean hasObject;
+    private String objectType;
+    private String objectId;
+    private String objectContent;
+
+    private String content;
+
+    // Related objects, stored as objectType/id/content triples
+    private final List<String> related = new ArrayList<String>();
+
+    /**
+     * Create a new builder with the envelope details shared by every activity it builds
+     *
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     */
+    public LRActivityBuilder(String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer)
+    {
+        this.submitter = StringUtil.nullifyBadInput(submitter);
+        this.submitterType = StringUtil.nullifyBadInput(submitterType);
+        this.submissionTOS = StringUtil.nullifyBadInput(submissionTOS);
+        this.submissionAttribution = StringUtil.nullifyBadInput(submissionAttribution);
+        this.signer = StringUtil.nullifyBadInput(signer);
+    }
+
+    /**
+     * Clear every value of the current activity, keeping the shared envelope details
+     *
+     * @return this builder
+     */
+    public LRActivityBuilder reset()
+    {
+        resourceLocator = null;
+        tags = null;
+        submitterTTL = null;
+
+        actorObjectType = null;
+        actorDisplayName = null;
+        actorUrl = null;
+        actorDescription = null;
+
+        verbAction = null;
+        verbDate = null;
+        verbDescription = null;
+        verbComment = null;
+
+        measureType = null;
+        measureValue = null;
+        measureScaleMin = null;
+        measureScaleMax = null;
+        measureSampleSize = null;
+
+        hasContext = false;
+        contextString = null;
+        contextObjectType = null;
+        contextId = null;
+        contextDescription = null;
+
+        hasObject = false;
+        objectType = null;
+        objectId = null;
+        objectContent = null;
+
+        content = null;
+        related.clear();
+
+        return this;
+    }
+
+    /**
+     * Set the resource locator of the current activity
+     *
+     * @param resourceLocator value for "resource_locator"
+     * @return this builder
+     */
+    public LRActivityBuilder setResourceLocator(String resourceLocator)
+    {
+        this.resourceLocator = StringUtil.nullifyBadInput(resourceLocator);
+        return this;
+    }
+
+    /**
+     * Set the keys of the current activity
+     *
+     * @param tags value for "keys"
+     * @return this builder
+     */
+    public LRActivityBuilder setTags(String[] tags)
+    {
+        this.tags = StringUtil.removeDuplicates(tags);
+        return this;
+    }
+
+    /**
+     * Set the TTL of the current activity
+     *
+     * @param ttl value for "submitter_TTL"
+     * @return this builder
+     */
+    public LRActivityBuilder setTTL(Date ttl)
+    {
+        this.submitterTTL = (ttl != null) ? df.format(ttl) : null;
+        return this;
+    }
+
+    /**
+     * Set the actor of the current activity
+     *
+     * @param objectType The type of actor (required)
+     * @param displayName Name of the actor
+     * @param url URL of a page representing the actor
+     * @param description Array of descriptions of this actor
+     * @return True if set, false if not (due to missing required fields)
+     */
+    public boolean setActor(String objectType, String displayName, String url, String[] description)
+    {
+        if (objectType == null)
+        {
+            return false;
+        }
+
+        actorObjectType = objectType;
+        actorDisplayName = displayName;
+        actorUrl = url;
+        actorDescription = description;
+        return true;
+    }
+
+    /**
+     * Set the verb of the current activity
+     *
+     * @param action The action type of the verb (required)
+     * @param dateStart The start date of the action described
+     * @param dateEnd The end date of the action described
+     * @param description An array of descriptions of this action
+     * @param comment A comment on this verb
+     * @return True if set, false if not (due to missing required fields)
+     */
+    public boolean setVerb(String action, Date dateStart, Date dateEnd, String[] description, String comment)
+    {
+        if (action == null)
+        {
+            return false;
+        }
+
+        verbAction = action;
+        if (dateStart != null && dateEnd != null)
+        {
+            verbDate = df.format(dateStart) + "/" + df.format(dateEnd);
+        }
+        else if (dateStart != null)
+        {
+            verbDate = df.format(dateStart);
+        }
+        else
+        {
+            verbDate = null;
+        }
+        verbDescription = description;
+        verbComment = comment;
+        return true;
+    }
+
+    /**
+     * Set the measure of the verb of the current activity
+     *
+     * @param measureType The name of the type of measure (required)
+     * @param value The value of this measure (required)
+     * @param scaleMin The low end of the scale represented
+     * @param scaleMax The high end of the scale represented
+     * @param sampleSize the number of samples represented by this data
+     * @return True if set, false if not (due to missing required fields, non-finite numbers or lack of verb)
+     */
+    public boolean setMeasure(String measureType, Number value, Number scaleMin, Number scaleMax, Number sampleSize)
+    {
+        if (verbAction == null || measureType == null || value == null)
+        {
+            return false;
+        }
+        if (!isFinite(value) || !isFinite(scaleMin) || !isFinite(scaleMax) || !isFinite(sampleSize))
+        {
+            return false;
+        }
+
+        this.measureType = measureType;
+        this.measureValue = value;
+        this.measureScaleMin = scaleMin;
+        this.measureScaleMax = scaleMax;
+        this.measureSampleSize = sampleSize;
+        return true;
+    }
+
+    /**
+     * Set a context string on the verb of the current activity
+     *
+     * @param context The string to use as the context
+     * @return True if set, false if not (due to lack of verb)
+     */
+    public boolean setContext(String context)
+    {
+        if (verbAction == null || context == null)
+        {
+            return false;
+        }
+
+        hasContext = true;
+        contextString = context;
+        contextObjectType = null;
+        contextId = null;
+        contextDescription = null;
+        return true;
+    }
+
+    /**
+     * Set a context object on the verb of the current activity
+     *
+     * @param objectType The type of context
+     * @param id The id of the context
+     * @param description Array of descriptions of the context
+     * @return True if set, false if not (due to lack of verb)
+     */
+    public boolean setContext(String objectType, String id, String[] description)
+    {
+        if (verbAction == null)
+        {
+            return false;
+        }
+
+        hasContext = true;
+        contextString = null;
+        contextObjectType = objectType;
+        contextId = id;
+        contextDescription = description;
+        return true;
+    }
+
+    /**
+     * Set the object of the current activity
+     *
+     * @param objectType The type of object
+     * @param id Id of the object
+     * @param content String describing the content of the object
+     * @return this builder
+     */
+    public LRActivityBuilder setObject(String objectType, String id, String content)
+    {
+        hasObject = true;
+        this.objectType = objectType;
+        this.objectId = id;
+        this.objectContent = content;
+        return this;
+    }
+
+    /**
+     * Add a related object to the current activity
+     *
+     * @param objectType The type of the object (required)
+     * @param id Id of the ojbect
+     * @param content String describing the content of the object
+     * @return True if added, false if not (due to missing required fields)
+     */
+    public boolean addRelatedObject(String objectType, String id, String content)
+    {
+        if (objectType == null)
+        {
+            return false;
+        }
+
+        related.add(objectType);
+        related.add(id);
+        related.add(content);
+        return true;
+    }
+
+    /**
+     * Set the content string of the current activity
+     *
+     * @param content String describing the content of this activity
+     * @return this builder
+     */
+    public LRActivityBuilder setContent(String content)
+    {
+        this.content = content;
+        return this;
+    }
+
+    /**
+     * Build an activity envelope from the current values
+     * The builder keeps its values, so call reset() before building the next activity
+     *
+     * @return new activity
+     */
+    public LRActivity build()
+    {
+        return new LRActivity(resourceLocator, submitter, submitterType, submissionTOS, submissionAttribution, signer, tags, submitterTTL, toJSON());
+    }
+
+    /**
+     * Encode the current values as activity JSON, in the form used for "resource_data"
+     *
+     * @return activity JSON string
+     */
+    public String toJSON()
+    {
+        json.setLength(0);
+
+        json.append("{\"activity\":{");
+        boolean first = true;
+
+        if (actorObjectType != null)
+        {
+            first = key(first, "actor");
+            json.append('{');
+            boolean inner = field(true, "objectType", actorObjectType);
+            inner = field(inner, "displayName", actorDisplayName);
+            inner = field(inner, "url", actorUrl);
+            field(inner, "description", actorDescription);
+            json.append('}');
+        }
+
+        if (verbAction != null)
+        {
+            first = key(first, "verb");
+            json.append('{');
+            boolean inner = field(true, "action", verbAction);
+            inner = field(inner, "date", verbDate);
+            inner = field(inner, "description", verbDescription);
+            inner = field(inner, "comment", verbComment);
+
+            if (measureType != null)
+            {
+                inner = key(inner, "measure");
+                json.append('{');
+                boolean measure = field(true, "measureType", measureType);
+                measure = field(measure, "value", measureValue);
+                measure = field(measure, "scaleMin", measureScaleMin);
+                measure = field(measure, "scaleMax", measureScaleMax);
+                field(measure, "sampleSize", measureSampleSize);
+                json.append('}');
+            }
+
+            if (hasContext)
+            {
+                if (contextString != null)
+                {
+                    field(inner, "context", contextString);
+                }
+                else
+                {
+                    key(inner, "context");
+                    json.append('{');
+                    boolean context = field(true, "objectType", contextObjectType);
+                    context = field(context, "id", contextId);
+                    field(context, "description", contextDescription);
+                    json.append('}');
+                }
+            }
+            json.append('}');
+        }
+
+        if (hasObject)
+        {
+            first = key(first, "object");
+            json.append('{');
+            boolean inner = field(true, "objectType", objectType);
+            inner = field(inner, "id", objectId);
+            field(inner, "content", objectContent);
+            json.append('}');
+        }
+
+        first = field(first, "content", content);
+
+        if (related.size() > 0)
+        {
+            key(first, "related");
+            json.append('[');
+            for (int i = 0; i < related.size(); i += 3)
+            {
+                if (i > 0)
+                {
+                    json.append(',');
+                }
+                json.append('{');
+                boolean inner = field(true, "objectType", related.get(i));
+                inner = field(inner, "id", related.get(i + 1));
+                field(inner, "content", related.get(i + 2));
+                json.append('}');
+            }
+            json.append(']');
+        }
+
+        json.append("}}");
+
+        return json.toString();
+    }
+
+    /**
+     * Write a key, preceded by a separator unless it is the first in its object
+     *
+     * @param first whether this is the first key in its object
+     * @param name name of the key
+     * @return false, for tracking the first key of the object
+     */
+    private boolean key(boolean first, String name)
+    {
+        if (!first)
+        {
+            json.append(',');
+        }
+        json.append('"').append(name).append("\":");
+        return false;
+    }
+
+    private boolean field(boolean first, String name, String value)
+    {
+        if (value == null)
+        {
+            return first;
+        }
+        key(first, name);
+        json.append(JSONObject.quote(value));
+        return false;
+    }
+
+    private boolean field(boolean first, String name, String[] values)
+    {
+        if (values == null || values.length == 0)
+        {
+            return first;
+        }
+        key(first, name);
+        json.append('[');
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0)
+            {
+                json.append(',');
+            }
+            json.append(values[i] == null ? "null" : JSONObject.quote(values[i]));
+        }
+        json.append(']');
+        return false;
+    }
+
+    private boolean field(boolean first, String name, Number value)
+    {
+        if (value == null)
+        {
+            return first;
+        }
+        key(first, name);
+        try
+        {
+            json.append(JSONObject.numberToString(value));
+        }
+        catch (JSONException e)
+        {
+            // Non-finite numbers are rejected when the measure is set
+            json.append("null");
+        }
+        return false;
+    }
+
+    private static boolean isFinite(Number value)
+    {
+        if (value instanceof Double)
+        {
+            return !((Double) value).isNaN() && !((Double) value).isInfinite();
+        }
+        if (value instanceof Float)
+        {
+            return !((Float) value).isNaN() && !((Float) value).isInfinite();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Layout of the envelope archives written by LRArchiveWriter and read by LRArchiveReader
+ * All numbers are big-endian.
+ * <pre>
+ * header   magic "LRA1" (int), version (int)
+ * block*   stored length (int), codec (byte), raw length (int), records (int), CRC-32 of the raw bytes (int),
+ *          stored bytes: the raw bytes, compressed with the codec
+ * index    for each block: offset of the block (long), index of its first record (long)
+ * footer   offset of the index (long), blocks (int), records (long), magic "LRAX" (int)
+ * </pre>
+ * The raw bytes of a block are its records, each a length (int) and the UTF-8 text of one envelope. The index holds
+ * one entry per block rather than per record, so it stays small; a record is found by a binary search of the index
+ * and a walk through one block. An archive whose writer did not close it has no footer, and is read by walking its
+ * blocks from the start up to the first incomplete block.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRArchiveFormat
+{
+    static final int headerMagic = 0x4C524131;
+    static final int footerMagic = 0x4C524158;
+    static final int version = 1;
+
+    static final int headerSize = 8;
+    static final int blockHeaderSize = 17;
+    static final int indexEntrySize = 16;
+    static final int footerSize = 24;
+
+    // Codecs of a block
+    static final byte STORED = 0;
+    static final byte DEFLATED = 1;
+
+    private LRArchiveFormat()
+    {
+    }
+}
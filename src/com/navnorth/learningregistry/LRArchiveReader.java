@@ -0,0 +1,557 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reader of an archive of harvested envelopes written by LRArchiveWriter
+ * The file is memory-mapped, so scanning it or reading single envelopes goes through the page cache of the operating
+ * system rather than the Java heap; only the block being read, if compressed, and the envelopes handed out are copied
+ * to the heap. Any envelope can be read by its index, through the sparse block index. A reader may be shared by
+ * several threads, each scanning its own range of blocks.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRArchiveReader implements Closeable
+{
+    /**
+     * Receiver of the envelopes of a scan
+     */
+    public interface Visitor
+    {
+        /**
+         * Called with each envelope, in order
+         *
+         * @param index index of the envelope in the archive
+         * @param envelope JSON text of the envelope
+         * @return true to go on, or false to end the scan
+         * @throws LRException to end the scan with this failure
+         */
+        boolean visit(long index, String envelope) throws LRException;
+    }
+
+    // Largest part of the file mapped at once
+    private static final long maxRegionSize = 1L << 30;
+
+    private final FileChannel channel;
+    private final long[] blockOffsets;
+    private final long[] blockFirstRecords;
+    private final int blocks;
+    private final long records;
+    private final boolean complete;
+
+    private final MappedByteBuffer[] regions;
+    private final long[] regionStarts;
+    private final int[] blockRegions;
+
+    /**
+     * Open an archive
+     * An archive whose writer was not closed is read up to its last complete block.
+     *
+     * @param file file to read
+     * @throws LRException READ_FAILED if the file cannot be read, INVALID_ARCHIVE if it is not an archive
+     */
+    public LRArchiveReader(File file) throws LRException
+    {
+        try
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        catch (IOException e)
+        {
+            throw new LRException(LRException.READ_FAILED);
+        }
+
+        try
+        {
+            long size = channel.size();
+            ByteBuffer header = read(0, LRArchiveFormat.headerSize);
+            if (header == null || header.getInt() != LRArchiveFormat.headerMagic || header.getInt() != LRArchiveFormat.version)
+            {
+                throw new LRException(LRException.INVALID_ARCHIVE);
+            }
+
+            // The index, if the writer was closed; otherwise the blocks found by walking the file
+            List<long[]> found = readIndex(size);
+            complete = (found != null);
+            if (found == null)
+            {
+                found = walkBlocks(size);
+            }
+
+            blocks = found.size();
+            blockOffsets = new long[blocks + 1];
+            blockFirstRecords = new long[blocks + 1];
+            for (int i = 0; i < blocks; i++)
+            {
+                blockOffsets[i] = found.get(i)[0];
+                blockFirstRecords[i] = found.get(i)[1];
+            }
+            long dataEnd = (blocks > 0) ? found.get(blocks - 1)[2] : LRArchiveFormat.headerSize;
+            records = (blocks > 0) ? found.get(blocks - 1)[1] + found.get(blocks - 1)[3] : 0;
+            blockOffsets[blocks] = dataEnd;
+            blockFirstRecords[blocks] = records;
+
+            // Map runs of whole blocks, so no block straddles two mappings
+            List<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>();
+            List<Long> starts = new ArrayList<Long>();
+            blockRegions = new int[blocks];
+            int first = 0;
+            while (first < blocks)
+            {
+                int last = first;
+                while (last + 1 < blocks && blockOffsets[last + 2] - blockOffsets[first] <= maxRegionSize)
+                {
+                    last++;
+                }
+                long start = blockOffsets[first];
+                mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, start, blockOffsets[last + 1] - start));
+                starts.add(start);
+                for (int i = first; i <= last; i++)
+                {
+                    blockRegions[i] = mapped.size() - 1;
+                }
+                first = last + 1;
+            }
+            regions = mapped.toArray(new MappedByteBuffer[mapped.size()]);
+            regionStarts = new long[starts.size()];
+            for (int i = 0; i < regionStarts.length; i++)
+            {
+                regionStarts[i] = starts.get(i);
+            }
+        }
+        catch (IOException e)
+        {
+            closeQuietly();
+            throw new LRException(LRException.READ_FAILED);
+        }
+        catch (LRException e)
+        {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of envelopes in the archive
+     */
+    public long getRecordCount()
+    {
+        return records;
+    }
+
+    /**
+     * @return number of blocks in the archive
+     */
+    public int getBlockCount()
+    {
+        return blocks;
+    }
+
+    /**
+     * @return true if the archive was closed by its writer, false if it was read up to its last complete block
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Get the index of the first envelope of a block
+     *
+     * @param block index of the block, or the number of blocks for the number of envelopes
+     * @return index of the envelope
+     */
+    public long getFirstRecord(int block)
+    {
+        return blockFirstRecords[block];
+    }
+
+    /**
+     * Get the size of the stored bytes of a block range, such as to split the archive into ranges of similar size
+     *
+     * @param fromBlock first block of the range
+     * @param toBlock block after the last block of the range
+     * @return size in bytes
+     */
+    public long getSize(int fromBlock, int toBlock)
+    {
+        return blockOffsets[toBlock] - blockOffsets[fromBlock];
+    }
+
+    /**
+     * Find the block holding an envelope
+     *
+     * @param index index of the envelope
+     * @return index of the block
+     */
+    public int getBlock(long index)
+    {
+        if (index < 0 || index >= records)
+        {
+            throw new IndexOutOfBoundsException("No envelope " + index + " in an archive of " + records);
+        }
+        int found = Arrays.binarySearch(blockFirstRecords, 0, blocks, index);
+        if (found >= 0)
+        {
+            // Skip empty blocks, which share their first index with the next block
+            while (found + 1 < blocks && blockFirstRecords[found + 1] == index)
+            {
+                found++;
+            }
+            return found;
+        }
+        return -found - 2;
+    }
+
+    /**
+     * Read one envelope
+     *
+     * @param index index of the envelope
+     * @return JSON text of the envelope
+     * @throws LRException INVALID_ARCHIVE if its block is damaged
+     */
+    public String getRecord(long index) throws LRException
+    {
+        final String[] record = new String[1];
+        final long wanted = index;
+        int block = getBlock(index);
+        scan(block, block + 1, new Visitor()
+        {
+            public boolean visit(long index, String envelope)
+            {
+                if (index < wanted)
+                {
+                    return true;
+                }
+                record[0] = envelope;
+                return false;
+            }
+        });
+        return record[0];
+    }
+
+    /**
+     * Read and parse one envelope
+     *
+     * @param index index of the envelope
+     * @return the envelope
+     * @throws LRException INVALID_ARCHIVE if its block is damaged, INVALID_JSON if it is not a JSON object
+     */
+    public JSONObject getEnvelope(long index) throws LRException
+    {
+        try
+        {
+            return new JSONObject(getRecord(index));
+        }
+        catch (JSONException e)
+        {
+            throw new LRException(LRException.INVALID_JSON);
+        }
+    }
+
+    /**
+     * Visit every envelope, in order
+     *
+     * @param visitor receiver of the envelopes
+     * @return number of envelopes visited
+     * @throws LRException INVALID_ARCHIVE if a block is damaged, or the failure of the visitor
+     */
+    public long scan(Visitor visitor) throws LRException
+    {
+        return scan(0, blocks, visitor);
+    }
+
+    /**
+     * Visit the envelopes of a range of blocks, in order
+     *
+     * @param fromBlock first block of the range
+     * @param toBlock block after the last block of the range
+     * @param visitor receiver of the envelopes
+     * @return number of envelopes visited
+     * @throws LRException INVALID_ARCHIVE if a block is damaged, or the failure of the visitor
+     */
+    public long scan(int fromBlock, int toBlock, Visitor visitor) throws LRException
+    {
+        if (fromBlock < 0 || toBlock > blocks || fromBlock > toBlock)
+        {
+            throw new IndexOutOfBoundsException("No blocks " + fromBlock + " to " + toBlock + " in an archive of " + blocks);
+        }
+
+        Inflater inflater = new Inflater();
+        CRC32 crc = new CRC32();
+        byte[][] scratch = new byte[2][0];
+        long visited = 0;
+
+        try
+        {
+            for (int block = fromBlock; block < toBlock; block++)
+            {
+                ByteBuffer raw = readBlock(block, inflater, crc, scratch);
+                long index = blockFirstRecords[block];
+                long end = blockFirstRecords[block + 1];
+
+                for (; index < end; index++)
+                {
+                    if (raw.remaining() < 4)
+                    {
+                        throw new LRException(LRException.INVALID_ARCHIVE);
+                    }
+                    int length = raw.getInt();
+                    if (length < 0 || length > raw.remaining())
+                    {
+                        throw new LRException(LRException.INVALID_ARCHIVE);
+                    }
+
+                    String envelope;
+                    if (raw.hasArray())
+                    {
+                        envelope = new String(raw.array(), raw.arrayOffset() + raw.position(), length, StandardCharsets.UTF_8);
+                        raw.position(raw.position() + length);
+                    }
+                    else
+                    {
+                        if (scratch[1].length < length)
+                        {
+                            scratch[1] = new byte[Math.max(length, scratch[1].length * 2)];
+                        }
+                        raw.get(scratch[1], 0, length);
+                        envelope = new String(scratch[1], 0, length, StandardCharsets.UTF_8);
+                    }
+
+                    visited++;
+                    if (!visitor.visit(index, envelope))
+                    {
+                        return visited;
+                    }
+                }
+            }
+            return visited;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Close the file; the mappings are released once no longer referenced
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Get the raw bytes of a block, checked against its CRC-32
+     * A stored block is returned as a view of the mapping; a compressed block is inflated into scratch[0].
+     */
+    private ByteBuffer readBlock(int block, Inflater inflater, CRC32 crc, byte[][] scratch) throws LRException
+    {
+        ByteBuffer region = regions[blockRegions[block]].duplicate();
+        int position = (int) (blockOffsets[block] - regionStarts[blockRegions[block]]);
+        int available = (int) (blockOffsets[block + 1] - blockOffsets[block]) - LRArchiveFormat.blockHeaderSize;
+
+        region.position(position);
+        int storedLength = region.getInt();
+        byte codec = region.get();
+        int rawLength = region.getInt();
+        int recordCount = region.getInt();
+        int checksum = region.getInt();
+        if (storedLength < 0 || storedLength > available || rawLength < 0 || recordCount != blockFirstRecords[block + 1] - blockFirstRecords[block])
+        {
+            throw new LRException(LRException.INVALID_ARCHIVE);
+        }
+
+        ByteBuffer stored = region.slice();
+        stored.limit(storedLength);
+        ByteBuffer raw;
+
+        if (codec == LRArchiveFormat.STORED && rawLength == storedLength)
+        {
+            raw = stored;
+        }
+        else if (codec == LRArchiveFormat.DEFLATED)
+        {
+            if (scratch[0].length < rawLength)
+            {
+                scratch[0] = new byte[Math.max(rawLength, scratch[0].length * 2)];
+            }
+            try
+            {
+                inflater.reset();
+                inflater.setInput(stored);
+                int inflated = 0;
+                while (inflated < rawLength && !inflater.finished())
+                {
+                    int n = inflater.inflate(scratch[0], inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != rawLength)
+                {
+                    throw new LRException(LRException.INVALID_ARCHIVE);
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new LRException(LRException.INVALID_ARCHIVE);
+            }
+            raw = ByteBuffer.wrap(scratch[0], 0, rawLength).slice();
+        }
+        else
+        {
+            throw new LRException(LRException.INVALID_ARCHIVE);
+        }
+
+        crc.reset();
+        crc.update(raw.duplicate());
+        if ((int) crc.getValue() != checksum)
+        {
+            throw new LRException(LRException.INVALID_ARCHIVE);
+        }
+        return raw;
+    }
+
+    /**
+     * Read the index of a closed archive
+     *
+     * @return for each block its offset, first envelope, end and envelope count, or null if there is no valid footer
+     */
+    private List<long[]> readIndex(long size) throws IOException
+    {
+        if (size < LRArchiveFormat.headerSize + LRArchiveFormat.footerSize)
+        {
+            return null;
+        }
+        ByteBuffer footer = read(size - LRArchiveFormat.footerSize, LRArchiveFormat.footerSize);
+        long indexOffset = footer.getLong();
+        int count = footer.getInt();
+        long total = footer.getLong();
+        if (footer.getInt() != LRArchiveFormat.footerMagic || count < 0 || indexOffset < LRArchiveFormat.headerSize
+            || indexOffset + (long) count * LRArchiveFormat.indexEntrySize + LRArchiveFormat.footerSize != size)
+        {
+            return null;
+        }
+
+        ByteBuffer index = read(indexOffset, count * LRArchiveFormat.indexEntrySize);
+        List<long[]> found = new ArrayList<long[]>(count);
+        for (int i = 0; i < count; i++)
+        {
+            found.add(new long[] {index.getLong(), index.getLong(), 0, 0});
+        }
+        for (int i = 0; i < count; i++)
+        {
+            long[] entry = found.get(i);
+            entry[2] = (i + 1 < count) ? found.get(i + 1)[0] : indexOffset;
+            entry[3] = ((i + 1 < count) ? found.get(i + 1)[1] : total) - entry[1];
+            if (entry[0] < LRArchiveFormat.headerSize || entry[2] - entry[0] < LRArchiveFormat.blockHeaderSize || entry[3] < 0)
+            {
+                return null;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the blocks of an archive that has no index, by walking them from the start
+     *
+     * @return for each complete block its offset, first envelope, end and envelope count
+     */
+    private List<long[]> walkBlocks(long size) throws IOException
+    {
+        List<long[]> found = new ArrayList<long[]>();
+        long offset = LRArchiveFormat.headerSize;
+        long first = 0;
+
+        while (offset + LRArchiveFormat.blockHeaderSize <= size)
+        {
+            ByteBuffer header = read(offset, LRArchiveFormat.blockHeaderSize);
+            int storedLength = header.getInt();
+            byte codec = header.get();
+            header.getInt();
+            int recordCount = header.getInt();
+            long end = offset + LRArchiveFormat.blockHeaderSize + storedLength;
+            if (storedLength < 0 || recordCount < 0 || end > size || (codec != LRArchiveFormat.STORED && codec != LRArchiveFormat.DEFLATED))
+            {
+                break;
+            }
+            found.add(new long[] {offset, first, end, recordCount});
+            first += recordCount;
+            offset = end;
+        }
+        return found;
+    }
+
+    /**
+     * Read bytes of the file at a position
+     *
+     * @return the bytes, or null if the file is shorter
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void closeQuietly()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            //Could not close the file
+        }
+    }
+}
@@ -0,0 +1,530 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.StringUtil;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk retraction of documents from a Learning Registry node
+ * A signed delete document replacing each doc ID is created on a pool of worker threads, and the
+ * tombstones are published in batches whose size adapts to the latency and failures of the node.
+ * The result reports which doc IDs the node confirmed.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRBulkDelete
+{
+    private static final int sendRetries = 3;
+    private static final String noResultError = "No result reported";
+
+    private final LRExporter exporter;
+    private final LRSigner signer;
+
+    private final String submitter;
+    private final String submitterType;
+    private final String submissionTOS;
+    private final String submissionAttribution;
+    private final String signerName;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executor = null;
+    private int minBatchSize = 1;
+    private long targetLatency = 5 * 1000;
+
+    private LRIngestProgress.Listener listener = null;
+    private long progressInterval = 10 * 1000;
+
+    /**
+     * Creates the bulk delete
+     *
+     * @param exporter configured exporter to publish through; its batch size is the largest batch sent
+     * @param signer signer for the delete documents, or null to publish them unsigned
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signerName value for "signer"
+     */
+    public LRBulkDelete(LRExporter exporter, LRSigner signer, String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signerName)
+    {
+        this.exporter = exporter;
+        this.signer = signer;
+        this.submitter = submitter;
+        this.submitterType = submitterType;
+        this.submissionTOS = submissionTOS;
+        this.submissionAttribution = submissionAttribution;
+        this.signerName = signerName;
+    }
+
+    /**
+     * Retract every document of a harvested result
+     *
+     * @param result obtain, harvest or extract result
+     * @return result of the delete
+     * @throws LRException NOT_CONFIGURED, or UNKNOWN if interrupted
+     */
+    public LRBulkDeleteResult delete(LRResult result) throws LRException
+    {
+        return delete(result.getDocIDs().iterator());
+    }
+
+    /**
+     * Retract every document in a collection of doc IDs
+     *
+     * @param docIDs doc IDs to retract
+     * @return result of the delete
+     * @throws LRException NOT_CONFIGURED, or UNKNOWN if interrupted
+     */
+    public LRBulkDeleteResult delete(Iterable<String> docIDs) throws LRException
+    {
+        return delete(docIDs.iterator());
+    }
+
+    /**
+     * Retract every document from a stream of doc IDs
+     * IDs are consumed as tombstones are sent, so the iterator may be backed by a large or lazy source
+     *
+     * @param docIDs doc IDs to retract
+     * @return result of the delete
+     * @throws LRException NOT_CONFIGURED, or UNKNOWN if interrupted
+     */
+    public LRBulkDeleteResult delete(Iterator<String> docIDs) throws LRException
+    {
+        int maxBatchSize = Math.max(exporter.getBatchSize(), 1);
+        LRIngestProgress progress = new LRIngestProgress();
+        LRBulkDeleteResult result = new LRBulkDeleteResult(progress);
+
+        if (!exporter.isConfigured())
+        {
+            throw new LRException(LRException.NOT_CONFIGURED);
+        }
+
+        ExecutorService pool = (executor != null) ? executor : LRExecution.newExecutor("LRBulkDelete", threads);
+        int permits = maxBatchSize * threads * 2;
+        Semaphore inFlight = new Semaphore(permits);
+        Batcher batcher = new Batcher(maxBatchSize, progress, result, inFlight);
+        LRTaskTracker tracker = new LRTaskTracker();
+
+        long lastReport = System.currentTimeMillis();
+
+        try
+        {
+            while (docIDs.hasNext())
+            {
+                String docID = StringUtil.nullifyBadInput(docIDs.next());
+                if (docID == null)
+                {
+                    continue;
+                }
+
+                progress.recordsRead.incrementAndGet();
+
+                inFlight.acquire();
+                tracker.start();
+                try
+                {
+                    pool.execute(new SignTask(docID, batcher, progress, result, inFlight, tracker));
+                }
+                catch (RuntimeException e)
+                {
+                    tracker.finish();
+                    inFlight.release();
+                    progress.fail(1, new LRException(LRException.UNKNOWN));
+                    result.fail(docID, e.toString());
+                }
+
+                if (listener != null && System.currentTimeMillis() - lastReport >= progressInterval)
+                {
+                    listener.progress(progress);
+                    lastReport = System.currentTimeMillis();
+                }
+            }
+
+            // Wait for every signing task, then send whatever is left in the last batch
+            tracker.await();
+            batcher.flush();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.UNKNOWN);
+        }
+        finally
+        {
+            if (executor == null)
+            {
+                pool.shutdown();
+            }
+            progress.finish();
+        }
+
+        if (listener != null)
+        {
+            listener.progress(progress);
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the number of worker threads used when no executor is provided
+     * In the virtual mode of LRExecution each task gets its own virtual thread, and the number only sizes the
+     * documents held in memory at once.
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets an executor to run signing and publishing on, instead of a pool owned by the delete
+     * The executor is not shut down after deleting
+     *
+     * @param executor executor to use, or null for an owned pool
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the smallest batch the adaptive batching may shrink to (default 1)
+     *
+     * @param minBatchSize smallest batch size
+     */
+    public void setMinBatchSize(int minBatchSize)
+    {
+        this.minBatchSize = Math.max(minBatchSize, 1);
+    }
+
+    /**
+     * Sets the publish latency above which batches are made smaller (default 5 seconds)
+     *
+     * @param targetLatency latency in milliseconds
+     */
+    public void setTargetLatency(long targetLatency)
+    {
+        this.targetLatency = targetLatency;
+    }
+
+    /**
+     * Sets a listener for periodic progress reports
+     *
+     * @param listener listener to report to
+     * @param intervalMillis minimum time between reports in milliseconds
+     */
+    public void setProgressListener(LRIngestProgress.Listener listener, long intervalMillis)
+    {
+        this.listener = listener;
+        this.progressInterval = intervalMillis;
+    }
+
+    /**
+     * A signed delete document and the doc ID it retracts
+     */
+    private static class Tombstone
+    {
+        final String docID;
+        final LRDelete envelope;
+
+        Tombstone(String docID, LRDelete envelope)
+        {
+            this.docID = docID;
+            this.envelope = envelope;
+        }
+    }
+
+    /**
+     * Creates and signs the delete document for a single doc ID
+     */
+    private class SignTask implements Runnable
+    {
+        private final String docID;
+        private final Batcher batcher;
+        private final LRIngestProgress progress;
+        private final LRBulkDeleteResult result;
+        private final Semaphore inFlight;
+        private final LRTaskTracker tracker;
+
+        SignTask(String docID, Batcher batcher, LRIngestProgress progress, LRBulkDeleteResult result, Semaphore inFlight, LRTaskTracker tracker)
+        {
+            this.docID = docID;
+            this.batcher = batcher;
+            this.progress = progress;
+            this.result = result;
+            this.inFlight = inFlight;
+            this.tracker = tracker;
+        }
+
+        public void run()
+        {
+            try
+            {
+                LRDelete tombstone = null;
+
+                try
+                {
+                    tombstone = new LRDelete(submitter, submitterType, submissionTOS, submissionAttribution, signerName, new String[] {docID});
+                    if (signer != null)
+                    {
+                        signer.sign(tombstone);
+                    }
+                    progress.documentsSigned.incrementAndGet();
+                }
+                catch (LRException e)
+                {
+                    progress.fail(1, e);
+                    result.fail(docID, e.getMessage());
+                    tombstone = null;
+                }
+                catch (RuntimeException e)
+                {
+                    progress.fail(1, new LRException(LRException.UNKNOWN));
+                    result.fail(docID, e.toString());
+                    tombstone = null;
+                }
+                finally
+                {
+                    if (tombstone == null)
+                    {
+                        inFlight.release();
+                    }
+                }
+
+                if (tombstone != null)
+                {
+                    batcher.add(new Tombstone(docID, tombstone));
+                }
+            }
+            finally
+            {
+                tracker.finish();
+            }
+        }
+    }
+
+    /**
+     * Collects signed tombstones into batches of the current adaptive size and sends them
+     */
+    private class Batcher
+    {
+        private final int maxBatchSize;
+        private final LRIngestProgress progress;
+        private final LRBulkDeleteResult result;
+        private final Semaphore inFlight;
+        private final AtomicInteger batchSize;
+        private List<Tombstone> pending = new ArrayList<Tombstone>();
+
+        Batcher(int maxBatchSize, LRIngestProgress progress, LRBulkDeleteResult result, Semaphore inFlight)
+        {
+            this.maxBatchSize = maxBatchSize;
+            this.progress = progress;
+            this.result = result;
+            this.inFlight = inFlight;
+            this.batchSize = new AtomicInteger(maxBatchSize);
+        }
+
+        void add(Tombstone tombstone)
+        {
+            List<Tombstone> full = null;
+
+            synchronized (this)
+            {
+                pending.add(tombstone);
+                if (pending.size() >= batchSize.get())
+                {
+                    full = pending;
+                    pending = new ArrayList<Tombstone>();
+                }
+            }
+
+            if (full != null)
+            {
+                sendAndRelease(full);
+            }
+        }
+
+        void flush()
+        {
+            List<Tombstone> rest;
+
+            synchronized (this)
+            {
+                rest = pending;
+                pending = new ArrayList<Tombstone>();
+            }
+
+            // The last batch may be larger than the current size if the size shrank while it was filling
+            for (int start = 0; start < rest.size(); start += maxBatchSize)
+            {
+                sendAndRelease(rest.subList(start, Math.min(start + maxBatchSize, rest.size())));
+            }
+        }
+
+        private void sendAndRelease(List<Tombstone> batch)
+        {
+            try
+            {
+                send(batch, sendRetries);
+            }
+            finally
+            {
+                inFlight.release(batch.size());
+            }
+        }
+
+        /**
+         * Send a batch, splitting it in two and retrying each half if the request fails
+         */
+        private void send(List<Tombstone> batch, int retries)
+        {
+            List<LRDelete> envelopes = new ArrayList<LRDelete>(batch.size());
+            for (Tombstone tombstone : batch)
+            {
+                envelopes.add(tombstone.envelope);
+            }
+
+            long start = System.currentTimeMillis();
+            List<LRResponse> responses;
+
+            try
+            {
+                responses = exporter.sendDocuments(envelopes);
+            }
+            catch (LRException e)
+            {
+                shrink(2);
+
+                if (retries > 0 && batch.size() > 1)
+                {
+                    int half = batch.size() / 2;
+                    send(batch.subList(0, half), retries - 1);
+                    send(batch.subList(half, batch.size()), retries - 1);
+                }
+                else if (retries > 0)
+                {
+                    send(batch, retries - 1);
+                }
+                else
+                {
+                    progress.fail(batch.size(), e);
+                    for (Tombstone tombstone : batch)
+                    {
+                        result.fail(tombstone.docID, e.getMessage());
+                    }
+                }
+                return;
+            }
+
+            adapt(System.currentTimeMillis() - start);
+            record(batch, responses);
+        }
+
+        /**
+         * Match the per-document outcomes of the responses to the doc IDs of the batch
+         */
+        private void record(List<Tombstone> batch, List<LRResponse> responses)
+        {
+            int index = 0;
+            long confirmed = 0;
+            String error = noResultError;
+
+            for (LRResponse response : responses)
+            {
+                progress.batchesSent.incrementAndGet();
+
+                if (!response.getBatchSuccess())
+                {
+                    error = response.getBatchResponse();
+                    continue;
+                }
+
+                List<String> failures = response.getResourceFailure();
+                int failure = 0;
+
+                for (Boolean outcome : response.getResourceOutcomes())
+                {
+                    if (index >= batch.size())
+                    {
+                        break;
+                    }
+
+                    Tombstone tombstone = batch.get(index++);
+                    if (outcome)
+                    {
+                        result.confirm(tombstone.docID);
+                        confirmed++;
+                    }
+                    else
+                    {
+                        result.fail(tombstone.docID, failures.get(failure++));
+                    }
+                }
+            }
+
+            // Anything the node did not report on is counted as failed
+            for (; index < batch.size(); index++)
+            {
+                result.fail(batch.get(index).docID, error);
+            }
+
+            progress.documentsPublished.addAndGet(confirmed);
+            if (confirmed < batch.size())
+            {
+                progress.fail(batch.size() - confirmed, new LRException(LRException.INVALID_RESPONSE));
+            }
+        }
+
+        /**
+         * Grow the batch size while the node keeps up, and shrink it when it slows down
+         */
+        private void adapt(long latency)
+        {
+            if (latency > targetLatency)
+            {
+                int size = batchSize.get();
+                batchSize.compareAndSet(size, Math.max(minBatchSize, size * 3 / 4));
+            }
+            else
+            {
+                int size = batchSize.get();
+                batchSize.compareAndSet(size, Math.min(maxBatchSize, size + Math.max(1, size / 10)));
+            }
+        }
+
+        private void shrink(int factor)
+        {
+            int size = batchSize.get();
+            batchSize.compareAndSet(size, Math.max(minBatchSize, size / factor));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+/**
+ * Result of a bulk delete, reporting which doc IDs the node confirmed as retracted
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRBulkDeleteResult
+{
+    private final LRIngestProgress progress;
+    private final List<String> confirmed = new ArrayList<String>();
+    private final Map<String, String> failed = new LinkedHashMap<String, String>();
+
+    LRBulkDeleteResult(LRIngestProgress progress)
+    {
+        this.progress = progress;
+    }
+
+    synchronized void confirm(String docID)
+    {
+        confirmed.add(docID);
+    }
+
+    synchronized void fail(String docID, String error)
+    {
+        failed.put(docID, error);
+    }
+
+    /**
+     * Get the doc IDs whose tombstones were accepted by the node
+     *
+     * @return list of confirmed doc IDs
+     */
+    public synchronized List<String> getConfirmed()
+    {
+        return new ArrayList<String>(confirmed);
+    }
+
+    /**
+     * Get the doc IDs that could not be retracted, with the reason for each
+     *
+     * @return map of doc ID to error message
+     */
+    public synchronized Map<String, String> getFailed()
+    {
+        return new LinkedHashMap<String, String>(failed);
+    }
+
+    /**
+     * Get the progress and throughput of the delete
+     *
+     * @return progress of the delete
+     */
+    public LRIngestProgress getProgress()
+    {
+        return progress;
+    }
+}
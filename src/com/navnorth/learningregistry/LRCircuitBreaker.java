@@ -0,0 +1,224 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Circuit breaker for the requests sent to one node
+ * The breaker counts requests and failures over a rolling window of one second buckets. When enough requests have
+ * been made and the failure rate reaches the threshold, the breaker opens and requests fail at once. After the open
+ * time a few probe requests are let through; if they all succeed the breaker closes, and if one fails the breaker
+ * opens again for twice as long, up to the longest open time.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRCircuitBreaker
+{
+    // States of the breaker
+    static final int CLOSED = 0;
+    static final int OPEN = 1;
+    static final int HALF_OPEN = 2;
+
+    // Outcomes of a request, for the failure rate
+    static final int IGNORED = 0;
+    static final int SUCCEEDED = 1;
+    static final int FAILED = 2;
+
+    private static final long bucketMillis = 1000;
+    private static final String[] stateNames = {"closed", "open", "half-open"};
+
+    private final String host;
+    private final double failureRate;
+    private final int minimumRequests;
+    private final long openTime;
+    private final long maxOpenTime;
+    private final int probes;
+
+    private final long[] bucketStarts;
+    private final int[] bucketRequests;
+    private final int[] bucketFailures;
+
+    // Guarded by this; the state is also read without the lock
+    private volatile int state = CLOSED;
+    private long openUntil;
+    private long currentOpenTime;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    LRCircuitBreaker(String host, LRClientPolicy policy)
+    {
+        this.host = host;
+        this.failureRate = policy.getCircuitFailureRate();
+        this.minimumRequests = policy.getCircuitMinimumRequests();
+        this.openTime = policy.getCircuitOpenTime();
+        this.maxOpenTime = Math.max(policy.getCircuitMaxOpenTime(), openTime);
+        this.probes = policy.getCircuitProbes();
+        this.currentOpenTime = openTime;
+
+        int buckets = (int) Math.max((policy.getCircuitWindow() + bucketMillis - 1) / bucketMillis, 1);
+        this.bucketStarts = new long[buckets];
+        this.bucketRequests = new int[buckets];
+        this.bucketFailures = new int[buckets];
+    }
+
+    /**
+     * Get permission to send a request to the node
+     *
+     * @return true if the request is a probe of a half-open breaker
+     * @throws LRException CIRCUIT_OPEN if the breaker is open, or half-open with all its probes in flight
+     */
+    synchronized boolean acquire() throws LRException
+    {
+        if (state == CLOSED)
+        {
+            return false;
+        }
+
+        if (state == OPEN && System.currentTimeMillis() >= openUntil)
+        {
+            transition(HALF_OPEN);
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == HALF_OPEN && probesInFlight + probeSuccesses < probes)
+        {
+            probesInFlight++;
+            return true;
+        }
+
+        LRInstrumentation.getMetrics().increment(LRInstrumentation.clientCircuitRejected, 1);
+        throw new LRException(LRException.CIRCUIT_OPEN);
+    }
+
+    /**
+     * Record the outcome of a request allowed by acquire()
+     *
+     * @param probe value returned by acquire()
+     * @param outcome SUCCEEDED, FAILED (no response, a timeout or a server error) or IGNORED
+     */
+    synchronized void release(boolean probe, int outcome)
+    {
+        if (probe)
+        {
+            if (state != HALF_OPEN)
+            {
+                // Another probe has already decided
+                return;
+            }
+            probesInFlight--;
+            if (outcome == FAILED)
+            {
+                currentOpenTime = Math.min(currentOpenTime * 2, maxOpenTime);
+                open();
+            }
+            else if (outcome == SUCCEEDED && ++probeSuccesses >= probes)
+            {
+                currentOpenTime = openTime;
+                reset();
+                transition(CLOSED);
+            }
+            return;
+        }
+
+        if (outcome == IGNORED || state != CLOSED)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long start = now - now % bucketMillis;
+        int bucket = (int) ((now / bucketMillis) % bucketStarts.length);
+        if (bucketStarts[bucket] != start)
+        {
+            bucketStarts[bucket] = start;
+            bucketRequests[bucket] = 0;
+            bucketFailures[bucket] = 0;
+        }
+        bucketRequests[bucket]++;
+        if (outcome != FAILED)
+        {
+            return;
+        }
+        bucketFailures[bucket]++;
+
+        long oldest = start - (bucketStarts.length - 1) * bucketMillis;
+        int requests = 0;
+        int failures = 0;
+        for (int i = 0; i < bucketStarts.length; i++)
+        {
+            if (bucketStarts[i] >= oldest)
+            {
+                requests += bucketRequests[i];
+                failures += bucketFailures[i];
+            }
+        }
+        if (requests >= minimumRequests && failures >= failureRate * requests)
+        {
+            open();
+        }
+    }
+
+    /**
+     * @return CLOSED, OPEN or HALF_OPEN
+     */
+    int getState()
+    {
+        return state;
+    }
+
+    private void open()
+    {
+        openUntil = System.currentTimeMillis() + currentOpenTime;
+        reset();
+        transition(OPEN);
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < bucketStarts.length; i++)
+        {
+            bucketStarts[i] = 0;
+            bucketRequests[i] = 0;
+            bucketFailures[i] = 0;
+        }
+    }
+
+    private void transition(int newState)
+    {
+        int oldState = state;
+        state = newState;
+
+        String metric = (newState == OPEN) ? LRInstrumentation.clientCircuitOpened
+            : (newState == HALF_OPEN) ? LRInstrumentation.clientCircuitHalfOpened
+            : LRInstrumentation.clientCircuitClosed;
+        LRInstrumentation.getMetrics().increment(metric, 1);
+
+        LRFlightRecorder.CircuitBreaker event = new LRFlightRecorder.CircuitBreaker();
+        if (event.shouldCommit())
+        {
+            event.host = host;
+            event.from = stateNames[oldState];
+            event.to = stateNames[newState];
+            event.openTime = (newState == OPEN) ? currentOpenTime : 0;
+            event.commit();
+        }
+    }
+}
@@ -15,15 +15,32 @@ package com.navnorth.learningregistry;
 
 import com.navnorth.learningregistry.util.SelfSignSSLSocketFactory;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URL;
 import java.security.KeyStore;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpVersion;
 import org.apache.http.NameValuePair;
@@ -31,14 +48,18 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.HTTP;
@@ -48,6 +69,12 @@ import org.apache.http.message.BasicHeader;
 
 /**
  * Client for sending data to Learning Registry nodes
+ * Every request is bounded by the installed LRClientPolicy: connect and read timeouts, a deadline for the whole
+ * request, and a maximum response size. Connections are pooled and shared by all threads.
+ * Compressed responses are requested and decoded transparently; publish bodies may be sent gzip compressed to
+ * nodes that accept them. Requests to a node can be held to a rate and an adaptive concurrency limit, shared by
+ * every importer and exporter in the JVM. Each node has a circuit breaker, so requests to a node that keeps failing
+ * fail at once until probes find it has recovered.
  *
  * @version 0.1.1
  * @since 2011-12-06
@@ -62,168 +89,835 @@ import org.apache.http.message.BasicHeader;
 public class LRClient {
 
     // milliseconds
-    public static final int HTTP_TIMEOUT = 30 * 1000;    
-    
-    public static HttpClient getHttpClient(String scheme) {
-        
-        // TODO: this allows for self-signed certificates, which should just be an option, not used by default.
-        if (scheme.equals("https")) {
-            try {
-                KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
-                trustStore.load(null, null);
-                SSLSocketFactory sf = new SelfSignSSLSocketFactory(trustStore);
-                sf.setHostnameVerifier(SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
-                HttpParams params = new BasicHttpParams();
-                HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
-                HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
-                SchemeRegistry registry = new SchemeRegistry();
-                registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
-                registry.register(new Scheme("https", sf, 443));
-                ClientConnectionManager ccm = new ThreadSafeClientConnManager(params, registry);
-                return new DefaultHttpClient(ccm, params);
-            }
-            catch (Exception e) {
-                return new DefaultHttpClient();
-            }
-        } else {
-            return new DefaultHttpClient();
-        }
-    }
-    
-    
-    public static String executeHttpPost(String url, ArrayList postParameters) throws Exception {
-        BufferedReader in = null;
-        
+    public static final int HTTP_TIMEOUT = 30 * 1000;
+
+    private static final int readBufferSize = 8192;
+    private static final String defaultCharset = "UTF-8";
+    private static final String acceptEncoding = "gzip, deflate";
+
+    // Nodes that do not accept compressed request bodies, by node host
+    private static final ConcurrentHashMap<String, Boolean> uncompressedHosts = new ConcurrentHashMap<String, Boolean>();
+
+    // Rate and concurrency limits by node host, and their state
+    private static final ConcurrentHashMap<String, LRNodeLimit> nodeLimits = new ConcurrentHashMap<String, LRNodeLimit>();
+    private static final ConcurrentHashMap<String, LRNodeThrottle> throttles = new ConcurrentHashMap<String, LRNodeThrottle>();
+    private static volatile LRNodeLimit defaultNodeLimit;
+
+    // Circuit breakers by node host, under the current policy
+    private static final ConcurrentHashMap<String, LRCircuitBreaker> breakers = new ConcurrentHashMap<String, LRCircuitBreaker>();
+
+    // Longest pause honoured from a Retry-After header, in seconds
+    private static final long maxRetryAfter = 5 * 60;
+
+    private static volatile LRClientPolicy policy = new LRClientPolicy();
+    private static volatile HttpClient sharedClient;
+
+    // Guards replacing the shared client
+    private static final ReentrantLock clientLock = new ReentrantLock();
+
+    // Requests of the cancellable task each thread is running, so that cancelling the task can abort them
+    private static final ThreadLocal<RequestAborter> aborters = new ThreadLocal<RequestAborter>();
+
+    // Aborts requests that are still running at their deadline
+    private static final ScheduledThreadPoolExecutor deadlines = createDeadlineExecutor();
+
+    /**
+     * Install the policy applied to every request
+     * Requests already in progress keep the policy they started with. Circuit breakers start again closed.
+     *
+     * @param newPolicy policy to apply
+     */
+    public static void setPolicy(LRClientPolicy newPolicy) {
+        clientLock.lock();
         try {
-            URI uri = URIfromURLString(url);
-            HttpClient client = getHttpClient(uri.getScheme());
-            HttpPost request = new HttpPost(uri);
-            
-            UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(postParameters);
-            request.setEntity(formEntity);
-            HttpResponse response = client.execute(request);
-            in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-            StringBuffer sb = new StringBuffer("");
-            String line = "";
-            String NL = System.getProperty("line.separator");
-            while ((line = in.readLine()) != null) {
-                sb.append(line + NL);
+            policy = new LRClientPolicy(newPolicy);
+            breakers.clear();
+
+            HttpClient old = sharedClient;
+            sharedClient = null;
+            if (old != null) {
+                old.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
             }
-            in.close();
-            String result = sb.toString();
-            return result;
         }
         finally {
-            if (in != null) {
-                try {
-                    in.close();
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
-                }
+            clientLock.unlock();
+        }
+    }
+
+    /**
+     * Get a copy of the policy applied to every request
+     *
+     * @return current policy
+     */
+    public static LRClientPolicy getPolicy() {
+        return new LRClientPolicy(policy);
+    }
+
+    /**
+     * Install the limits for requests to a node
+     * Requests already waiting or in progress keep the limits they started with.
+     *
+     * @param nodeHost IP/domain of the node, with the port if the node is not on the default port
+     * @param limit limits to apply, or null to fall back to the default limits
+     */
+    public static void setNodeLimit(String nodeHost, LRNodeLimit limit) {
+        nodeHost = nodeHost.trim();
+        if (limit != null) {
+            nodeLimits.put(nodeHost, new LRNodeLimit(limit));
+        }
+        else {
+            nodeLimits.remove(nodeHost);
+        }
+        throttles.remove(nodeHost);
+    }
+
+    /**
+     * Install the limits for requests to nodes without limits of their own
+     * Each node gets its own rate and concurrency limit under these settings.
+     *
+     * @param limit limits to apply, or null for no limits
+     */
+    public static void setDefaultNodeLimit(LRNodeLimit limit) {
+        defaultNodeLimit = (limit != null) ? new LRNodeLimit(limit) : null;
+        throttles.clear();
+    }
+
+    /**
+     * Get the current concurrency limit for a node, which adapts to the latency of the node
+     *
+     * @param nodeHost IP/domain of the node, with the port if the node is not on the default port
+     * @return concurrency limit, or 0 if requests to the node are not limited by concurrency
+     */
+    public static int getNodeConcurrencyLimit(String nodeHost) {
+        LRNodeThrottle throttle = throttles.get(nodeHost.trim());
+        return (throttle != null) ? throttle.getConcurrencyLimit() : 0;
+    }
+
+    /**
+     * Find whether requests to a node are failing fast because its circuit breaker is open
+     *
+     * @param nodeHost IP/domain of the node, with the port if the node is not on the default port
+     * @return true if the breaker of the node is open or half-open
+     */
+    public static boolean isNodeCircuitOpen(String nodeHost) {
+        LRCircuitBreaker breaker = breakers.get(nodeHost.trim());
+        return breaker != null && breaker.getState() != LRCircuitBreaker.CLOSED;
+    }
+
+    private static String getNodeHost(URI uri) {
+        return (uri.getPort() == -1) ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static LRCircuitBreaker getBreaker(URI uri, LRClientPolicy clientPolicy) {
+        if (!clientPolicy.isCircuitBreaker()) {
+            return null;
+        }
+
+        String host = getNodeHost(uri);
+        LRCircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            breaker = new LRCircuitBreaker(host, clientPolicy);
+            LRCircuitBreaker existing = breakers.putIfAbsent(host, breaker);
+            if (existing != null) {
+                breaker = existing;
             }
         }
+        return breaker;
     }
-    
-    public static String executeHttpGet(String url) throws Exception {
-        BufferedReader in = null;
-        try {
-            URI uri = URIfromURLString(url);
-            HttpClient client = getHttpClient(uri.getScheme());
-            HttpGet request = new HttpGet(uri);
 
-            HttpResponse response = client.execute(request);
-            in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-            StringBuffer sb = new StringBuffer("");
-            String line = "";
-            String NL = System.getProperty("line.separator");
-            while ((line = in.readLine()) != null) {
-                sb.append(line + NL);
+    private static LRNodeThrottle getThrottle(URI uri) {
+        if (defaultNodeLimit == null && nodeLimits.isEmpty()) {
+            return null;
+        }
+
+        String host = getNodeHost(uri);
+        LRNodeThrottle throttle = throttles.get(host);
+        if (throttle == null) {
+            LRNodeLimit limit = nodeLimits.get(host);
+            if (limit == null) {
+                limit = defaultNodeLimit;
+            }
+            if (limit == null) {
+                return null;
+            }
+            throttle = new LRNodeThrottle(limit);
+            LRNodeThrottle existing = throttles.putIfAbsent(host, throttle);
+            if (existing != null) {
+                throttle = existing;
             }
-            in.close();
-            String result = sb.toString();
-            return result;
         }
-        finally {
-            if (in != null) {
-                try {
-                    in.close();
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
+        return throttle;
+    }
+
+    /**
+     * Set the aborter of the task the current thread runs, to which the requests the thread executes are registered
+     * Blocking socket reads do not end when the thread is interrupted, so a cancelled task aborts its request too.
+     *
+     * @param aborter aborter of the task, or null when the thread stops running it
+     * @return aborter set before, to be set again when the task ends
+     */
+    static RequestAborter setRequestAborter(RequestAborter aborter) {
+        RequestAborter previous = aborters.get();
+        if (aborter != null) {
+            aborters.set(aborter);
+        }
+        else {
+            aborters.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Get the shared client, configured by the current policy
+     *
+     * @param scheme scheme of the request ("http" or "https")
+     * @return shared client
+     */
+    public static HttpClient getHttpClient(String scheme) {
+        HttpClient client = sharedClient;
+        if (client == null) {
+            clientLock.lock();
+            try {
+                client = sharedClient;
+                if (client == null) {
+                    client = createHttpClient(policy);
+                    sharedClient = client;
                 }
             }
+            finally {
+                clientLock.unlock();
+            }
         }
+        return client;
     }
-    
+
+    private static HttpClient createHttpClient(LRClientPolicy clientPolicy) {
+        HttpParams params = new BasicHttpParams();
+        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+        // The connection timeout also bounds the wait for a pooled connection
+        HttpConnectionParams.setConnectionTimeout(params, clientPolicy.getConnectTimeout());
+        HttpConnectionParams.setSoTimeout(params, clientPolicy.getReadTimeout());
+
+        SchemeRegistry registry = new SchemeRegistry();
+        registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+
+        // TODO: this allows for self-signed certificates, which should just be an option, not used by default.
+        try {
+            KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            trustStore.load(null, null);
+            SSLSocketFactory sf = new SelfSignSSLSocketFactory(trustStore);
+            sf.setHostnameVerifier(SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+            registry.register(new Scheme("https", sf, 443));
+        }
+        catch (Exception e) {
+            registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+        }
+
+        ThreadSafeClientConnManager ccm = new ThreadSafeClientConnManager(registry);
+        ccm.setMaxTotal(clientPolicy.getMaxConnections());
+        ccm.setDefaultMaxPerRoute(clientPolicy.getMaxConnectionsPerHost());
+        return new DefaultHttpClient(ccm, params);
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "LRClient request deadlines");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    public static String executeHttpPost(String url, ArrayList postParameters) throws Exception {
+        URI uri = URIfromURLString(url);
+        HttpPost request = new HttpPost(uri);
+
+        UrlEncodedFormEntity formEntity = new UrlEncodedFormEntity(postParameters);
+        request.setEntity(formEntity);
+
+        return getText(execute(request));
+    }
+
+    public static String executeHttpGet(String url) throws Exception {
+        URI uri = URIfromURLString(url);
+        HttpGet request = new HttpGet(uri);
+
+        return getText(execute(request));
+    }
+
     public static String executeJsonGet(String url) throws Exception {
-        BufferedReader in = null;
+        return getText(executeGet(url));
+    }
+
+    /**
+     * Get a URL, keeping the status of the response
+     *
+     * @param url URL to get
+     * @return response, with its body buffered in memory
+     */
+    static HttpResponse executeGet(String url) throws Exception {
+        return executeGet(url, null);
+    }
+
+    /**
+     * Get a URL with extra request headers, such as the validators of a conditional request
+     *
+     * @param url URL to get
+     * @param headers headers to send, or null
+     * @return response, with its body buffered in memory
+     */
+    static HttpResponse executeGet(String url, Header[] headers) throws Exception {
+        HttpGet request = createGet(url);
+        if (headers != null) {
+            request.setHeaders(headers);
+        }
+        return execute(request);
+    }
+
+    /**
+     * Create a GET request that can be executed, and aborted from another thread
+     *
+     * @param url URL to get
+     * @return the request
+     */
+    static HttpGet createGet(String url) throws Exception {
+        return new HttpGet(URIfromURLString(url));
+    }
+
+    /**
+     * Post JSON to a node
+     * The response body has already been read when this returns, so it can be consumed without a deadline.
+     * If the policy compresses requests, a body of at least the threshold size is sent gzip compressed. A node that
+     * refuses the encoding, answering 415 or a 400 that names the Content-Encoding, is sent the body again
+     * uncompressed and is remembered as not accepting compressed bodies. Any other 400 means the documents are bad and
+     * is returned as it is, since publishing is not idempotent.
+     *
+     * @param url URL to post to
+     * @param se JSON body
+     * @param username user for basic authentication, or null
+     * @param password password for basic authentication, or null
+     * @return response of the node
+     */
+    public static HttpResponse executeJsonPost(String url, StringEntity se, String username, String password) throws Exception {
+        URI uri = URIfromURLString(url);
+        String host = getNodeHost(uri);
+
+        LRClientPolicy current = policy;
+        boolean compress = current.isCompressRequests()
+            && se.getContentLength() >= current.getRequestCompressionThreshold()
+            && !uncompressedHosts.containsKey(host);
+
+        if (compress) {
+            HttpResponse response = execute(createJsonPost(uri, gzip(se), username, password));
+            if (!isEncodingRefused(response)) {
+                return response;
+            }
+            uncompressedHosts.put(host, Boolean.TRUE);
+        }
+
+        return execute(createJsonPost(uri, se, username, password));
+    }
+
+    /**
+     * Check whether a node refused the Content-Encoding of a request body
+     */
+    private static boolean isEncodingRefused(HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        if (status == 415) {
+            return true;
+        }
+        if (status != 400) {
+            return false;
+        }
+        String body = getText(response).toLowerCase();
+        return body.contains("content-encoding") || body.contains("gzip");
+    }
+
+    private static HttpPost createJsonPost(URI uri, HttpEntity entity, String username, String password) {
+        HttpPost post = new HttpPost(uri);
+        post.setEntity(entity);
+        post.setHeader("Content-Type", "application/json");
+        if (username != null && password != null) {
+            String userPass = username + ":" + password;
+            byte[] encodedAuth = Base64.encodeBase64(userPass.getBytes());
+            String encodedAuthStr = new String(encodedAuth);
+            post.addHeader("Authorization", "Basic " + encodedAuthStr);
+        }
+        return post;
+    }
+
+    /**
+     * Compress a request body
+     * The body is compressed into memory rather than sent chunked, because the front ends of some nodes refuse
+     * request bodies without a Content-Length.
+     */
+    private static HttpEntity gzip(HttpEntity entity) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) Math.max(entity.getContentLength() / 4, readBufferSize));
+        GZIPOutputStream out = new GZIPOutputStream(compressed, readBufferSize);
+        entity.writeTo(out);
+        out.close();
+
+        ByteArrayEntity gzipped = new ByteArrayEntity(compressed.toByteArray());
+        gzipped.setContentType(entity.getContentType());
+        gzipped.setContentEncoding("gzip");
+        return gzipped;
+    }
+
+    /**
+     * Execute a request under the current policy, reading the whole response body before returning
+     *
+     * @param request request to execute
+     * @return response, with its body buffered and decoded in memory
+     * @throws LRException TIMEOUT if a timeout or the deadline passed, RESPONSE_TOO_LARGE if the body is over the limit,
+     *      THROTTLED if the limits of the node held the request back too long, CIRCUIT_OPEN if the circuit breaker
+     *      of the node is open
+     */
+    static HttpResponse execute(final HttpRequestBase request) throws Exception {
+        LRClientPolicy current = policy;
+        HttpClient client = getHttpClient(request.getURI().getScheme());
+        if (current.isAcceptCompressedResponses()) {
+            request.setHeader("Accept-Encoding", acceptEncoding);
+        }
+
+        LRCircuitBreaker breaker = getBreaker(request.getURI(), current);
+        boolean probe = (breaker != null) && breaker.acquire();
+
+        LRNodeThrottle throttle = getThrottle(request.getURI());
+        if (throttle != null) {
+            long waited;
+            try {
+                waited = throttle.acquire();
+            }
+            catch (LRException e) {
+                if (breaker != null) {
+                    breaker.release(probe, LRCircuitBreaker.IGNORED);
+                }
+                throw e;
+            }
+            if (waited > 0) {
+                LRInstrumentation.getMetrics().time(LRInstrumentation.clientThrottleWaitTime, waited);
+            }
+        }
+
+        long start = System.nanoTime();
+        long sent = 0;
+        long received = 0;
+        boolean failed = true;
+        int outcome = LRNodeThrottle.IGNORED;
+        int health = LRCircuitBreaker.IGNORED;
+
+        final AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = null;
+        if (current.getRequestDeadline() > 0) {
+            deadline = deadlines.schedule(new Runnable() {
+                public void run() {
+                    expired.set(true);
+                    request.abort();
+                }
+            }, current.getRequestDeadline(), TimeUnit.MILLISECONDS);
+        }
+
+        RequestAborter aborter = aborters.get();
+        if (aborter != null) {
+            aborter.register(request);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // Cancelled before the request could be aborted
+            request.abort();
+        }
+
         try {
-			URI uri = URIfromURLString(url);
-            HttpClient client = getHttpClient(uri.getScheme());
-            HttpGet request = new HttpGet(uri);
             HttpResponse response = client.execute(request);
-            in = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-            StringBuffer sb = new StringBuffer("");
-            String line = "";
-            String NL = System.getProperty("line.separator");
-            while ((line = in.readLine()) != null) {
-                sb.append(line + NL);
+            HttpEntity entity = response.getEntity();
+
+            if (entity != null) {
+                InputStream content = entity.getContent();
+                CountingInputStream wire = (content != null) ? new CountingInputStream(content) : null;
+                byte[] body = readEntity(request, decode(wire, entity.getContentEncoding()), entity.getContentLength(), current.getMaxResponseBytes());
+                received = (wire != null) ? wire.getCount() : 0;
+
+                ByteArrayEntity buffered = new BufferedEntity(body, received);
+                buffered.setContentType(entity.getContentType());
+                if (isDecoded(entity.getContentEncoding())) {
+                    response.removeHeaders("Content-Encoding");
+                }
+                else {
+                    buffered.setContentEncoding(entity.getContentEncoding());
+                }
+                response.setEntity(buffered);
+            }
+
+            failed = false;
+            if (throttle != null) {
+                outcome = getOutcome(throttle, response);
             }
-            in.close();
-            String result = sb.toString();
-            return result;
+            health = (response.getStatusLine().getStatusCode() < 500) ? LRCircuitBreaker.SUCCEEDED : LRCircuitBreaker.FAILED;
+            return response;
+        }
+        catch (LRException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            if (expired.get() || e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException || e instanceof ConnectionPoolTimeoutException) {
+                outcome = LRNodeThrottle.DROPPED;
+                health = LRCircuitBreaker.FAILED;
+                LRInstrumentation.getMetrics().increment(LRInstrumentation.clientRequestTimeouts, 1);
+                throw new LRException(LRException.TIMEOUT);
+            }
+            if (!request.isAborted()) {
+                // A request aborted by its caller says nothing about the node
+                health = LRCircuitBreaker.FAILED;
+            }
+            throw e;
         }
         finally {
-            if (in != null) {
+            if (aborter != null) {
+                aborter.unregister(request);
+            }
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            if (failed) {
+                // Release the connection of a response that was not read to the end
+                request.abort();
+            }
+            if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+                sent = ((HttpEntityEnclosingRequest) request).getEntity().getContentLength();
+            }
+            recordRequest(start, sent, received, failed);
+            if (throttle != null) {
+                throttle.release(System.nanoTime() - start, outcome);
+            }
+            if (breaker != null) {
+                breaker.release(probe, health);
+            }
+        }
+    }
+
+    /**
+     * Classify a response for the concurrency limit of its node, pausing the node if it asked for a pause
+     */
+    private static int getOutcome(LRNodeThrottle throttle, HttpResponse response) {
+        int status = response.getStatusLine().getStatusCode();
+        if (status == 429 || status == 503) {
+            LRInstrumentation.getMetrics().increment(LRInstrumentation.clientThrottled, 1);
+            Header retryAfter = response.getFirstHeader("Retry-After");
+            if (retryAfter != null) {
                 try {
-                    in.close();
+                    long seconds = Long.parseLong(retryAfter.getValue().trim());
+                    throttle.pause(Math.min(Math.max(seconds, 0), maxRetryAfter) * 1000);
                 }
-                catch (IOException e) {
-                    e.printStackTrace();
+                catch (NumberFormatException e) {
+                    // An HTTP date; the cut in the concurrency limit has to do
                 }
             }
+            return LRNodeThrottle.DROPPED;
         }
+        return (status < 500) ? LRNodeThrottle.SUCCEEDED : LRNodeThrottle.IGNORED;
     }
 
-    public static HttpResponse executeJsonPost(String url, StringEntity se, String username, String password) throws Exception {
-        BufferedReader in = null;
+    /**
+     * Wrap a response body in the decoder for its content encoding
+     *
+     * @param in body as received
+     * @param contentEncoding Content-Encoding header of the response, or null
+     * @return stream of the decoded body
+     */
+    private static InputStream decode(InputStream in, Header contentEncoding) throws IOException {
+        if (in == null || contentEncoding == null) {
+            return in;
+        }
+
+        String encoding = contentEncoding.getValue().trim();
+        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(in, readBufferSize);
+        }
+        if (encoding.equalsIgnoreCase("deflate")) {
+            // "deflate" should be zlib wrapped, but some servers send a raw deflate stream
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            byte[] header = new byte[2];
+            int n = pushback.read(header);
+            if (n > 0) {
+                pushback.unread(header, 0, n);
+            }
+            boolean zlib = n == 2 && (header[0] & 0x0F) == 8 && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+            return new InflaterInputStream(pushback, new Inflater(!zlib), readBufferSize);
+        }
+        return in;
+    }
+
+    private static boolean isDecoded(Header contentEncoding) {
+        if (contentEncoding == null) {
+            return false;
+        }
+        String encoding = contentEncoding.getValue().trim();
+        return encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip") || encoding.equalsIgnoreCase("deflate");
+    }
+
+    /**
+     * Read a response body, aborting the request if it is larger than allowed
+     *
+     * @param request request the response belongs to
+     * @param in decoded body of the response, or null if there is none
+     * @param contentLength length of the body as received, or -1 if unknown
+     * @param maxBytes largest decoded body allowed, or 0 for no limit
+     * @return bytes of the decoded body
+     * @throws LRException RESPONSE_TOO_LARGE if the body is over the limit
+     */
+    private static byte[] readEntity(HttpRequestBase request, InputStream in, long contentLength, long maxBytes) throws IOException, LRException {
+        if (maxBytes > 0 && contentLength > maxBytes) {
+            request.abort();
+            throw new LRException(LRException.RESPONSE_TOO_LARGE);
+        }
+
+        if (in == null) {
+            return new byte[0];
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : readBufferSize);
+        byte[] buffer = new byte[readBufferSize];
+        boolean complete = false;
+
         try {
-            URI uri = URIfromURLString(url);
-            HttpClient client = getHttpClient(uri.getScheme());
-            HttpPost post = new HttpPost(uri);
-            post.setEntity(se);
-            post.setHeader("Content-Type", "application/json");
-            if (username != null && password != null) {
-                String userPass = username + ":" + password;
-                byte[] encodedAuth = Base64.encodeBase64(userPass.getBytes());
-                String encodedAuthStr = new String(encodedAuth);
-                post.addHeader("Authorization", "Basic " + encodedAuthStr);
-            }
-            HttpResponse response = client.execute(post);
-            
-            return response;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+                if (maxBytes > 0 && body.size() > maxBytes) {
+                    throw new LRException(LRException.RESPONSE_TOO_LARGE);
+                }
+            }
+            complete = true;
         }
-		catch (Exception e)
-		{
-			throw(e);
-		}
         finally {
-            if (in != null) {
-                try {
-                    in.close();
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
-                }
+            if (complete) {
+                in.close();
+            }
+            else {
+                // Drop the connection rather than reading the rest of the body
+                request.abort();
+            }
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Decode the buffered body of a response as text
+     */
+    static String getText(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return "";
+        }
+
+        String charset = EntityUtils.getContentCharSet(entity);
+        return EntityUtils.toString(entity, charset != null ? charset : defaultCharset);
+    }
+
+    /**
+     * Report a request to the installed metrics
+     *
+     * @param start System.nanoTime() when the request started
+     * @param sent bytes in the request body
+     * @param received bytes in the response body
+     * @param failed true if the request did not complete
+     */
+    private static void recordRequest(long start, long sent, long received, boolean failed) {
+        LRMetrics metrics = LRInstrumentation.getMetrics();
+        metrics.time(LRInstrumentation.clientRequestTime, System.nanoTime() - start);
+        metrics.increment(LRInstrumentation.clientRequests, 1);
+        if (failed) {
+            metrics.increment(LRInstrumentation.clientRequestErrors, 1);
+        }
+        if (sent > 0) {
+            metrics.increment(LRInstrumentation.clientBytesSent, sent);
+        }
+        if (received > 0) {
+            metrics.increment(LRInstrumentation.clientBytesReceived, received);
+        }
+    }
+
+    /**
+     * Get the number of bytes of a response body as received, before decoding
+     *
+     * @param response response returned by this client
+     * @return bytes received, or 0 if the response has no body
+     */
+    static long getReceivedBytes(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity instanceof BufferedEntity) {
+            return ((BufferedEntity) entity).received;
+        }
+        return (entity != null) ? Math.max(entity.getContentLength(), 0) : 0;
+    }
+
+    /**
+     * @return true if the current thread runs a task that can be cancelled
+     */
+    static boolean hasRequestAborter() {
+        return aborters.get() != null;
+    }
+
+    /**
+     * Wait on a request shared with other tasks, whose aborter is aborted once no task waits on it any more
+     * A task of the current thread that is cancelled stops waiting instead of aborting the shared request.
+     *
+     * @param shared aborter of the shared request
+     * @return false if the shared request has already been aborted, true once the current thread waits on it
+     */
+    static boolean joinSharedRequest(RequestAborter shared) {
+        if (!shared.addWaiter()) {
+            return false;
+        }
+        RequestAborter aborter = aborters.get();
+        if (aborter != null) {
+            aborter.waitOn(shared);
+        }
+        return true;
+    }
+
+    /**
+     * Stop waiting on a shared request, aborting it if no other task waits on it
+     *
+     * @param shared aborter of the shared request
+     */
+    static void leaveSharedRequest(RequestAborter shared) {
+        RequestAborter aborter = aborters.get();
+        if (aborter == null || aborter.stopWaiting(shared)) {
+            shared.removeWaiter();
+        }
+    }
+
+    /**
+     * Aborts the request a task is executing when the task is cancelled
+     * It belongs to one task, so it never aborts a request that a thread executes for another task afterwards. The
+     * aborter of a request shared by several tasks counts the tasks waiting on it, and aborts once none is left.
+     */
+    static final class RequestAborter {
+        private HttpRequestBase request;
+        private boolean aborted;
+
+        // Shared request the task waits on, and the number of tasks waiting on this one if it is shared
+        private RequestAborter shared;
+        private int waiters;
+
+        /**
+         * Abort the request being executed, and any the task executes from now on
+         */
+        synchronized void abort() {
+            aborted = true;
+            if (request != null) {
+                request.abort();
+            }
+            if (shared != null) {
+                shared.removeWaiter();
+                shared = null;
+            }
+        }
+
+        private synchronized boolean addWaiter() {
+            if (aborted) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        private synchronized void removeWaiter() {
+            if (--waiters == 0) {
+                abort();
+            }
+        }
+
+        private synchronized void waitOn(RequestAborter request) {
+            if (aborted) {
+                request.removeWaiter();
+            }
+            else {
+                shared = request;
+            }
+        }
+
+        private synchronized boolean stopWaiting(RequestAborter request) {
+            if (shared != request) {
+                // Cancelled, which has stopped the wait already
+                return false;
+            }
+            shared = null;
+            return true;
+        }
+
+        private synchronized void register(HttpRequestBase request) {
+            this.request = request;
+            if (aborted) {
+                request.abort();
+            }
+        }
+
+        private synchronized void unregister(HttpRequestBase request) {
+            if (this.request == request) {
+                this.request = null;
             }
         }
     }
-	
+
+    /**
+     * Response body buffered in memory, keeping the number of bytes it took on the wire
+     */
+    private static final class BufferedEntity extends ByteArrayEntity {
+        private final long received;
+
+        BufferedEntity(byte[] body, long received) {
+            super(body);
+            this.received = received;
+        }
+    }
+
+    /**
+     * Counts the bytes of a response body as received, before decoding
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
 	private static URI URIfromURLString(String urlString) throws Exception
 	{
 		URL url = new URL(urlString);
-		URI uri = new URI(url.getProtocol(), url.getHost(), url.getPath(), url.getQuery(), null);
+		URI uri = new URI(url.getProtocol(), null, url.getHost(), url.getPort(), url.getPath(), url.getQuery(), null);
 		return uri;
 	}
 }
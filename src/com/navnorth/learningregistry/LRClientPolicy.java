@@ -0,0 +1,376 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Timeouts, size limits, connection pool sizes and circuit breakers applied to every request made by LRClient
+ * Install a policy with LRClient.setPolicy(); later changes to the policy object have no effect until it is installed again.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRClientPolicy
+{
+    private int connectTimeout = LRClient.HTTP_TIMEOUT;
+    private int readTimeout = LRClient.HTTP_TIMEOUT;
+    private long requestDeadline = 5 * 60 * 1000;
+    private long maxResponseBytes = 64L * 1024 * 1024;
+    private int maxConnectionsPerHost = 20;
+    private int maxConnections = 100;
+    private boolean acceptCompressedResponses = true;
+    private boolean compressRequests = false;
+    private int requestCompressionThreshold = 8 * 1024;
+    private boolean circuitBreaker = true;
+    private double circuitFailureRate = 0.5;
+    private int circuitMinimumRequests = 20;
+    private long circuitWindow = 10 * 1000;
+    private long circuitOpenTime = 5 * 1000;
+    private long circuitMaxOpenTime = 2 * 60 * 1000;
+    private int circuitProbes = 3;
+
+    /**
+     * Create a policy with the default values
+     */
+    public LRClientPolicy()
+    {
+    }
+
+    /**
+     * Create a copy of a policy
+     *
+     * @param policy policy to copy
+     */
+    public LRClientPolicy(LRClientPolicy policy)
+    {
+        this.connectTimeout = policy.connectTimeout;
+        this.readTimeout = policy.readTimeout;
+        this.requestDeadline = policy.requestDeadline;
+        this.maxResponseBytes = policy.maxResponseBytes;
+        this.maxConnectionsPerHost = policy.maxConnectionsPerHost;
+        this.maxConnections = policy.maxConnections;
+        this.acceptCompressedResponses = policy.acceptCompressedResponses;
+        this.compressRequests = policy.compressRequests;
+        this.requestCompressionThreshold = policy.requestCompressionThreshold;
+        this.circuitBreaker = policy.circuitBreaker;
+        this.circuitFailureRate = policy.circuitFailureRate;
+        this.circuitMinimumRequests = policy.circuitMinimumRequests;
+        this.circuitWindow = policy.circuitWindow;
+        this.circuitOpenTime = policy.circuitOpenTime;
+        this.circuitMaxOpenTime = policy.circuitMaxOpenTime;
+        this.circuitProbes = policy.circuitProbes;
+    }
+
+    /**
+     * @return time allowed to open a connection, and to wait for a pooled connection, in milliseconds
+     */
+    public int getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    /**
+     * Sets the time allowed to open a connection, and to wait for a pooled connection (default 30 seconds)
+     *
+     * @param connectTimeout timeout in milliseconds, or 0 for none
+     */
+    public void setConnectTimeout(int connectTimeout)
+    {
+        this.connectTimeout = Math.max(connectTimeout, 0);
+    }
+
+    /**
+     * @return longest time allowed between bytes of a response, in milliseconds
+     */
+    public int getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    /**
+     * Sets the longest time allowed between bytes of a response (default 30 seconds)
+     *
+     * @param readTimeout timeout in milliseconds, or 0 for none
+     */
+    public void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = Math.max(readTimeout, 0);
+    }
+
+    /**
+     * @return time allowed for a whole request, including reading the response, in milliseconds
+     */
+    public long getRequestDeadline()
+    {
+        return requestDeadline;
+    }
+
+    /**
+     * Sets the time allowed for a whole request, including reading the response (default 5 minutes)
+     * A request still running at the deadline is aborted, so a node that trickles data cannot hold a thread forever.
+     *
+     * @param requestDeadline deadline in milliseconds, or 0 for none
+     */
+    public void setRequestDeadline(long requestDeadline)
+    {
+        this.requestDeadline = Math.max(requestDeadline, 0);
+    }
+
+    /**
+     * @return largest response body read, in bytes
+     */
+    public long getMaxResponseBytes()
+    {
+        return maxResponseBytes;
+    }
+
+    /**
+     * Sets the largest response body read (default 64 MB); larger responses fail with RESPONSE_TOO_LARGE
+     *
+     * @param maxResponseBytes size in bytes, or 0 for no limit
+     */
+    public void setMaxResponseBytes(long maxResponseBytes)
+    {
+        this.maxResponseBytes = Math.max(maxResponseBytes, 0);
+    }
+
+    /**
+     * @return largest number of pooled connections to a single node
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Sets the largest number of pooled connections to a single node (default 20)
+     *
+     * @param maxConnectionsPerHost number of connections
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost)
+    {
+        this.maxConnectionsPerHost = Math.max(maxConnectionsPerHost, 1);
+    }
+
+    /**
+     * @return largest number of pooled connections to all nodes
+     */
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    /**
+     * Sets the largest number of pooled connections to all nodes (default 100)
+     *
+     * @param maxConnections number of connections
+     */
+    public void setMaxConnections(int maxConnections)
+    {
+        this.maxConnections = Math.max(maxConnections, 1);
+    }
+
+    /**
+     * @return true if nodes are asked for gzip or deflate responses
+     */
+    public boolean isAcceptCompressedResponses()
+    {
+        return acceptCompressedResponses;
+    }
+
+    /**
+     * Sets whether nodes are asked for gzip or deflate responses (default true)
+     * Compressed responses are decoded as they are read; the response size limit applies to the decoded body.
+     *
+     * @param acceptCompressedResponses true to send Accept-Encoding
+     */
+    public void setAcceptCompressedResponses(boolean acceptCompressedResponses)
+    {
+        this.acceptCompressedResponses = acceptCompressedResponses;
+    }
+
+    /**
+     * @return true if large publish bodies are sent gzip compressed
+     */
+    public boolean isCompressRequests()
+    {
+        return compressRequests;
+    }
+
+    /**
+     * Sets whether publish bodies of at least the threshold size are sent gzip compressed (default false)
+     * A node that rejects a compressed body is sent the body again uncompressed, and is not sent compressed bodies again.
+     *
+     * @param compressRequests true to compress request bodies
+     */
+    public void setCompressRequests(boolean compressRequests)
+    {
+        this.compressRequests = compressRequests;
+    }
+
+    /**
+     * @return smallest request body compressed, in bytes
+     */
+    public int getRequestCompressionThreshold()
+    {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Sets the smallest request body compressed (default 8 KB); smaller bodies gain little and are sent as they are
+     *
+     * @param requestCompressionThreshold size in bytes
+     */
+    public void setRequestCompressionThreshold(int requestCompressionThreshold)
+    {
+        this.requestCompressionThreshold = Math.max(requestCompressionThreshold, 0);
+    }
+
+    /**
+     * @return true if each node has a circuit breaker
+     */
+    public boolean isCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets whether each node has a circuit breaker (default true)
+     * The breaker of a node opens when too many requests to it fail, and requests then fail at once with
+     * CIRCUIT_OPEN instead of waiting for a connection that will not come. Failures are requests without a
+     * response, timeouts and server errors (5xx).
+     *
+     * @param circuitBreaker true to use circuit breakers
+     */
+    public void setCircuitBreaker(boolean circuitBreaker)
+    {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * @return share of failed requests that opens the breaker of a node
+     */
+    public double getCircuitFailureRate()
+    {
+        return circuitFailureRate;
+    }
+
+    /**
+     * Sets the share of failed requests within the window that opens the breaker of a node (default 0.5)
+     *
+     * @param circuitFailureRate share between 0 and 1
+     */
+    public void setCircuitFailureRate(double circuitFailureRate)
+    {
+        this.circuitFailureRate = Math.min(Math.max(circuitFailureRate, 0), 1);
+    }
+
+    /**
+     * @return fewest requests within the window before the breaker of a node can open
+     */
+    public int getCircuitMinimumRequests()
+    {
+        return circuitMinimumRequests;
+    }
+
+    /**
+     * Sets the fewest requests within the window before the breaker of a node can open (default 20)
+     *
+     * @param circuitMinimumRequests number of requests
+     */
+    public void setCircuitMinimumRequests(int circuitMinimumRequests)
+    {
+        this.circuitMinimumRequests = Math.max(circuitMinimumRequests, 1);
+    }
+
+    /**
+     * @return time over which the failure rate is measured, in milliseconds
+     */
+    public long getCircuitWindow()
+    {
+        return circuitWindow;
+    }
+
+    /**
+     * Sets the time over which the failure rate is measured (default 10 seconds), rounded up to whole seconds
+     *
+     * @param circuitWindow time in milliseconds
+     */
+    public void setCircuitWindow(long circuitWindow)
+    {
+        this.circuitWindow = Math.max(circuitWindow, 1000);
+    }
+
+    /**
+     * @return time an opened breaker fails requests before probing the node, in milliseconds
+     */
+    public long getCircuitOpenTime()
+    {
+        return circuitOpenTime;
+    }
+
+    /**
+     * Sets the time an opened breaker fails requests before probing the node (default 5 seconds)
+     * Each failed probe doubles the time, up to the longest open time.
+     *
+     * @param circuitOpenTime time in milliseconds
+     */
+    public void setCircuitOpenTime(long circuitOpenTime)
+    {
+        this.circuitOpenTime = Math.max(circuitOpenTime, 1);
+    }
+
+    /**
+     * @return longest time a breaker stays open between probes, in milliseconds
+     */
+    public long getCircuitMaxOpenTime()
+    {
+        return circuitMaxOpenTime;
+    }
+
+    /**
+     * Sets the longest time a breaker stays open between probes (default 2 minutes)
+     *
+     * @param circuitMaxOpenTime time in milliseconds
+     */
+    public void setCircuitMaxOpenTime(long circuitMaxOpenTime)
+    {
+        this.circuitMaxOpenTime = Math.max(circuitMaxOpenTime, 1);
+    }
+
+    /**
+     * @return number of probe requests that must succeed to close a half-open breaker
+     */
+    public int getCircuitProbes()
+    {
+        return circuitProbes;
+    }
+
+    /**
+     * Sets the number of probe requests let through a half-open breaker, all of which must succeed to close it
+     * (default 3)
+     *
+     * @param circuitProbes number of requests
+     */
+    public void setCircuitProbes(int circuitProbes)
+    {
+        this.circuitProbes = Math.max(circuitProbes, 1);
+    }
+}
@@ -44,8 +44,6 @@ public class LRDelete extends LREnvelope
     private static final DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
     private static final String payloadPlacementValue = "none";
 
-    String[] replaces;
-
     /**
      * Basic constructor to create a new delete doc, with no doc IDs specified
      *
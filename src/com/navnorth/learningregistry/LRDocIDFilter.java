@@ -0,0 +1,572 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filter of the JSON text of a result page, dropping the envelopes whose doc ID is already in an LRDocIDSet
+ * The text is scanned for the doc IDs without building the envelopes, and the arrays that lose entries are written
+ * again without them; the rest of the text is copied as it is. The page can then be parsed without the envelopes it
+ * drops. The doc IDs of the kept envelopes are only added to the set by commit(), once the page has been used, so a
+ * page that fails to parse or is never delivered drops nothing when it is fetched again; an envelope repeated within
+ * a page is kept once. The envelopes looked at are those of obtain documents, extract results, and harvest getrecord
+ * and listrecords records; entries without a doc ID are kept.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRDocIDFilter
+{
+    private static final String documentsField = "documents";
+    private static final String documentField = "document";
+    private static final String docIDField = "doc_ID";
+    private static final String getRecordField = "getrecord";
+    private static final String recordField = "record";
+    private static final String listRecordsField = "listrecords";
+
+    // Where the doc ID of an entry is, by kind of entry
+    private static final String[][] envelopePaths = {{"doc_ID"}};
+    private static final String[][] recordPaths = {{"header", "identifier"}, {"resource_data", "doc_ID"}};
+    private static final String[][] listRecordPaths = {{"record", "header", "identifier"},
+        {"record", "resource_data", "doc_ID"}};
+    private static final int maxPathLength = 3;
+
+    private final LRDocIDSet docIDSet;
+
+    // Doc IDs of the envelopes kept from the page, to be added to the set
+    private final Set<String> keptDocIDs = new LinkedHashSet<String>();
+
+    private String text;
+    private int pos;
+    private StringBuilder out;
+    private int copied;
+    private int dropped;
+
+    /**
+     * Create a filter
+     *
+     * @param docIDSet set of the doc IDs seen so far, to which the doc IDs of committed pages are added
+     */
+    LRDocIDFilter(LRDocIDSet docIDSet)
+    {
+        this.docIDSet = docIDSet;
+    }
+
+    /**
+     * Drop the envelopes of a page whose doc ID has been seen
+     *
+     * @param page JSON text of the page
+     * @return JSON text of the page without those envelopes, or the page itself if it has none
+     * @throws LRException JSON_IMPORT_FAILED if the page is not valid JSON
+     */
+    String filter(String page) throws LRException
+    {
+        text = page;
+        pos = 0;
+        out = null;
+        copied = 0;
+        keptDocIDs.clear();
+
+        skipWhitespace();
+        if (pos == text.length() || text.charAt(pos) != '{')
+        {
+            return page;
+        }
+        pos++;
+
+        String name;
+        while ((name = nextField()) != null)
+        {
+            char c = peek();
+
+            if (c == '[' && documentsField.equals(name))
+            {
+                filterDocuments();
+            }
+            else if (c == '[' && listRecordsField.equals(name))
+            {
+                filterArray(listRecordPaths);
+            }
+            else if (c == '{' && getRecordField.equals(name))
+            {
+                filterGetRecord();
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+
+        if (out == null)
+        {
+            return page;
+        }
+        out.append(text, copied, text.length());
+        return out.toString();
+    }
+
+    /**
+     * Add the doc IDs of the envelopes kept from the last page to the set
+     *
+     * @throws LRException WRITE_FAILED if the set cannot grow
+     */
+    void commit() throws LRException
+    {
+        for (String docID : keptDocIDs)
+        {
+            docIDSet.add(docID);
+        }
+        keptDocIDs.clear();
+    }
+
+    /**
+     * @return number of envelopes dropped by this filter so far
+     */
+    int getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * Filter the documents of an obtain or extract page
+     * An obtain document holds an array of envelopes, which is filtered; an extract document is itself an envelope.
+     */
+    private void filterDocuments() throws LRException
+    {
+        int start = pos++;
+        int rewritten = copied;
+        List<int[]> kept = new ArrayList<int[]>();
+        boolean removed = false;
+
+        while (nextElement())
+        {
+            int elementStart = pos;
+            String docID = null;
+            boolean obtained = false;
+
+            if (peek() == '{')
+            {
+                pos++;
+                String name;
+                while ((name = nextField()) != null)
+                {
+                    char c = peek();
+
+                    if (c == '[' && documentField.equals(name))
+                    {
+                        filterArray(envelopePaths);
+                        obtained = true;
+                    }
+                    else if (c == '"' && docIDField.equals(name))
+                    {
+                        docID = readString();
+                    }
+                    else
+                    {
+                        skipValue();
+                    }
+                }
+            }
+            else
+            {
+                skipValue();
+            }
+
+            // The doc ID of an obtain document is that of the request, which may be a resource locator
+            if (obtained || docID == null || keep(docID))
+            {
+                kept.add(new int[] {elementStart, pos});
+            }
+            else
+            {
+                removed = true;
+                dropped++;
+            }
+        }
+
+        // Entries are only dropped from documents without envelope arrays, so no rewrite lies within the kept entries
+        if (removed && copied == rewritten)
+        {
+            rewrite(start, pos, kept);
+        }
+    }
+
+    /**
+     * Check whether the envelope with a doc ID is kept, noting its doc ID for commit() if it is
+     */
+    private boolean keep(String docID)
+    {
+        return !docIDSet.contains(docID) && keptDocIDs.add(docID);
+    }
+
+    /**
+     * Filter the records of a getrecord page
+     */
+    private void filterGetRecord() throws LRException
+    {
+        pos++;
+        String name;
+        while ((name = nextField()) != null)
+        {
+            if (peek() == '[' && recordField.equals(name))
+            {
+                filterArray(recordPaths);
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Filter an array of entries whose doc IDs are at one of the paths
+     */
+    private void filterArray(String[][] paths) throws LRException
+    {
+        int start = pos++;
+        List<int[]> kept = new ArrayList<int[]>();
+        boolean removed = false;
+
+        while (nextElement())
+        {
+            int elementStart = pos;
+            String docID = null;
+
+            if (peek() == '{')
+            {
+                pos++;
+                docID = scanDocID(paths, new String[maxPathLength], 0);
+            }
+            else
+            {
+                skipValue();
+            }
+
+            if (docID == null || keep(docID))
+            {
+                kept.add(new int[] {elementStart, pos});
+            }
+            else
+            {
+                removed = true;
+                dropped++;
+            }
+        }
+
+        if (removed)
+        {
+            rewrite(start, pos, kept);
+        }
+    }
+
+    /**
+     * Read an object up to its end, returning the first string at one of the paths
+     *
+     * @param path names of the enclosing fields, within the entry
+     * @param depth number of enclosing fields
+     */
+    private String scanDocID(String[][] paths, String[] path, int depth) throws LRException
+    {
+        String docID = null;
+
+        while ((path[depth] = nextField()) != null)
+        {
+            char c = peek();
+            int match = match(paths, path, depth + 1);
+
+            if (c == '"' && match == 2)
+            {
+                String value = readString();
+                docID = (docID != null) ? docID : value;
+            }
+            else if (c == '{' && match == 1)
+            {
+                pos++;
+                String inner = scanDocID(paths, path, depth + 1);
+                docID = (docID != null) ? docID : inner;
+            }
+            else
+            {
+                skipValue();
+            }
+        }
+        return docID;
+    }
+
+    /**
+     * Match the fields leading to a value against the paths
+     *
+     * @return 2 if they are one of the paths, 1 if they lead into one, 0 otherwise
+     */
+    private static int match(String[][] paths, String[] path, int length)
+    {
+        int result = 0;
+        for (String[] candidate : paths)
+        {
+            if (candidate.length < length)
+            {
+                continue;
+            }
+            boolean prefix = true;
+            for (int i = 0; i < length && prefix; i++)
+            {
+                prefix = candidate[i].equals(path[i]);
+            }
+            if (prefix)
+            {
+                if (candidate.length == length)
+                {
+                    return 2;
+                }
+                result = 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace the text of an array with its kept entries
+     */
+    private void rewrite(int start, int end, List<int[]> kept)
+    {
+        if (out == null)
+        {
+            out = new StringBuilder(text.length());
+        }
+        out.append(text, copied, start);
+        out.append('[');
+        for (int i = 0; i < kept.size(); i++)
+        {
+            if (i > 0)
+            {
+                out.append(',');
+            }
+            out.append(text, kept.get(i)[0], kept.get(i)[1]);
+        }
+        out.append(']');
+        copied = end;
+    }
+
+    /**
+     * Move to the value of the next field of an object whose opening brace has been read
+     *
+     * @return name of the field, or null after the closing brace
+     */
+    private String nextField() throws LRException
+    {
+        skipWhitespace();
+        if (peek() == '}')
+        {
+            pos++;
+            return null;
+        }
+        if (peek() == ',')
+        {
+            pos++;
+            skipWhitespace();
+        }
+        String name = readString();
+        skipWhitespace();
+        if (peek() != ':')
+        {
+            throw new LRException(LRException.JSON_IMPORT_FAILED);
+        }
+        pos++;
+        skipWhitespace();
+        return name;
+    }
+
+    /**
+     * Move to the next element of an array whose opening bracket has been read
+     *
+     * @return false after the closing bracket
+     */
+    private boolean nextElement() throws LRException
+    {
+        skipWhitespace();
+        if (peek() == ']')
+        {
+            pos++;
+            return false;
+        }
+        if (peek() == ',')
+        {
+            pos++;
+            skipWhitespace();
+        }
+        return true;
+    }
+
+    /**
+     * Read a string, unescaping it
+     */
+    private String readString() throws LRException
+    {
+        if (peek() != '"')
+        {
+            throw new LRException(LRException.JSON_IMPORT_FAILED);
+        }
+        int start = ++pos;
+        StringBuilder value = null;
+
+        while (true)
+        {
+            char c = peek();
+            if (c == '"')
+            {
+                String result = (value == null) ? text.substring(start, pos) : value.toString();
+                pos++;
+                return result;
+            }
+            if (c != '\\')
+            {
+                if (value != null)
+                {
+                    value.append(c);
+                }
+                pos++;
+                continue;
+            }
+
+            if (value == null)
+            {
+                value = new StringBuilder(text.substring(start, pos));
+            }
+            pos++;
+            char escaped = peek();
+            pos++;
+            switch (escaped)
+            {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                    {
+                        throw new LRException(LRException.JSON_IMPORT_FAILED);
+                    }
+                    try
+                    {
+                        value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new LRException(LRException.JSON_IMPORT_FAILED);
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+
+    /**
+     * Move past a value of any kind
+     */
+    private void skipValue() throws LRException
+    {
+        char c = peek();
+        if (c == '"')
+        {
+            skipString();
+            return;
+        }
+        if (c != '{' && c != '[')
+        {
+            // Number or literal, which the parsing of the page checks
+            while (pos < text.length() && ",]} \t\r\n".indexOf(text.charAt(pos)) < 0)
+            {
+                pos++;
+            }
+            return;
+        }
+
+        int depth = 0;
+        do
+        {
+            c = peek();
+            if (c == '"')
+            {
+                skipString();
+                continue;
+            }
+            if (c == '{' || c == '[')
+            {
+                depth++;
+            }
+            else if (c == '}' || c == ']')
+            {
+                depth--;
+            }
+            pos++;
+        }
+        while (depth > 0);
+    }
+
+    /**
+     * Move past a string without unescaping it
+     */
+    private void skipString() throws LRException
+    {
+        pos++;
+        char c;
+        while ((c = peek()) != '"')
+        {
+            pos += (c == '\\') ? 2 : 1;
+        }
+        pos++;
+    }
+
+    private void skipWhitespace()
+    {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+        {
+            pos++;
+        }
+    }
+
+    private char peek() throws LRException
+    {
+        if (pos >= text.length())
+        {
+            throw new LRException(LRException.JSON_IMPORT_FAILED);
+        }
+        return text.charAt(pos);
+    }
+}
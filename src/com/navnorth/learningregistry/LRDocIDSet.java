@@ -0,0 +1,564 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Set of doc IDs kept outside the Java heap, for dropping envelopes already seen across the pages and runs of a harvest
+ * Each doc ID is stored as a 128-bit fingerprint, its MD5 hash, in an open-addressing hash table of 16 bytes a slot
+ * that doubles when it is 70% full, so a doc ID takes 23 to 46 bytes however long it is. The table is in direct
+ * memory, or in a memory-mapped file that keeps the set from one run to the next. Two doc IDs with the same
+ * fingerprint are taken to be the same, which for 128 bits is not expected to happen in any corpus.
+ * <br>
+ * An optional Bloom filter on the heap, of a few bits a doc ID, answers most lookups of doc IDs not in the set
+ * without touching the table, which for a large set in a file saves reading pages of it that are not in memory. An
+ * importer given a set with LRImporter.setDocIDSet() drops the envelopes of every page whose doc ID is already in it.
+ * A set may be used by several threads at once.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRDocIDSet implements Closeable
+{
+    // File layout: magic "LRD1" (int), version (int), capacity in slots (long), size (long), reserved, then the slots
+    private static final int fileMagic = 0x4C524431;
+    private static final int fileVersion = 1;
+    private static final int headerSize = 32;
+    private static final int capacityOffset = 8;
+    private static final int sizeOffset = 16;
+
+    private static final int slotSize = 16;
+    private static final int segmentShift = 26;
+    private static final long minCapacity = 1024;
+    private static final double maxLoad = 0.7;
+    private static final long maxBloomBits = 1L << 34;
+
+    private static final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>()
+    {
+        protected MessageDigest initialValue()
+        {
+            try
+            {
+                return MessageDigest.getInstance("MD5");
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final File file;
+
+    // Guarded by this
+    private Table table;
+    private long size;
+    private int bloomBitsPerDocID;
+    private long[] bloom;
+    private long bloomMask;
+    private int bloomHashes;
+    private boolean closed;
+
+    /**
+     * Create an empty set in direct memory
+     *
+     * @param expectedDocIDs number of doc IDs the set is sized for; it grows past this as needed
+     */
+    public LRDocIDSet(long expectedDocIDs)
+    {
+        this.file = null;
+        this.table = Table.allocate(capacityFor(expectedDocIDs));
+    }
+
+    /**
+     * Open the set in a file, or create it empty if the file does not exist
+     *
+     * @param file file of the set
+     * @param expectedDocIDs number of doc IDs a new set is sized for; it grows past this as needed
+     * @throws LRException INVALID_DOC_ID_SET if the file is not a doc ID set, or WRITE_FAILED if it cannot be mapped
+     */
+    public LRDocIDSet(File file, long expectedDocIDs) throws LRException
+    {
+        this.file = file;
+
+        if (file.exists() && file.length() > 0)
+        {
+            this.table = Table.open(file);
+            this.size = table.header.getLong(sizeOffset);
+            if (size < 0 || size > table.capacity)
+            {
+                throw new LRException(LRException.INVALID_DOC_ID_SET);
+            }
+        }
+        else
+        {
+            this.table = Table.create(file, capacityFor(expectedDocIDs));
+        }
+    }
+
+    /**
+     * Add a doc ID to the set
+     *
+     * @param docID doc ID to add
+     * @return true if the doc ID was not in the set
+     * @throws LRException WRITE_FAILED if the file of the set cannot be grown
+     * @throws IllegalStateException if the set is closed
+     */
+    public boolean add(String docID) throws LRException
+    {
+        byte[] digest = fingerprint(docID);
+        long hi = getLong(digest, 0);
+        long lo = getLong(digest, 8);
+        if (hi == 0 && lo == 0)
+        {
+            // The empty slot
+            lo = 1;
+        }
+
+        synchronized (this)
+        {
+            checkOpen();
+            if (bloom != null && !bloomContains(lo))
+            {
+                insert(hi, lo);
+                return true;
+            }
+            if (find(hi, lo) >= 0)
+            {
+                return false;
+            }
+            insert(hi, lo);
+            return true;
+        }
+    }
+
+    /**
+     * Check whether a doc ID is in the set
+     *
+     * @param docID doc ID to look for
+     * @return true if the doc ID is in the set
+     * @throws IllegalStateException if the set is closed
+     */
+    public boolean contains(String docID)
+    {
+        byte[] digest = fingerprint(docID);
+        long hi = getLong(digest, 0);
+        long lo = getLong(digest, 8);
+        if (hi == 0 && lo == 0)
+        {
+            lo = 1;
+        }
+
+        synchronized (this)
+        {
+            checkOpen();
+            if (bloom != null && !bloomContains(lo))
+            {
+                return false;
+            }
+            return find(hi, lo) >= 0;
+        }
+    }
+
+    /**
+     * @return number of doc IDs in the set
+     */
+    public synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return bytes of the hash table, outside the heap
+     */
+    public synchronized long getTableBytes()
+    {
+        checkOpen();
+        return table.capacity * slotSize;
+    }
+
+    /**
+     * Sets the Bloom filter checked before the table (default none)
+     * The filter is built from the doc IDs in the set, and is rebuilt each time the table grows. With 10 bits a doc ID,
+     * about one lookup in a hundred of a doc ID not in the set goes on to the table.
+     *
+     * @param bitsPerDocID bits of the filter for each doc ID the table can hold, or 0 for no filter
+     */
+    public synchronized void setBloomFilter(int bitsPerDocID)
+    {
+        checkOpen();
+        bloomBitsPerDocID = Math.max(bitsPerDocID, 0);
+        buildBloom();
+    }
+
+    /**
+     * Write the set to its file; a set in direct memory has nothing to write
+     */
+    public synchronized void flush()
+    {
+        checkOpen();
+        table.force();
+    }
+
+    /**
+     * Write the set to its file and release it
+     */
+    public synchronized void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        table.force();
+        table = null;
+        bloom = null;
+    }
+
+    /**
+     * Find the slot of a fingerprint
+     *
+     * @return the slot, or -1 if the fingerprint is not in the table
+     */
+    private long find(long hi, long lo)
+    {
+        long slot = hi & table.mask;
+        while (true)
+        {
+            long slotHi = table.getHi(slot);
+            long slotLo = table.getLo(slot);
+            if (slotHi == hi && slotLo == lo)
+            {
+                return slot;
+            }
+            if (slotHi == 0 && slotLo == 0)
+            {
+                return -1;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+    }
+
+    /**
+     * Insert a fingerprint known not to be in the table
+     */
+    private void insert(long hi, long lo) throws LRException
+    {
+        if (size + 1 > table.capacity * maxLoad)
+        {
+            grow();
+        }
+        put(table, hi, lo);
+        size++;
+        table.setSize(size);
+        if (bloom != null)
+        {
+            bloomAdd(lo);
+        }
+    }
+
+    private static void put(Table table, long hi, long lo)
+    {
+        long slot = hi & table.mask;
+        while (table.getHi(slot) != 0 || table.getLo(slot) != 0)
+        {
+            slot = (slot + 1) & table.mask;
+        }
+        table.put(slot, hi, lo);
+    }
+
+    /**
+     * Move the fingerprints to a table of twice the capacity
+     * A set in a file is rehashed into a new file, which then replaces the old one.
+     */
+    private void grow() throws LRException
+    {
+        long capacity = table.capacity * 2;
+        File growing = (file != null) ? new File(file.getPath() + ".grow") : null;
+        Table larger = (file != null) ? Table.create(growing, capacity) : Table.allocate(capacity);
+
+        for (long slot = 0; slot < table.capacity; slot++)
+        {
+            long hi = table.getHi(slot);
+            long lo = table.getLo(slot);
+            if (hi != 0 || lo != 0)
+            {
+                put(larger, hi, lo);
+            }
+        }
+        larger.setSize(size);
+
+        if (file != null)
+        {
+            larger.force();
+            if (!growing.renameTo(file))
+            {
+                growing.delete();
+                throw new LRException(LRException.WRITE_FAILED);
+            }
+        }
+        table = larger;
+        buildBloom();
+    }
+
+    private void buildBloom()
+    {
+        if (bloomBitsPerDocID == 0)
+        {
+            bloom = null;
+            return;
+        }
+
+        long bits = Long.highestOneBit(Math.max((long) (table.capacity * maxLoad * bloomBitsPerDocID), 64) * 2 - 1);
+        bloom = new long[(int) (Math.min(bits, maxBloomBits) >>> 6)];
+        bloomMask = ((long) bloom.length << 6) - 1;
+        bloomHashes = (int) Math.max(1, Math.min(16, Math.round(bloomBitsPerDocID * Math.log(2))));
+
+        for (long slot = 0; slot < table.capacity; slot++)
+        {
+            long hi = table.getHi(slot);
+            long lo = table.getLo(slot);
+            if (hi != 0 || lo != 0)
+            {
+                bloomAdd(lo);
+            }
+        }
+    }
+
+    // The bits of a fingerprint in the filter, by double hashing of its low half; the table uses the high half
+    private void bloomAdd(long lo)
+    {
+        long step = Long.rotateLeft(lo, 32) | 1;
+        for (int i = 0; i < bloomHashes; i++)
+        {
+            long bit = (lo + i * step) & bloomMask;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean bloomContains(long lo)
+    {
+        long step = Long.rotateLeft(lo, 32) | 1;
+        for (int i = 0; i < bloomHashes; i++)
+        {
+            long bit = (lo + i * step) & bloomMask;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The doc ID set is closed");
+        }
+    }
+
+    private static byte[] fingerprint(String docID)
+    {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        try
+        {
+            return digest.digest(docID.getBytes("UTF-8"));
+        }
+        catch (IOException e)
+        {
+            // Not reached; UTF-8 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset)
+    {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long capacityFor(long expectedDocIDs)
+    {
+        long needed = (long) Math.ceil(Math.max(expectedDocIDs, 1) / maxLoad);
+        return Math.max(minCapacity, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * Hash table of fingerprints, in buffers of at most 2^26 slots (1 GB) each, with the header of its file if it
+     * has one
+     */
+    private static final class Table
+    {
+        final long capacity;
+        final long mask;
+        final ByteBuffer[] segments;
+        final MappedByteBuffer header;
+
+        private Table(long capacity, ByteBuffer[] segments, MappedByteBuffer header)
+        {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.segments = segments;
+            this.header = header;
+        }
+
+        static Table allocate(long capacity)
+        {
+            int slots = (int) Math.min(capacity, 1L << segmentShift);
+            ByteBuffer[] segments = new ByteBuffer[(int) (capacity / slots)];
+            for (int i = 0; i < segments.length; i++)
+            {
+                segments[i] = ByteBuffer.allocateDirect(slots * slotSize);
+            }
+            return new Table(capacity, segments, null);
+        }
+
+        static Table create(File file, long capacity) throws LRException
+        {
+            try
+            {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try
+                {
+                    raf.setLength(0);
+                    raf.setLength(headerSize + capacity * slotSize);
+                    Table table = map(raf.getChannel(), capacity);
+                    table.header.putInt(0, fileMagic);
+                    table.header.putInt(4, fileVersion);
+                    table.header.putLong(capacityOffset, capacity);
+                    table.header.putLong(sizeOffset, 0);
+                    return table;
+                }
+                finally
+                {
+                    raf.close();
+                }
+            }
+            catch (IOException e)
+            {
+                throw new LRException(LRException.WRITE_FAILED);
+            }
+        }
+
+        static Table open(File file) throws LRException
+        {
+            try
+            {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try
+                {
+                    if (raf.length() < headerSize || raf.readInt() != fileMagic || raf.readInt() != fileVersion)
+                    {
+                        throw new LRException(LRException.INVALID_DOC_ID_SET);
+                    }
+                    long capacity = raf.readLong();
+                    if (capacity < minCapacity || Long.bitCount(capacity) != 1
+                        || raf.length() != headerSize + capacity * slotSize)
+                    {
+                        throw new LRException(LRException.INVALID_DOC_ID_SET);
+                    }
+                    return map(raf.getChannel(), capacity);
+                }
+                finally
+                {
+                    raf.close();
+                }
+            }
+            catch (IOException e)
+            {
+                throw new LRException(LRException.INVALID_DOC_ID_SET);
+            }
+        }
+
+        // The mappings stay valid once the channel is closed
+        private static Table map(FileChannel channel, long capacity) throws IOException
+        {
+            int slots = (int) Math.min(capacity, 1L << segmentShift);
+            long segmentBytes = (long) slots * slotSize;
+            ByteBuffer[] segments = new ByteBuffer[(int) (capacity / slots)];
+            for (int i = 0; i < segments.length; i++)
+            {
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + i * segmentBytes, segmentBytes);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+            return new Table(capacity, segments, header);
+        }
+
+        long getHi(long slot)
+        {
+            return segments[(int) (slot >>> segmentShift)].getLong(offset(slot));
+        }
+
+        long getLo(long slot)
+        {
+            return segments[(int) (slot >>> segmentShift)].getLong(offset(slot) + 8);
+        }
+
+        void put(long slot, long hi, long lo)
+        {
+            ByteBuffer segment = segments[(int) (slot >>> segmentShift)];
+            int offset = offset(slot);
+            segment.putLong(offset, hi);
+            segment.putLong(offset + 8, lo);
+        }
+
+        void setSize(long size)
+        {
+            if (header != null)
+            {
+                header.putLong(sizeOffset, size);
+            }
+        }
+
+        void force()
+        {
+            if (header == null)
+            {
+                return;
+            }
+            for (ByteBuffer segment : segments)
+            {
+                ((MappedByteBuffer) segment).force();
+            }
+            header.force();
+        }
+
+        private static int offset(long slot)
+        {
+            return (int) (slot & ((1L << segmentShift) - 1)) * slotSize;
+        }
+    }
+}
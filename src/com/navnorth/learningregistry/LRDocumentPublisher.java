@@ -0,0 +1,272 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Publisher of the envelopes of an importer request, page by page as subscribers ask for them
+ * Each subscription walks the pages of the request from the first, following resumption tokens. A page is fetched
+ * only once the envelopes already fetched are used up and the subscriber has asked for more, so at most one page is
+ * held for a slow subscriber. Pages are fetched on the threads of LRExecution; envelopes are delivered on the thread
+ * that fetched their page, or on the thread calling request(). Cancelling a subscription aborts the fetch in
+ * progress. A failed fetch is signalled with onError and its LRException. The doc IDs of a page are added to the doc
+ * ID set of the importer only once all its envelopes have been delivered.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRDocumentPublisher implements Flow.Publisher<JSONObject>
+{
+    private static final String resumptionTokenParam = "resumption_token";
+
+    private final LRImporter importer;
+    private final String path;
+    private final String resumptionPath;
+
+    /**
+     * Create a publisher
+     *
+     * @param importer importer to fetch the pages with
+     * @param path path of the first page
+     * @param resumptionPath path of later pages, to which the resumption token parameter is appended
+     */
+    LRDocumentPublisher(LRImporter importer, String path, String resumptionPath)
+    {
+        this.importer = importer;
+        this.path = path;
+        this.resumptionPath = resumptionPath;
+    }
+
+    public void subscribe(Flow.Subscriber<? super JSONObject> subscriber)
+    {
+        if (subscriber == null)
+        {
+            throw new NullPointerException("subscriber");
+        }
+        subscriber.onSubscribe(new Subscription(subscriber));
+    }
+
+    /**
+     * Get the path of the page after a result
+     *
+     * @return path of the next page, or null if the result is the last page
+     */
+    private String getNextPath(LRResult result)
+    {
+        String token = result.getResumptionToken();
+        if (token == null || token.length() == 0)
+        {
+            return null;
+        }
+        return resumptionPath + (resumptionPath.contains("?") ? "&" : "?") + resumptionTokenParam + "=" + token;
+    }
+
+    /**
+     * One walk through the pages, for one subscriber
+     * Signals to the subscriber are made only by the thread that wins the work counter in drain(), so they never
+     * overlap; the buffer and the fetch state are only touched by that thread.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable
+    {
+        private final Flow.Subscriber<? super JSONObject> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        // Path of the page being fetched, set by drain() before the fetch starts
+        private volatile String fetchPath;
+
+        // Set by the fetching thread and taken by drain()
+        private volatile List<JSONObject> fetched;
+        private volatile String fetchedNextPath;
+        private volatile LRDocIDFilter fetchedFilter;
+        private volatile Throwable failure;
+
+        // Aborts the request of a fetch in progress when the subscription is cancelled
+        private final LRClient.RequestAborter aborter = new LRClient.RequestAborter();
+
+        // Touched only in drain()
+        private final ArrayDeque<JSONObject> buffer = new ArrayDeque<JSONObject>();
+        private String nextPath = path;
+        private boolean lastPage;
+        private boolean fetching;
+
+        // Doc ID filter of the page in the buffer, committed once the page has been delivered
+        private LRDocIDFilter pageFilter;
+
+        Subscription(Flow.Subscriber<? super JSONObject> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                failure = new IllegalArgumentException("A subscriber must request a positive number of envelopes");
+            }
+            else
+            {
+                long current;
+                do
+                {
+                    current = demand.get();
+                    if (current == Long.MAX_VALUE)
+                    {
+                        break;
+                    }
+                }
+                while (!demand.compareAndSet(current, (current + n < 0) ? Long.MAX_VALUE : current + n));
+            }
+            drain();
+        }
+
+        public void cancel()
+        {
+            cancelled = true;
+            aborter.abort();
+            drain();
+        }
+
+        /**
+         * Fetch the next page, on a thread of LRExecution
+         */
+        public void run()
+        {
+            List<JSONObject> envelopes = Collections.emptyList();
+            fetchedNextPath = null;
+            fetchedFilter = null;
+            LRClient.RequestAborter previous = LRClient.setRequestAborter(aborter);
+            try
+            {
+                if (!cancelled)
+                {
+                    LRDocIDFilter[] filter = new LRDocIDFilter[1];
+                    LRResult result = importer.getPage(fetchPath, filter);
+                    fetchedNextPath = getNextPath(result);
+                    fetchedFilter = filter[0];
+                    envelopes = result.getEnvelopes();
+                }
+            }
+            catch (Throwable t)
+            {
+                if (!cancelled)
+                {
+                    failure = t;
+                }
+            }
+            finally
+            {
+                LRClient.setRequestAborter(previous);
+            }
+            fetched = envelopes;
+            drain();
+        }
+
+        private void drain()
+        {
+            if (work.getAndIncrement() != 0)
+            {
+                return;
+            }
+
+            int missed = 1;
+            while (true)
+            {
+                if (cancelled)
+                {
+                    buffer.clear();
+                    pageFilter = null;
+                }
+                else
+                {
+                    List<JSONObject> page = fetched;
+                    if (page != null)
+                    {
+                        fetched = null;
+                        fetching = false;
+                        buffer.addAll(page);
+                        nextPath = fetchedNextPath;
+                        pageFilter = fetchedFilter;
+                        lastPage = (nextPath == null);
+                    }
+
+                    long requested = demand.get();
+                    long emitted = 0;
+                    while (emitted < requested && !buffer.isEmpty() && !cancelled)
+                    {
+                        subscriber.onNext(buffer.poll());
+                        emitted++;
+                    }
+                    if (emitted > 0 && requested != Long.MAX_VALUE)
+                    {
+                        demand.addAndGet(-emitted);
+                    }
+                    if (pageFilter != null && buffer.isEmpty() && !cancelled)
+                    {
+                        try
+                        {
+                            pageFilter.commit();
+                        }
+                        catch (LRException e)
+                        {
+                            failure = e;
+                        }
+                        pageFilter = null;
+                    }
+
+                    Throwable error = failure;
+                    if (!cancelled && error != null && (buffer.isEmpty() || error instanceof IllegalArgumentException))
+                    {
+                        cancelled = true;
+                        buffer.clear();
+                        subscriber.onError(error);
+                    }
+                    else if (!cancelled && buffer.isEmpty() && !fetching && lastPage)
+                    {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                    else if (!cancelled && buffer.isEmpty() && !fetching && demand.get() > 0)
+                    {
+                        fetching = true;
+                        fetchPath = nextPath;
+                        LRExecution.getSharedExecutor().execute(this);
+                    }
+                }
+
+                missed = work.addAndGet(-missed);
+                if (missed == 0)
+                {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.StringUtil;
+
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.List;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+
+/**
+ * Template for turning a line of JSON (e.g. from an NDJSON file) into an envelope
+ * The envelope values are fixed by the template, while the resource locator, keys and resource data can be
+ * taken from fields of each line. Override toEnvelope() for mappings the template does not cover.
+ * A configured template may be shared between threads, and serves as the mapper of an LRPublishPipeline of lines.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRDocumentTemplate implements LRPublishPipeline.Mapper<String>
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> mapType = new TypeReference<Map<String, Object>>() {};
+
+    // Fixed envelope values
+    private String resourceDataType;
+    private String curator;
+    private String owner;
+    private String[] tags;
+    private String payloadPlacement;
+    private String payloadSchemaLocator;
+    private String[] payloadSchema;
+    private String submitter;
+    private String submitterType;
+    private String submissionTOS;
+    private String submissionAttribution;
+    private String signer;
+
+    // Names of the fields of each line used for per-document values
+    private String resourceLocatorField = "resource_locator";
+    private String resourceDataField = null;
+    private String keysField = null;
+
+    /**
+     * Create a new template with the specified envelope values
+     *
+     * @param resourceDataType value for "resource_data_type"
+     * @param payloadPlacement value for "payload_placement"
+     * @param payloadSchemaLocator value for "payload_schema_locator"
+     * @param payloadSchema value for "payload_schema"
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     */
+    public LRDocumentTemplate(String resourceDataType, String payloadPlacement, String payloadSchemaLocator, String[] payloadSchema,
+        String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer)
+    {
+        this.resourceDataType = resourceDataType;
+        this.payloadPlacement = payloadPlacement;
+        this.payloadSchemaLocator = payloadSchemaLocator;
+        this.payloadSchema = payloadSchema;
+        this.submitter = submitter;
+        this.submitterType = submitterType;
+        this.submissionTOS = submissionTOS;
+        this.submissionAttribution = submissionAttribution;
+        this.signer = signer;
+    }
+
+    /**
+     * Map a line of JSON to an envelope
+     *
+     * @param line JSON text of a single document
+     * @return envelope for the document
+     * @throws LRException INVALID_JSON if the line is not a JSON object, NO_LOCATOR if no resource locator is found, NO_DATA if no resource data is found
+     */
+    public LREnvelope toEnvelope(String line) throws LRException
+    {
+        Map<String, Object> json;
+
+        try
+        {
+            json = mapper.readValue(line, mapType);
+        }
+        catch (IOException e)
+        {
+            throw new LRException(LRException.INVALID_JSON);
+        }
+
+        if (json == null)
+        {
+            throw new LRException(LRException.INVALID_JSON);
+        }
+
+        Object locator = json.get(resourceLocatorField);
+        if (!(locator instanceof String) || StringUtil.nullifyBadInput((String) locator) == null)
+        {
+            throw new LRException(LRException.NO_LOCATOR);
+        }
+
+        Map<String, Object> resourceData = json;
+        if (resourceDataField != null)
+        {
+            Object data = json.get(resourceDataField);
+            if (!(data instanceof Map))
+            {
+                throw new LRException(LRException.NO_DATA);
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> dataMap = (Map<String, Object>) data;
+            resourceData = dataMap;
+        }
+
+        String[] documentTags = tags;
+        if (keysField != null && json.get(keysField) instanceof List)
+        {
+            List<?> keys = (List<?>) json.get(keysField);
+            documentTags = new String[keys.size() + (tags != null ? tags.length : 0)];
+            for (int i = 0; i < keys.size(); i++)
+            {
+                documentTags[i] = String.valueOf(keys.get(i));
+            }
+            if (tags != null)
+            {
+                System.arraycopy(tags, 0, documentTags, keys.size(), tags.length);
+            }
+        }
+
+        return new LRJSONDocument(resourceData, resourceDataType, (String) locator, curator, owner, documentTags,
+            payloadPlacement, payloadSchemaLocator, payloadSchema, submitter, submitterType, submissionTOS,
+            submissionAttribution, signer, null);
+    }
+
+    /**
+     * Sets the name of the field holding the resource locator of each document (default "resource_locator")
+     *
+     * @param resourceLocatorField field name
+     */
+    public void setResourceLocatorField(String resourceLocatorField)
+    {
+        this.resourceLocatorField = resourceLocatorField;
+    }
+
+    /**
+     * Sets the name of the field holding the resource data of each document
+     * If not set, the whole line is used as resource data
+     *
+     * @param resourceDataField field name, or null to use the whole line
+     */
+    public void setResourceDataField(String resourceDataField)
+    {
+        this.resourceDataField = resourceDataField;
+    }
+
+    /**
+     * Sets the name of the field holding an array of keys for each document, added to the fixed keys
+     *
+     * @param keysField field name, or null for fixed keys only
+     */
+    public void setKeysField(String keysField)
+    {
+        this.keysField = keysField;
+    }
+
+    /**
+     * Sets the fixed keys added to every document
+     *
+     * @param tags value for "keys"
+     */
+    public void setTags(String[] tags)
+    {
+        this.tags = tags;
+    }
+
+    /**
+     * Sets the curator of every document
+     *
+     * @param curator value for "curator"
+     */
+    public void setCurator(String curator)
+    {
+        this.curator = curator;
+    }
+
+    /**
+     * Sets the owner of every document
+     *
+     * @param owner value for "owner"
+     */
+    public void setOwner(String owner)
+    {
+        this.owner = owner;
+    }
+}
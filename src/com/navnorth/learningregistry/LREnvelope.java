@@ -160,6 +160,18 @@ public abstract class LREnvelope
         MapUtil.put(doc, resourceDataField, getEncodedResourceData());
         MapUtil.put(doc, replacesField, replaces);
 
+        putSigningData(doc);
+
+        return doc;
+    }
+
+    /**
+     * Adds the signing data of the envelope to its sendable data, if it has been signed
+     *
+     * @param doc sendable data of the envelope
+     */
+    protected final void putSigningData(Map<String, Object> doc)
+    {
         if (signed)
         {
             Map<String, Object> sig = new HashMap<String, Object>();
@@ -169,8 +181,6 @@ public abstract class LREnvelope
             MapUtil.put(sig, signatureField, clearSignedMessage);
             MapUtil.put(doc, digitalSignatureField, sig);
         }
-
-        return doc;
     }
 
     /**
@@ -52,6 +52,15 @@ public class LRException extends Exception
 	public static final int SIGNATURE_INVALID = 20;
 	public static final int MESSAGE_INVALID = 21;
 	public static final int INVALID_PUBLIC_KEY = 22;
+	public static final int READ_FAILED = 23;
+	public static final int TIMEOUT = 24;
+	public static final int RESPONSE_TOO_LARGE = 25;
+	public static final int NO_NODES = 26;
+	public static final int THROTTLED = 27;
+	public static final int CIRCUIT_OPEN = 28;
+	public static final int INVALID_ARCHIVE = 29;
+	public static final int WRITE_FAILED = 30;
+	public static final int INVALID_DOC_ID_SET = 31;
     
     private Integer code;
     
@@ -134,6 +143,24 @@ public class LRException extends Exception
 			return "The message stream could not be parsed.";
 		else if (code == INVALID_PUBLIC_KEY)
 			return "The public key stream does not contain a valid public key.";
+		else if (code == READ_FAILED)
+			return "The input file could not be read.";
+		else if (code == TIMEOUT)
+			return "The request to the Learning Registry node timed out.";
+		else if (code == RESPONSE_TOO_LARGE)
+			return "The response from the Learning Registry node was larger than the allowed maximum.";
+		else if (code == NO_NODES)
+			return "The node group does not contain any nodes.";
+		else if (code == THROTTLED)
+			return "The request was held back by the rate or concurrency limit of the node for longer than allowed.";
+		else if (code == CIRCUIT_OPEN)
+			return "Requests to the node are failing; the circuit breaker is open until the node recovers.";
+		else if (code == INVALID_ARCHIVE)
+			return "The file is not an envelope archive, or is damaged.";
+		else if (code == WRITE_FAILED)
+			return "The output file could not be written.";
+		else if (code == INVALID_DOC_ID_SET)
+			return "The file is not a doc ID set, or is damaged.";
 		else
             return "An unknown error has ocurred.";
     }
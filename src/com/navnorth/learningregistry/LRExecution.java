@@ -0,0 +1,186 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execution mode of the threads the library starts for its pipelines
+ * In the platform mode, ingests, bulk deletes and fan-out reads run on pools of platform threads. In the virtual mode
+ * every task gets its own virtual thread, so tens of thousands of blocking requests can be in flight at once; the
+ * rate and concurrency limits of LRClient and the connection pool of LRClientPolicy then bound the load on each node.
+ * Virtual threads need Java 21 or later; on older runtimes the platform mode is used whatever the setting. Code
+ * that blocks while holding a lock uses a ReentrantLock rather than a monitor, since a virtual thread blocked in a
+ * monitor holds on to its carrier thread.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public final class LRExecution
+{
+    // Thread.ofVirtual().name(prefix, 0).factory() and Executors.newThreadPerTaskExecutor(), where the runtime has them
+    private static final Class<?> threadBuilder = findClass("java.lang.Thread$Builder");
+    private static final Method ofVirtual = findMethod(Thread.class, "ofVirtual");
+    private static final Method builderName = findMethod(threadBuilder, "name", String.class, long.class);
+    private static final Method builderFactory = findMethod(threadBuilder, "factory");
+    private static final Method newThreadPerTaskExecutor = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private static volatile boolean virtualThreads = false;
+
+    // Runs short tasks of the library, such as hedged reads, in the platform mode
+    private static final ExecutorService platformShared = Executors.newCachedThreadPool(newPlatformThreadFactory("LR shared"));
+    private static volatile ExecutorService virtualShared;
+
+    private LRExecution()
+    {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isVirtualThreadsSupported()
+    {
+        return ofVirtual != null && builderName != null && builderFactory != null && newThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * @return true if the library runs its tasks on virtual threads
+     */
+    public static boolean isVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    /**
+     * Sets whether the library runs its tasks on virtual threads (default false)
+     * Executors created before the change keep their mode.
+     *
+     * @param virtualThreads true to use virtual threads where the runtime supports them
+     */
+    public static void setVirtualThreads(boolean virtualThreads)
+    {
+        LRExecution.virtualThreads = virtualThreads && isVirtualThreadsSupported();
+    }
+
+    /**
+     * Create an executor for the tasks of one pipeline, to be shut down by the caller
+     *
+     * @param name prefix of the names of its threads
+     * @param platformThreads number of threads in the platform mode
+     * @return a virtual thread per task executor in the virtual mode, or a fixed pool of platform threads
+     */
+    public static ExecutorService newExecutor(String name, int platformThreads)
+    {
+        if (virtualThreads)
+        {
+            return newVirtualExecutor(name);
+        }
+        return Executors.newFixedThreadPool(Math.max(platformThreads, 1), newPlatformThreadFactory(name));
+    }
+
+    /**
+     * Get the executor for short tasks of the library, which is never shut down
+     *
+     * @return executor for the current mode
+     */
+    static ExecutorService getSharedExecutor()
+    {
+        if (!virtualThreads)
+        {
+            return platformShared;
+        }
+
+        ExecutorService shared = virtualShared;
+        if (shared == null)
+        {
+            synchronized (LRExecution.class)
+            {
+                shared = virtualShared;
+                if (shared == null)
+                {
+                    shared = newVirtualExecutor("LR shared");
+                    virtualShared = shared;
+                }
+            }
+        }
+        return shared;
+    }
+
+    private static ExecutorService newVirtualExecutor(String name)
+    {
+        try
+        {
+            Object builder = builderName.invoke(ofVirtual.invoke(null), name + " ", 0L);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, builderFactory.invoke(builder));
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+
+    private static ThreadFactory newPlatformThreadFactory(final String name)
+    {
+        return new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, name + " " + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static Class<?> findClass(String name)
+    {
+        try
+        {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e)
+        {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes)
+    {
+        if (type == null)
+        {
+            return null;
+        }
+        try
+        {
+            return type.getMethod(name, parameterTypes);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+}
@@ -67,6 +67,7 @@ public class LRExporter
     private String publishAuthPassword;
     private String publishProtocol = "http";
     private String publishFullUrl;
+    private LRNodeGroup nodeGroup;
     
     // Booleans to track if configuration is complete
     private boolean configured = false;
@@ -152,6 +153,24 @@ public class LRExporter
         this.publishProtocol = publishProtocol;
     }
 
+    /**
+     * Creates the exporter object for a group of replica nodes
+     * Each batch is published to one node of the group, chosen by the load and health of the nodes.
+     *
+     * @param batchSize the number of items to submit per batch to the Learning Registry node
+     * @param nodeGroup the nodes to use for export
+     * @param publishAuthUser user value for authentication
+     * @param publishAuthPassword password value for authentication
+    */
+    public LRExporter(int batchSize, LRNodeGroup nodeGroup, String publishAuthUser, String publishAuthPassword)
+    {
+        this.batchSize = batchSize;
+        this.nodeGroup = nodeGroup;
+        this.publishAuthUser = publishAuthUser;
+        this.publishAuthPassword = publishAuthPassword;
+        this.publishProtocol = nodeGroup.getProtocol();
+    }
+
     /**
      * Attempt to configure the exporter with the values used in the constructor
      * This must be called before an exporter can be used and after any setting of configuration values
@@ -166,10 +185,14 @@ public class LRExporter
         publishAuthPassword = StringUtil.nullifyBadInput(publishAuthPassword);
     
         // Throw an exception if any of the required fields are null
-        if (nodeHost == null)
+        if (nodeHost == null && nodeGroup == null)
         {
             throw new LRException(LRException.NULL_FIELD);
         }
+        if (nodeGroup != null && nodeGroup.getNodes().isEmpty())
+        {
+            throw new LRException(LRException.NO_NODES);
+        }
         
         // Throw an error if the batch size is zero
         if (batchSize == 0)
@@ -178,12 +201,22 @@ public class LRExporter
         }
     
         this.batchSize = batchSize;
-        this.publishFullUrl = publishProtocol + "://" + nodeHost + publishServiceUrl;
+        this.publishFullUrl = (nodeGroup == null) ? publishProtocol + "://" + nodeHost + publishServiceUrl : null;
         this.publishAuthUser = publishAuthUser;
         this.publishAuthPassword = publishAuthPassword;
         
         this.configured = true;
     }
+
+    /**
+     * Get whether the exporter has been configured since its values were last set
+     *
+     * @return true if the exporter is configured
+     */
+    public boolean isConfigured()
+    {
+        return configured;
+    }
     
     /**
      * Adds an envelope to the exporter
@@ -205,7 +238,8 @@ public class LRExporter
      * Sends documents to the node defined in configuration
      *
      * @return List of LRResponse packages for each batch of documents sent to the node
-     * @throws LRException NOT_CONFIGURED, NO_DOCUMENTS, NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED
+     * @throws LRException NOT_CONFIGURED, NO_DOCUMENTS, NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED,
+     *      TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED, CIRCUIT_OPEN, NO_NODES
     */
     public List<LRResponse> sendData() throws LRException
     {
@@ -221,145 +255,303 @@ public class LRExporter
             throw new LRException(LRException.NO_DOCUMENTS);
         }
         
-        List<LRResponse> responses = new ArrayList<LRResponse>();
+        return sendBatches(docs);
+    }
+
+    /**
+     * Sends the provided envelopes to the node defined in configuration, without adding them to this exporter
+     * Unlike sendData, this may be called from several threads at once
+     *
+     * @param envelopes envelopes to send
+     * @return List of LRResponse packages for each batch of documents sent to the node
+     * @throws LRException NOT_CONFIGURED, NO_DOCUMENTS, NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED,
+     *      TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED, CIRCUIT_OPEN, NO_NODES
+    */
+    public List<LRResponse> sendDocuments(List<? extends LREnvelope> envelopes) throws LRException
+    {
+        // Throw an error if configuration has not been performed
+        if(!configured)
+        {
+            throw new LRException(LRException.NOT_CONFIGURED);
+        }
         
-        JSONObject jsonObjSend = new JSONObject();
+        // Throw an error if no documents have been provided for submission
+        if (envelopes == null || envelopes.size() == 0)
+        {
+            throw new LRException(LRException.NO_DOCUMENTS);
+        }
+        
+        List<Object> sendable = new ArrayList<Object>(envelopes.size());
+        
+        for (LREnvelope envelope : envelopes)
+        {
+            sendable.add(envelope.getSendableData());
+        }
+        
+        return sendBatches(sendable);
+    }
 
+    /**
+     * Splits the documents into batches and sends each batch to the node
+     *
+     * @param documents sendable data of the documents to send
+     * @return List of LRResponse packages for each batch of documents sent to the node
+     * @throws LRException NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED,
+     *      TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED, CIRCUIT_OPEN, NO_NODES
+    */
+    private List<LRResponse> sendBatches(List<Object> documents) throws LRException
+    {
+        List<LRResponse> responses = new ArrayList<LRResponse>();
+        
         // Figure out how many batches need to be sent
-        int batches = (int)Math.ceil((float)docs.size() / batchSize);
+        int batches = (int)Math.ceil((float)documents.size() / batchSize);
         
         // Send each batch and add the response to our return value
         for (int i = 0; i < batches; i++)
         {
             int startIndex = i * batchSize;
             int endIndex = startIndex + batchSize;
-            if (endIndex > docs.size())
+            if (endIndex > documents.size())
             {
-                endIndex = docs.size();
+                endIndex = documents.size();
             }
         
-            List<Object> batchDoc = docs.subList(startIndex, endIndex);
+            LRResponse responsePackage = sendBatch(documents.subList(startIndex, endIndex));
             
-            // Add this batch of documents to the batch parent document
-            try
+            if (responsePackage != null)
             {
-                jsonObjSend.put("documents", batchDoc);
+                responses.add(responsePackage);
             }
-            catch (JSONException e)
+        }
+        
+        return responses;
+    }
+
+    /**
+     * Serializes a batch of documents into the body of a publish request
+     *
+     * @param batchDoc sendable data of the documents in this batch
+     * @return JSON text of the publish request
+     * @throws LRException JSON_FAILED
+    */
+    static String getBatchJSON(List<Object> batchDoc) throws LRException
+    {
+        JSONObject jsonObjSend = new JSONObject();
+
+        // Add this batch of documents to the batch parent document
+        try
+        {
+            jsonObjSend.put("documents", batchDoc);
+        }
+        catch (JSONException e)
+        {
+            throw new LRException(LRException.JSON_FAILED);
+        }
+
+        return jsonObjSend.toString();
+    }
+
+    /**
+     * Sends a single batch of documents to the node
+     *
+     * @param batchDoc sendable data of the documents in this batch
+     * @return LRResponse package for the batch, or null if the node did not return a response
+     * @throws LRException NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED,
+     *      TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED, CIRCUIT_OPEN, NO_NODES
+    */
+    private LRResponse sendBatch(List<Object> batchDoc) throws LRException
+    {
+        return sendBatchJSON(getBatchJSON(batchDoc), batchDoc.size());
+    }
+
+    /**
+     * Sends a single serialized batch of documents to the node, reporting it to the installed metrics
+     * This may be called from several threads at once
+     *
+     * @param jsonString JSON text of the publish request, from getBatchJSON
+     * @param documents number of documents in the batch
+     * @return LRResponse package for the batch, or null if the node did not return a response
+     * @throws LRException NOT_CONFIGURED, NO_RESPONSE, INVALID_RESPONSE, JSON_FAILED,
+     *      TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED, CIRCUIT_OPEN, NO_NODES
+    */
+    LRResponse sendBatchJSON(String jsonString, int documents) throws LRException
+    {
+        if(!configured)
+        {
+            throw new LRException(LRException.NOT_CONFIGURED);
+        }
+        
+        StringEntity se;
+        
+        // Convert this batch into a string for submission
+        try
+        {
+            se = new StringEntity(jsonString, "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new LRException(LRException.JSON_FAILED);
+        }
+        
+        LRMetrics metrics = LRInstrumentation.getMetrics();
+        LRFlightRecorder.PublishBatch event = new LRFlightRecorder.PublishBatch();
+        event.begin();
+        long start = System.nanoTime();
+        long bytes = se.getContentLength();
+        LRResponse responsePackage = null;
+
+        try
+        {
+            responsePackage = postBatch(se);
+            return responsePackage;
+        }
+        finally
+        {
+            metrics.time(LRInstrumentation.exporterBatchTime, System.nanoTime() - start);
+            metrics.increment(LRInstrumentation.exporterBatches, 1);
+            metrics.record(LRInstrumentation.exporterBatchDocuments, documents);
+            metrics.record(LRInstrumentation.exporterBatchBytes, bytes);
+
+            int published = 0;
+            if (responsePackage == null)
             {
-                throw new LRException(LRException.JSON_FAILED);
+                metrics.increment(LRInstrumentation.exporterBatchErrors, 1);
             }
+            else if (responsePackage.getBatchSuccess())
+            {
+                published = responsePackage.getResourceSuccess().size();
+            }
+            metrics.increment(LRInstrumentation.exporterDocumentsPublished, published);
+            metrics.increment(LRInstrumentation.exporterDocumentsFailed, documents - published);
 
-            String jsonString = jsonObjSend.toString();
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.url = (nodeGroup != null) ? publishServiceUrl : publishFullUrl;
+                event.documents = documents;
+                event.bytes = bytes;
+                event.status = (responsePackage != null) ? responsePackage.getStatusCode() : 0;
+                event.published = published;
+                event.commit();
+            }
+        }
+    }
 
-            HttpResponse response;
-            
-            String jsonError = "";
-            
-            StringEntity se;
-            
-            // Convert this batch into a string for submission
-            try
+    /**
+     * Posts a single batch to the node and decodes the response
+     *
+     * @param se UTF-8 entity holding the JSON text of the publish request
+     * @return LRResponse package for the batch, or null if the node did not return a response
+     * @throws LRException NO_RESPONSE, INVALID_RESPONSE, TIMEOUT, RESPONSE_TOO_LARGE, THROTTLED,
+     *      CIRCUIT_OPEN, NO_NODES
+    */
+    private LRResponse postBatch(StringEntity se) throws LRException
+    {
+        HttpResponse response;
+        
+        String jsonError = "";
+        
+        // Send the string to the node
+        try
+        {
+            if (nodeGroup != null)
             {
-                se = new StringEntity(jsonString);
+                response = nodeGroup.executeJsonPost(publishServiceUrl, se, publishAuthUser, publishAuthPassword);
             }
-            catch (UnsupportedEncodingException e)
+            else
             {
-                throw new LRException(LRException.JSON_FAILED);
+                response = LRClient.executeJsonPost(publishFullUrl, se, publishAuthUser, publishAuthPassword);
             }
-            
-            // Send the string to the node
+        }
+        catch (LRException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new LRException(LRException.NO_RESPONSE);
+        }
+
+        LRResponse responsePackage = null;
+        
+        // Get the response from the node
+        if (response != null)
+        {
             try
             {
-                response = LRClient.executeJsonPost(publishFullUrl, se, publishAuthUser, publishAuthPassword);
+                InputStream is = response.getEntity().getContent();
+                jsonError = IOUtils.toString(is, "UTF-8");
+                responsePackage = new LRResponse(response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
             }
-            catch (Exception e)
+            catch (IOException e)
             {
-                throw new LRException(LRException.NO_RESPONSE);
+                throw new LRException(LRException.INVALID_RESPONSE);
             }
+        }
 
-            LRResponse responsePackage = null;
-            
-            // Get the response from the node
-            if (response != null)
+        // Decode the response and prepare results for return
+        if (responsePackage != null)
+        {
+            try
             {
-                try
+                JSONObject jsonObjRes = new JSONObject(jsonError);
+                
+                boolean batchSuccess = false;
+                String batchError = "No error reported";
+                if (jsonObjRes.has("OK"))
                 {
-                    InputStream is = response.getEntity().getContent();
-                    jsonError = IOUtils.toString(is, "UTF-8");
-                    responsePackage = new LRResponse(response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+                    batchSuccess = jsonObjRes.getBoolean("OK");
                 }
-                catch (IOException e)
+                if (jsonObjRes.has("error"))
                 {
-                    throw new LRException(LRException.INVALID_RESPONSE);
+                    batchError = jsonObjRes.getString("error");
                 }
-            }
+                
+                responsePackage.setBatchResponse(batchError, batchSuccess);
 
-            // Decode the response and prepare results for return
-            if (responsePackage != null)
-            {
-                try
+                if (batchSuccess)
                 {
-                    JSONObject jsonObjRes = new JSONObject(jsonError);
-                    
-                    boolean batchSuccess = false;
-                    String batchError = "No error reported";
-                    if (jsonObjRes.has("OK"))
-                    {
-                        batchSuccess = jsonObjRes.getBoolean("OK");
-                    }
-                    if (jsonObjRes.has("error"))
-                    {
-                        batchError = jsonObjRes.getString("error");
-                    }
+                    JSONArray jarry = jsonObjRes.getJSONArray("document_results");
                     
-                    responsePackage.setBatchResponse(batchError, batchSuccess);
-
-                    if (batchSuccess)
+                    for(int j = 0; j < jarry.length(); j++)
                     {
-                        JSONArray jarry = jsonObjRes.getJSONArray("document_results");
+                        JSONObject job = jarry.getJSONObject(j);
                         
-                        for(int j = 0; j < jarry.length(); j++)
-                        {
-                            JSONObject job = jarry.getJSONObject(j);
-                            
-                            String error = "";
-                            String id = "";
-                            boolean ok = false;
-                            
-                            if (job.has("OK"))
-                                ok = job.getBoolean("OK");
+                        String error = "";
+                        String id = "";
+                        boolean ok = false;
+                        
+                        if (job.has("OK"))
+                            ok = job.getBoolean("OK");
 
-                            if (ok)
+                        if (ok)
+                        {
+                            if (job.has("doc_ID"))
                             {
-                                if (job.has("doc_ID"))
-                                {
-                                    id = job.getString("doc_ID");
-                                }
-                                
-                                responsePackage.addResourceSuccess(id);
+                                id = job.getString("doc_ID");
                             }
-                            else
+                            
+                            responsePackage.addResourceSuccess(id);
+                        }
+                        else
+                        {
+                            if (job.has("error"))
                             {
-                                if (job.has("error"))
-                                {
-                                    error = job.getString("error");
-                                }
-                                
-                                responsePackage.addResourceFailure(error);
+                                error = job.getString("error");
                             }
+                            
+                            responsePackage.addResourceFailure(error);
                         }
                     }
                 }
-                catch (JSONException e)
-                {
-                    //Return response package anyway, since it already has the basic information we need
-                }
-                responses.add(responsePackage);
+            }
+            catch (JSONException e)
+            {
+                //Return response package anyway, since it already has the basic information we need
             }
         }
         
-        return responses;
+        return responsePackage;
     }
 
     /**
@@ -421,7 +613,7 @@ public class LRExporter
     /**
      * Get the publishFullUrl value
      *
-     * @return publishFullUrl value
+     * @return publishFullUrl value, which is null for an exporter to a node group
      */
     public String getPublishFullUrl()
     {
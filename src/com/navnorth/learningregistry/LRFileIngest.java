@@ -0,0 +1,474 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.FilterInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.IOException;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulk publisher of documents from NDJSON (JSON lines) files
+ * Each line is mapped to an envelope through a template, then signed and published by a pool of worker
+ * threads while the file is still being read. The number of documents held in memory at once is bounded.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRFileIngest
+{
+    private static final int readBufferSize = 1 << 20;
+    private static final int gzipBufferSize = 1 << 16;
+    private static final int progressCheckLines = 1000;
+
+    private final LRExporter exporter;
+    private final LRSigner signer;
+    private final LRDocumentTemplate template;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlight = 0;
+    private ExecutorService executor = null;
+
+    private LRIngestProgress.Listener listener = null;
+    private long progressInterval = 10 * 1000;
+
+    /**
+     * Creates the ingest pipeline
+     *
+     * @param exporter configured exporter to publish through; its batch size is used for each publish request
+     * @param signer signer for the documents, or null to publish them unsigned
+     * @param template template mapping each line to an envelope
+     */
+    public LRFileIngest(LRExporter exporter, LRSigner signer, LRDocumentTemplate template)
+    {
+        this.exporter = exporter;
+        this.signer = signer;
+        this.template = template;
+    }
+
+    /**
+     * Publish every line of an NDJSON file; gzipped files are detected and decompressed
+     *
+     * @param file file to read
+     * @return final progress of the publish
+     * @throws LRException READ_FAILED if the file cannot be read
+     */
+    public LRIngestProgress ingest(File file) throws LRException
+    {
+        FileChannel channel = null;
+
+        try
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return ingest(Channels.newInputStream(channel));
+        }
+        catch (IOException e)
+        {
+            throw new LRException(LRException.READ_FAILED);
+        }
+        finally
+        {
+            try
+            {
+                if (channel != null)
+                {
+                    channel.close();
+                }
+            }
+            catch (IOException e)
+            {
+                //Could not close the file
+            }
+        }
+    }
+
+    /**
+     * Publish every line of an NDJSON stream; gzipped streams are detected and decompressed
+     * The stream is not closed
+     *
+     * @param input stream to read
+     * @return final progress of the publish
+     * @throws LRException READ_FAILED if the stream cannot be read
+     */
+    public LRIngestProgress ingest(InputStream input) throws LRException
+    {
+        LRIngestProgress progress = new LRIngestProgress();
+        ExecutorService pool = (executor != null) ? executor : LRExecution.newExecutor("LRFileIngest", threads);
+
+        // At least one full batch must fit in memory, or the first batch would never be sent
+        int batchSize = Math.max(exporter.getBatchSize(), 1);
+        int permits = (maxInFlight > 0) ? Math.max(maxInFlight, batchSize) : batchSize * threads * 2;
+        Semaphore inFlight = new Semaphore(permits);
+        Batcher batcher = new Batcher(batchSize, progress, inFlight);
+        LRTaskTracker tracker = new LRTaskTracker();
+
+        long lastReport = System.currentTimeMillis();
+
+        try
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(decode(new CountingInputStream(input, progress)), "UTF-8"), readBufferSize);
+            String line;
+
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().length() == 0)
+                {
+                    continue;
+                }
+
+                long read = progress.recordsRead.incrementAndGet();
+
+                inFlight.acquire();
+                tracker.start();
+                try
+                {
+                    pool.execute(new SignTask(line, batcher, progress, inFlight, tracker));
+                }
+                catch (RuntimeException e)
+                {
+                    tracker.finish();
+                    inFlight.release();
+                    progress.fail(1, new LRException(LRException.UNKNOWN));
+                }
+
+                if (listener != null && read % progressCheckLines == 0 && System.currentTimeMillis() - lastReport >= progressInterval)
+                {
+                    listener.progress(progress);
+                    lastReport = System.currentTimeMillis();
+                }
+            }
+
+            // Wait for every signing task, then send whatever is left in the last batch
+            tracker.await();
+            batcher.flush();
+        }
+        catch (IOException e)
+        {
+            throw new LRException(LRException.READ_FAILED);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.READ_FAILED);
+        }
+        finally
+        {
+            if (executor == null)
+            {
+                pool.shutdown();
+            }
+            progress.finish();
+        }
+
+        if (listener != null)
+        {
+            listener.progress(progress);
+        }
+
+        return progress;
+    }
+
+    /**
+     * Sets the number of worker threads used when no executor is provided
+     * In the virtual mode of LRExecution each task gets its own virtual thread, and the number only sizes the
+     * documents held in memory at once.
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Sets the maximum number of documents held in memory at once
+     * Defaults to twice the batch size for each thread, and is never less than one batch
+     *
+     * @param maxInFlight maximum number of documents
+     */
+    public void setMaxInFlight(int maxInFlight)
+    {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sets an executor to run signing and publishing on, instead of a pool owned by the ingest
+     * The executor is not shut down after ingesting
+     *
+     * @param executor executor to use, or null for an owned pool
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets a listener for periodic progress reports
+     *
+     * @param listener listener to report to
+     * @param intervalMillis minimum time between reports in milliseconds
+     */
+    public void setProgressListener(LRIngestProgress.Listener listener, long intervalMillis)
+    {
+        this.listener = listener;
+        this.progressInterval = intervalMillis;
+    }
+
+    /**
+     * Wrap the stream in a gzip decoder if it starts with the gzip magic number
+     */
+    private static InputStream decode(InputStream input) throws IOException
+    {
+        BufferedInputStream buffered = new BufferedInputStream(input, readBufferSize);
+
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+
+        if (first == 0x1f && second == 0x8b)
+        {
+            return new GZIPInputStream(buffered, gzipBufferSize);
+        }
+
+        return buffered;
+    }
+
+    /**
+     * Record the outcome of a batch
+     *
+     * @param batch envelopes that were sent
+     * @param progress progress to update
+     */
+    private void send(List<LREnvelope> batch, LRIngestProgress progress)
+    {
+        try
+        {
+            List<LRResponse> responses = exporter.sendDocuments(batch);
+            long published = 0;
+
+            for (LRResponse response : responses)
+            {
+                progress.batchesSent.incrementAndGet();
+                if (response.getBatchSuccess())
+                {
+                    published += response.getResourceSuccess().size();
+                }
+            }
+
+            progress.documentsPublished.addAndGet(published);
+            if (published < batch.size())
+            {
+                progress.fail(batch.size() - published, new LRException(LRException.INVALID_RESPONSE));
+            }
+        }
+        catch (LRException e)
+        {
+            progress.fail(batch.size(), e);
+        }
+    }
+
+    /**
+     * Maps, signs and batches a single line
+     */
+    private class SignTask implements Runnable
+    {
+        private final String line;
+        private final Batcher batcher;
+        private final LRIngestProgress progress;
+        private final Semaphore inFlight;
+        private final LRTaskTracker tracker;
+
+        SignTask(String line, Batcher batcher, LRIngestProgress progress, Semaphore inFlight, LRTaskTracker tracker)
+        {
+            this.line = line;
+            this.batcher = batcher;
+            this.progress = progress;
+            this.inFlight = inFlight;
+            this.tracker = tracker;
+        }
+
+        public void run()
+        {
+            try
+            {
+                signAndBatch();
+            }
+            finally
+            {
+                tracker.finish();
+            }
+        }
+
+        private void signAndBatch()
+        {
+            LREnvelope envelope = null;
+
+            try
+            {
+                envelope = template.toEnvelope(line);
+                if (signer != null)
+                {
+                    signer.sign(envelope);
+                }
+                progress.documentsSigned.incrementAndGet();
+            }
+            catch (LRException e)
+            {
+                progress.fail(1, e);
+                envelope = null;
+            }
+            catch (RuntimeException e)
+            {
+                progress.fail(1, new LRException(LRException.UNKNOWN));
+                envelope = null;
+            }
+            finally
+            {
+                if (envelope == null)
+                {
+                    inFlight.release();
+                }
+            }
+
+            if (envelope != null)
+            {
+                batcher.add(envelope);
+            }
+        }
+    }
+
+    /**
+     * Collects signed envelopes into batches and sends each full batch
+     * Permits for the envelopes of a batch are released once it has been sent
+     */
+    private class Batcher
+    {
+        private final int batchSize;
+        private final LRIngestProgress progress;
+        private final Semaphore inFlight;
+        private List<LREnvelope> pending;
+
+        Batcher(int batchSize, LRIngestProgress progress, Semaphore inFlight)
+        {
+            this.batchSize = batchSize;
+            this.progress = progress;
+            this.inFlight = inFlight;
+            this.pending = new ArrayList<LREnvelope>(batchSize);
+        }
+
+        void add(LREnvelope envelope)
+        {
+            List<LREnvelope> full = null;
+
+            synchronized (this)
+            {
+                pending.add(envelope);
+                if (pending.size() >= batchSize)
+                {
+                    full = pending;
+                    pending = new ArrayList<LREnvelope>(batchSize);
+                }
+            }
+
+            if (full != null)
+            {
+                sendAndRelease(full);
+            }
+        }
+
+        void flush()
+        {
+            List<LREnvelope> rest;
+
+            synchronized (this)
+            {
+                rest = pending;
+                pending = new ArrayList<LREnvelope>(batchSize);
+            }
+
+            if (rest.size() > 0)
+            {
+                sendAndRelease(rest);
+            }
+        }
+
+        private void sendAndRelease(List<LREnvelope> batch)
+        {
+            try
+            {
+                send(batch, progress);
+            }
+            finally
+            {
+                inFlight.release(batch.size());
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream into the progress
+     */
+    private static class CountingInputStream extends FilterInputStream
+    {
+        private final LRIngestProgress progress;
+
+        CountingInputStream(InputStream in, LRIngestProgress progress)
+        {
+            super(in);
+            this.progress = progress;
+        }
+
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0)
+            {
+                progress.bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = super.read(b, off, len);
+            if (n > 0)
+            {
+                progress.bytesRead.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
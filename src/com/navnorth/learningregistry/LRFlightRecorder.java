@@ -0,0 +1,167 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events emitted by the library
+ * Events are created on every call but only committed while a recording has them enabled, so they cost next to
+ * nothing when recording is off. Fields are only filled in when shouldCommit() is true.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRFlightRecorder
+{
+    private LRFlightRecorder()
+    {
+    }
+
+    /**
+     * A batch of documents posted to /publish
+     */
+    @Name("com.navnorth.learningregistry.PublishBatch")
+    @Label("Publish Batch")
+    @Category({"Learning Registry", "Exporter"})
+    @Description("A batch of documents sent to the publish service of a node")
+    @StackTrace(false)
+    static final class PublishBatch extends Event
+    {
+        @Label("URL")
+        String url;
+
+        @Label("Documents")
+        int documents;
+
+        @Label("Request Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Status")
+        @Description("HTTP status of the response, or 0 if there was none")
+        int status;
+
+        @Label("Published")
+        @Description("Documents the node reported as published")
+        int published;
+    }
+
+    /**
+     * A page fetched by the importer
+     */
+    @Name("com.navnorth.learningregistry.ImporterPage")
+    @Label("Importer Page")
+    @Category({"Learning Registry", "Importer"})
+    @Description("A page of obtain, harvest or extract results fetched from a node")
+    @StackTrace(false)
+    static final class ImporterPage extends Event
+    {
+        @Label("Path")
+        String path;
+
+        @Label("Response Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Parse Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long parseTime;
+
+        @Label("Not Modified")
+        @Description("True if the node answered 304 and the page came from the response cache")
+        boolean notModified;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * A signature made by the signer
+     */
+    @Name("com.navnorth.learningregistry.Sign")
+    @Label("Sign")
+    @Category({"Learning Registry", "Signer"})
+    @Description("An envelope bencoded, hashed and clear signed")
+    @StackTrace(false)
+    static final class Sign extends Event
+    {
+        @Label("Envelope Type")
+        String envelopeType;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    /**
+     * A signature verification
+     */
+    @Name("com.navnorth.learningregistry.Verify")
+    @Label("Verify")
+    @Category({"Learning Registry", "Verify"})
+    @Description("A clear signed message verified against a public key")
+    @StackTrace(false)
+    static final class Verify extends Event
+    {
+        @Label("Message Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Verified")
+        boolean verified;
+
+        @Label("Succeeded")
+        @Description("False if the message, signature or key could not be read")
+        boolean succeeded;
+    }
+
+    /**
+     * A change of state of the circuit breaker of a node
+     */
+    @Name("com.navnorth.learningregistry.CircuitBreaker")
+    @Label("Circuit Breaker")
+    @Category({"Learning Registry", "Client"})
+    @Description("The circuit breaker of a node opened, half-opened or closed")
+    @StackTrace(false)
+    static final class CircuitBreaker extends Event
+    {
+        @Label("Host")
+        String host;
+
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+
+        @Label("Open Time")
+        @Description("Time requests to the node fail at once, if the breaker opened")
+        @Timespan(Timespan.MILLISECONDS)
+        long openTime;
+    }
+}
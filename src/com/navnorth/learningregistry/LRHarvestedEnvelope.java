@@ -0,0 +1,117 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Envelope harvested from a node, to be published again as it is, for LRReplicator
+ * The fields the source node added are dropped, while the doc ID and the digital signature are kept, so the envelope
+ * reaches the destination as its submitter published it. If it is signed again, the new signature replaces the old.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRHarvestedEnvelope extends LREnvelope
+{
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final String docIDField = "doc_ID";
+    private static final String resourceDataField = "resource_data";
+    private static final String digitalSignatureField = "digital_signature";
+    private static final String[] nodeFields = {"_id", "_rev", "node_timestamp", "create_timestamp", "update_timestamp",
+        "publishing_node"};
+
+    private final Map<String, Object> fields;
+
+    /**
+     * Create the envelope from its JSON text
+     *
+     * @param json JSON text of the envelope, as harvested
+     * @throws LRException INVALID_JSON if the text is not a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    LRHarvestedEnvelope(String json) throws LRException
+    {
+        try
+        {
+            fields = mapper.readValue(json, LinkedHashMap.class);
+        }
+        catch (IOException e)
+        {
+            throw new LRException(LRException.INVALID_JSON);
+        }
+        if (fields == null)
+        {
+            throw new LRException(LRException.INVALID_JSON);
+        }
+
+        for (String field : nodeFields)
+        {
+            fields.remove(field);
+        }
+    }
+
+    /**
+     * @return doc ID of the envelope, or null if it has none
+     */
+    String getDocID()
+    {
+        Object docID = fields.get(docIDField);
+        return (docID instanceof String) ? (String) docID : null;
+    }
+
+    /**
+     * @return digital signature of the envelope as harvested, or null if it is not signed
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> getDigitalSignature()
+    {
+        Object signature = fields.get(digitalSignatureField);
+        return (signature instanceof Map) ? (Map<String, Object>) signature : null;
+    }
+
+    /**
+     * Drop the digital signature of the envelope as harvested
+     */
+    void removeSignature()
+    {
+        fields.remove(digitalSignatureField);
+    }
+
+    protected Object getResourceData()
+    {
+        return fields.get(resourceDataField);
+    }
+
+    protected Map<String, Object> getSendableData()
+    {
+        Map<String, Object> doc = new LinkedHashMap<String, Object>(fields);
+
+        putSigningData(doc);
+
+        return doc;
+    }
+}
@@ -15,6 +15,18 @@ package com.navnorth.learningregistry;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import java.net.URL;
 
@@ -23,9 +35,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 
 import java.util.Date;
+import java.util.TimeZone;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.message.BasicHeader;
 import org.json.*;
 
 /**
@@ -45,10 +61,12 @@ public class LRImporter
 {
 	// Format for date request parameters
 	private static final DateFormat ISO8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+	private static final String harvestDateFormat = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
     // LR function paths
     // TODO : get service URLs from the node itself
     private static String harvestPath = "/harvest/getrecord";
+    private static String listRecordsPath = "/harvest/listrecords";
     private static String obtainPath = "/obtain";
 	private static String extractPath = "/extract";
 	
@@ -69,9 +87,19 @@ public class LRImporter
     // LR string values of boolean values
     private static String booleanTrueString = "true";
     private static String booleanFalseString = "false";
+
+    // Fetches in progress by source and path, shared by concurrent identical requests of every importer in the JVM
+    private static final ConcurrentHashMap<List<Object>, Flight> inFlight = new ConcurrentHashMap<List<Object>, Flight>();
     
     private String nodeHost;
     private String importProtocol = "http";
+    private LRNodeGroup nodeGroup;
+    private LRResponseCache cache;
+    private LRArchiveWriter archive;
+    private LRDocIDSet docIDSet;
+    private LRReplacesIndex replacesIndex;
+    private boolean coalescing = true;
+    private int threads = 16;
 	
     /**
      * Creates the importer object
@@ -85,6 +113,18 @@ public class LRImporter
         this.importProtocol = importProtocol;
     }
 
+    /**
+     * Creates the importer object for a group of replica nodes
+     * Requests are spread across the nodes of the group, and fail over to another node if one fails.
+     *
+     * @param nodeGroup the nodes to import from
+     */
+    public LRImporter(LRNodeGroup nodeGroup)
+    {
+        this.nodeGroup = nodeGroup;
+        this.importProtocol = nodeGroup.getProtocol();
+    }
+
     /**
      * Creates the importer object
      *  !!! Will be deprecated in future releases in favor of "protocol" parameter !!!
@@ -248,9 +288,7 @@ public class LRImporter
     {
         String path = getObtainRequestPath(requestID, byResourceID, byDocID, idsOnly, resumptionToken);
                 
-        JSONObject json = getJSONFromPath(path);
-        
-        return new LRResult(json);
+        return getResult(path);
     }
     
     /**
@@ -265,9 +303,137 @@ public class LRImporter
     {
         String path = getHarvestRequestPath(requestID, byResourceID, byDocID);
         
-        JSONObject json = getJSONFromPath(path);
+        return getResult(path);
+    }
+
+    /**
+     * Get the results of harvest requests for many request IDs, fetched at once
+     * Each request runs as a task of an LRTaskScope, on a virtual thread in the virtual mode of LRExecution. If a
+     * request fails, the requests still running are cancelled and its failure is thrown.
+     *
+     * @param requestIDs the "request_id" values to use for the requests
+     * @param byResourceID the "by_resource_id" value to use for every request
+     * @param byDocID the "by_doc_id" value to use for every request
+     * @return the results by request ID, in the order of the request IDs
+     */
+    public Map<String, LRResult> getHarvestJSONData(Collection<String> requestIDs, final Boolean byResourceID, final Boolean byDocID) throws LRException
+    {
+        Map<String, Future<LRResult>> futures = new LinkedHashMap<String, Future<LRResult>>();
+        LRTaskScope scope = new LRTaskScope("LRImporter harvest", threads);
+
+        try
+        {
+            for (final String requestID : requestIDs)
+            {
+                if (futures.containsKey(requestID))
+                {
+                    continue;
+                }
+                futures.put(requestID, scope.fork(new Callable<LRResult>()
+                {
+                    public LRResult call() throws LRException
+                    {
+                        return getHarvestJSONData(requestID, byResourceID, byDocID);
+                    }
+                }));
+            }
+            scope.join();
+
+            Map<String, LRResult> results = new LinkedHashMap<String, LRResult>();
+            for (Map.Entry<String, Future<LRResult>> future : futures.entrySet())
+            {
+                results.put(future.getKey(), future.getValue().get());
+            }
+            return results;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.IMPORT_FAILED);
+        }
+        catch (ExecutionException e)
+        {
+            // Not reached; join() has thrown any failure
+            throw new LRException(LRException.IMPORT_FAILED);
+        }
+        finally
+        {
+            scope.close();
+        }
+    }
+	
+    /**
+     * Obtain the path used for a harvest listrecords request
+     * If the resumption token is not null, it will override the other parameters for ths request
+     * 
+     * @param from the "from" parameter for the request, or null for the earliest records
+     * @param until the "until" parameter for the request, or null for the latest records
+     * @param resumptionToken the "resumption_token" parameter for the request
+     * @return the string of the path for a listrecords request
+     */
+    private String getListRecordsRequestPath(Date from, Date until, String resumptionToken)
+    {
+        if (resumptionToken != null)
+        {
+            return listRecordsPath + "?" + resumptionTokenParam + "=" + resumptionToken;
+        }
+        
+        String path = listRecordsPath;
+        String separator = "?";
+        
+        if (from != null)
+        {
+            path += separator + fromParam + "=" + formatHarvestDate(from);
+            separator = "&";
+        }
+        
+        if (until != null)
+        {
+            path += separator + untilParam + "=" + formatHarvestDate(until);
+        }
+        
+        return path;
+    }
+    
+    /**
+     * Format a date for a harvest request, in UTC with the granularity of seconds the harvest service uses
+     *
+     * @param date date to format
+     * @return formatted date
+     */
+    private static String formatHarvestDate(Date date)
+    {
+        DateFormat format = new SimpleDateFormat(harvestDateFormat);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+    
+    /**
+     * Get a result from a harvest listrecords request, for the records published to the node in a time range
+     * Records come in the order they reached the node; both ends of the range are included.
+     *
+     * @param from the "from" value to use for this request, or null for the earliest records
+     * @param until the "until" value to use for this request, or null for the latest records
+     * @return the result from this request
+     */
+    public LRResult getListRecordsJSONData(Date from, Date until) throws LRException
+    {
+        String path = getListRecordsRequestPath(from, until, null);
+        
+        return getResult(path);
+    }
+    
+    /**
+     * Get the next page of a harvest listrecords request
+     *
+     * @param resumptionToken the "resumption_token" value of the previous page
+     * @return the result from this request
+     */
+    public LRResult getListRecordsJSONData(String resumptionToken) throws LRException
+    {
+        String path = getListRecordsRequestPath(null, null, resumptionToken);
         
-        return new LRResult(json);
+        return getResult(path);
     }
 	
 	/**
@@ -355,9 +521,7 @@ public class LRImporter
 	{
 		String path = getExtractRequestPath(dataServiceName, viewName, from, until, idsOnly, discriminator, partial, discriminatorParam);
 		
-		JSONObject json = getJSONFromPath(path);
-		
-		return new LRResult(json);
+		return getResult(path);
 	}
 	
 	/**
@@ -376,9 +540,93 @@ public class LRImporter
 	{
 		String path = getExtractRequestPath(dataServiceName, viewName, from, until, idsOnly, resource, partial, resourceParam);
 		
-		JSONObject json = getJSONFromPath(path);
+		return getResult(path);
+	}
+        
+    /**
+     * Publish the envelopes of an obtain request, fetching its pages as subscribers ask for envelopes
+     * Each subscriber gets every envelope of the request, from the first page; at most one page is held for a
+     * subscriber, whatever its pace. A failed page is signalled with onError and its LRException.
+     *
+     * @param requestID the "request_id" value to use for this request
+     * @param byResourceID the "by_resource_id" value to use for this request
+     * @param byDocID the "by_doc_id" value to use for this request
+     * @return publisher of the envelopes
+     */
+    public Flow.Publisher<JSONObject> publishObtain(String requestID, Boolean byResourceID, Boolean byDocID)
+    {
+        String path = getObtainRequestPath(requestID, byResourceID, byDocID, false, null);
+        
+        return new LRDocumentPublisher(this, path, obtainPath);
+    }
+    
+    /**
+     * Publish the envelopes of a harvest request, fetching its pages as subscribers ask for envelopes
+     *
+     * @param requestID the "request_id" value to use for this request
+     * @param byResourceID the "by_resource_id" value to use for this request
+     * @param byDocID the "by_doc_id" value to use for this request
+     * @return publisher of the envelopes
+     * @see #publishObtain(String, Boolean, Boolean)
+     */
+    public Flow.Publisher<JSONObject> publishHarvest(String requestID, Boolean byResourceID, Boolean byDocID)
+    {
+        String path = getHarvestRequestPath(requestID, byResourceID, byDocID);
+        
+        return new LRDocumentPublisher(this, path, path);
+    }
+    
+    /**
+     * Publish the envelopes of a harvest listrecords request, fetching its pages as subscribers ask for envelopes
+     *
+     * @param from the "from" value to use for this request, or null for the earliest records
+     * @param until the "until" value to use for this request, or null for the latest records
+     * @return publisher of the envelopes
+     * @see #publishObtain(String, Boolean, Boolean)
+     */
+    public Flow.Publisher<JSONObject> publishListRecords(Date from, Date until)
+    {
+        String path = getListRecordsRequestPath(from, until, null);
+        
+        return new LRDocumentPublisher(this, path, listRecordsPath);
+    }
+    
+	/**
+	 * Publish the envelopes of an extract discriminator request, fetching its pages as subscribers ask for envelopes
+	 *
+	 * @param dataServiceName the name of the data service to request through (e.g. resource-by-discriminator)
+	 * @param viewName the name of the view to request through (e.g. standards-alignment-related)
+	 * @param discriminator the discriminator for the request
+	 * @param partial true/false if this is a partial start of a discriminator, rather than a full discriminator
+	 * @param from the starting date from which to extract items
+	 * @param until the ending date from which to extract items
+	 * @return publisher of the envelopes
+	 * @see #publishObtain(String, Boolean, Boolean)
+	 */
+	public Flow.Publisher<JSONObject> publishExtractDiscriminator(String dataServiceName, String viewName, String discriminator, Boolean partial, Date from, Date until)
+	{
+		String path = getExtractRequestPath(dataServiceName, viewName, from, until, false, discriminator, partial, discriminatorParam);
 		
-		return new LRResult(json);
+		return new LRDocumentPublisher(this, path, path);
+	}
+	
+	/**
+	 * Publish the envelopes of an extract resource request, fetching its pages as subscribers ask for envelopes
+	 *
+	 * @param dataServiceName the name of the data service to request through (e.g. resource-by-discriminator)
+	 * @param viewName the name of the view to request through (e.g. standards-alignment-related)
+	 * @param resource the resource for the request
+	 * @param partial true/false if this is a partial start of a resource, rather than a full resource
+	 * @param from the starting date from which to extract items
+	 * @param until the ending date from which to extract items
+	 * @return publisher of the envelopes
+	 * @see #publishObtain(String, Boolean, Boolean)
+	 */
+	public Flow.Publisher<JSONObject> publishExtractResource(String dataServiceName, String viewName, String resource, Boolean partial, Date from, Date until)
+	{
+		String path = getExtractRequestPath(dataServiceName, viewName, from, until, false, resource, partial, resourceParam);
+		
+		return new LRDocumentPublisher(this, path, path);
 	}
         
     /**
@@ -421,37 +669,471 @@ public class LRImporter
         this.nodeHost = nodeHost;
     }
     
+    /**
+     * Get the response cache of the importer
+     *
+     * @return the cache, or null if responses are not cached
+     */
+    public LRResponseCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Set the response cache of the importer
+     * Responses with an ETag or Last-Modified validator are cached, and requested again conditionally, so an unchanged
+     * page costs a 304 response instead of the whole page. Responses are cached by the URL of the node that gave them,
+     * so each replica of a node group is revalidated with its own validators.
+     *
+     * @param cache the cache, which may be shared by several importers, or null to not cache responses
+     */
+    public void setCache(LRResponseCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Get the archive the importer writes the envelopes it fetches to
+     *
+     * @return the archive, or null if envelopes are not archived
+     */
+    public LRArchiveWriter getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Set the archive the importer writes the envelopes it fetches to
+     * The envelopes of every page fetched are appended in order, including pages answered from the response cache.
+     * Requests are not coalesced while an archive is in use, so that every page the importer asks for is appended. The
+     * archive is not closed by the importer.
+     *
+     * @param archive the archive, which may be shared by several importers, or null to not archive envelopes
+     */
+    public void setArchive(LRArchiveWriter archive)
+    {
+        this.archive = archive;
+    }
+
+    /**
+     * Get the set of doc IDs already imported
+     *
+     * @return the set, or null if envelopes are not deduplicated
+     */
+    public LRDocIDSet getDocIDSet()
+    {
+        return docIDSet;
+    }
+
+    /**
+     * Set the set of doc IDs already imported, to drop envelopes seen before from the pages the importer fetches
+     * Each page is scanned for doc IDs before it is parsed, and the envelopes whose doc ID is in the set are removed
+     * from it, so they are neither parsed nor archived; the doc IDs of the rest are added once the page has been
+     * parsed, archived and indexed, or for a publisher once its envelopes have been delivered. This applies to every
+     * obtain, harvest and extract request, including those answered from the response cache. Requests are not
+     * coalesced while a set is in use, since the envelopes of a page then depend on what the importer has seen.
+     *
+     * @param docIDSet the set, which may be shared by several importers and kept across runs, or null to keep every
+     *      envelope
+     */
+    public void setDocIDSet(LRDocIDSet docIDSet)
+    {
+        this.docIDSet = docIDSet;
+    }
+
+    /**
+     * Get the index of replaces chains kept up to date by the importer
+     *
+     * @return the index, or null if envelopes are not indexed
+     */
+    public LRReplacesIndex getReplacesIndex()
+    {
+        return replacesIndex;
+    }
+
+    /**
+     * Set an index of replaces chains, to which the envelopes of every page the importer fetches are added
+     * With a doc ID set, only the envelopes not seen before are added, so the index should be kept as long as the set.
+     * Requests are not coalesced while an index is in use, so that every page the importer asks for reaches its index.
+     *
+     * @param replacesIndex the index, which may be shared by several importers, or null to index nothing
+     */
+    public void setReplacesIndex(LRReplacesIndex replacesIndex)
+    {
+        this.replacesIndex = replacesIndex;
+    }
+
+    /**
+     * Set the number of platform threads that fetch the requests of one call at once, such as a harvest of many
+     * request IDs (default 16); in the virtual mode of LRExecution every request gets its own virtual thread
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Get whether concurrent identical requests share one fetch
+     *
+     * @return true if requests are coalesced
+     */
+    public boolean isCoalescing()
+    {
+        return coalescing;
+    }
+
+    /**
+     * Set whether concurrent identical requests share one fetch (default true)
+     * A request made while an identical request to the same node or node group is in progress, by this or any other
+     * importer, waits for that request and gets the same LRResult, which must then not be modified. Cancelling a task
+     * or subscription that waits on a shared request only stops its wait, unless no other caller is left waiting.
+     *
+     * @param coalescing true to coalesce requests
+     */
+    public void setCoalescing(boolean coalescing)
+    {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Get one page of results for a publisher
+     *
+     * @param path the path to use for this request
+     * @param filter set to the filter of the page if the importer has a doc ID set, to be committed by the caller once
+     *      the envelopes have been delivered
+     * @return the result from the request
+     */
+    LRResult getPage(String path, LRDocIDFilter[] filter) throws LRException
+    {
+        if (docIDSet == null)
+        {
+            return getResult(path);
+        }
+        return new LRResult(getJSONFromPath(path, filter));
+    }
+
+    /**
+     * Get the result from the specified path, sharing the fetch of an identical request in progress
+     *
+     * @param path the path to use for this request
+     * @return the result from the request
+     */
+    private LRResult getResult(final String path) throws LRException
+    {
+        if (!coalescing || archive != null || docIDSet != null || replacesIndex != null)
+        {
+            return new LRResult(getJSONFromPath(path, null));
+        }
+
+        List<Object> key = Arrays.asList((nodeGroup != null) ? nodeGroup : importProtocol + "://" + nodeHost, path);
+        Flight flight = new Flight(key, new Callable<LRResult>()
+        {
+            public LRResult call() throws LRException
+            {
+                return new LRResult(getJSONFromPath(path, null));
+            }
+        });
+
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null)
+        {
+            LRClient.joinSharedRequest(flight.aborter);
+            if (LRClient.hasRequestAborter())
+            {
+                // A cancelled task is interrupted, which would fail the fetch for every caller, so the task only
+                // waits for it
+                LRExecution.getSharedExecutor().execute(flight);
+            }
+            else
+            {
+                flight.run();
+            }
+        }
+        else if (LRClient.joinSharedRequest(existing.aborter))
+        {
+            LRInstrumentation.getMetrics().increment(LRInstrumentation.importerCoalesced, 1);
+            flight = existing;
+        }
+        else
+        {
+            // Every caller of the flight was cancelled, so it is failing
+            return new LRResult(getJSONFromPath(path, null));
+        }
+
+        try
+        {
+            return flight.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof LRException)
+            {
+                // A new exception for each caller, rather than one shared between threads
+                throw new LRException(((LRException) cause).getCode());
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new LRException(LRException.IMPORT_FAILED);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.IMPORT_FAILED);
+        }
+        finally
+        {
+            LRClient.leaveSharedRequest(flight.aborter);
+        }
+    }
+
     /**
      * Get the data from the specified path as a JSONObject
      * 
      * @param path the path to use for this request
+     * @param filter set to the doc ID filter of the page, left for the caller to commit; null to commit it here once
+     *      the page has been parsed, archived and indexed
      * @return the JSON from the request
      */
-    private JSONObject getJSONFromPath(String path) throws LRException
+    private JSONObject getJSONFromPath(String path, LRDocIDFilter[] filter) throws LRException
     {
+        LRMetrics metrics = LRInstrumentation.getMetrics();
+        LRFlightRecorder.ImporterPage event = new LRFlightRecorder.ImporterPage();
+        event.begin();
         JSONObject json = null;
         String jsonTxt = null;
         
+        long start = System.nanoTime();
+        long fetched = 0;
+        long parsed = 0;
+        boolean[] notModified = new boolean[1];
+        long[] received = new long[1];
+        LRNodeGroup.Node[] node = new LRNodeGroup.Node[1];
+        LRDocIDFilter docIDFilter = null;
+        
         try
         {
-            jsonTxt = LRClient.executeJsonGet(importProtocol + "://" + nodeHost + path);
+            try
+            {
+                if (cache != null)
+                {
+                    jsonTxt = getCachedText(path, notModified, received, node);
+                }
+                else
+                {
+                    HttpResponse response = (nodeGroup != null) ? nodeGroup.executeGet(path, null, node)
+                        : LRClient.executeGet(importProtocol + "://" + nodeHost + path);
+                    jsonTxt = LRClient.getText(response);
+                    received[0] = LRClient.getReceivedBytes(response);
+                }
+            }
+            catch(LRException e)
+            {
+                metrics.increment(LRInstrumentation.importerErrors, 1);
+                throw e;
+            }
+            catch(Exception e)
+            {
+                metrics.increment(LRInstrumentation.importerErrors, 1);
+                throw new LRException(LRException.IMPORT_FAILED);
+                //e.printStackTrace();
+            }
+            
+            fetched = System.nanoTime();
+            
+            try
+            {
+                String pageTxt = jsonTxt;
+                if (docIDSet != null)
+                {
+                    docIDFilter = new LRDocIDFilter(docIDSet);
+                    pageTxt = docIDFilter.filter(jsonTxt);
+                    metrics.increment(LRInstrumentation.importerDuplicates, docIDFilter.getDropped());
+                }
+                json = new JSONObject(pageTxt);
+                if (node[0] != null)
+                {
+                    // Pinned once parsed, so the token matches the one the next path is built with
+                    nodeGroup.pinResumptionToken(new LRResult(json).getResumptionToken(), node[0]);
+                }
+            }
+            catch(JSONException e)
+            {
+                metrics.increment(LRInstrumentation.importerErrors, 1);
+                throw new LRException(LRException.JSON_IMPORT_FAILED);
+                //e.printStackTrace();
+            }
+            catch(LRException e)
+            {
+                metrics.increment(LRInstrumentation.importerErrors, 1);
+                throw e;
+            }
+            
+            parsed = System.nanoTime();
+            if (archive != null)
+            {
+                archive.append(new LRResult(json));
+            }
+            if (replacesIndex != null)
+            {
+                replacesIndex.addAll(new LRResult(json));
+            }
+            if (docIDFilter != null)
+            {
+                if (filter != null)
+                {
+                    filter[0] = docIDFilter;
+                }
+                else
+                {
+                    docIDFilter.commit();
+                }
+            }
+            metrics.increment(LRInstrumentation.importerPages, 1);
+            metrics.time(LRInstrumentation.importerPageTime, parsed - start);
+            metrics.time(LRInstrumentation.importerParseTime, parsed - fetched);
+            metrics.record(LRInstrumentation.importerPageBytes, received[0]);
+            
+            return json;
         }
-        catch(Exception e)
+        finally
         {
-            throw new LRException(LRException.IMPORT_FAILED);
-            //e.printStackTrace();
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.path = path;
+                event.bytes = received[0];
+                event.parseTime = (parsed != 0) ? parsed - fetched : 0;
+                event.notModified = notModified[0];
+                event.succeeded = (json != null);
+                event.commit();
+            }
         }
-        
-        try
+    }
+
+    /**
+     * Get the text from the specified path, revalidating the cached response if there is one
+     * Responses are cached by the URL of the node that gave them, so for a node group each replica is revalidated
+     * with its own validators.
+     *
+     * @param path the path to use for this request
+     * @param notModified set to true if the cached response was still current
+     * @param received set to the number of bytes of the response body as received
+     * @param node set to the node that answered, for a node group
+     * @return the text of the response
+     */
+    private String getCachedText(String path, boolean[] notModified, long[] received, LRNodeGroup.Node[] node)
+        throws Exception
+    {
+        LRMetrics metrics = LRInstrumentation.getMetrics();
+        String key;
+        LRResponseCache.Entry cached;
+        HttpResponse response;
+
+        if (nodeGroup != null)
         {
-            json = new JSONObject(jsonTxt);
+            // Reads may be hedged, so the entries are looked up from the threads of each node's read
+            final Map<String, LRResponseCache.Entry> sent = new ConcurrentHashMap<String, LRResponseCache.Entry>();
+            response = nodeGroup.executeGet(path, new LRNodeGroup.Validators()
+            {
+                public Header[] getHeaders(String nodeUrl)
+                {
+                    LRResponseCache.Entry entry = cache.get(nodeUrl);
+                    if (entry == null)
+                    {
+                        return null;
+                    }
+                    sent.put(nodeUrl, entry);
+                    return getValidators(entry);
+                }
+            }, node);
+            key = nodeGroup.getUrl(node[0], path);
+            cached = sent.get(key);
         }
-        catch(JSONException e)
+        else
         {
-            throw new LRException(LRException.JSON_IMPORT_FAILED);
-            //e.printStackTrace();
+            key = importProtocol + "://" + nodeHost + path;
+            cached = cache.get(key);
+            response = LRClient.executeGet(key, (cached != null) ? getValidators(cached) : null);
         }
 
-        return json;
+        int status = response.getStatusLine().getStatusCode();
+        received[0] = LRClient.getReceivedBytes(response);
+        if (status == 304 && cached != null)
+        {
+            metrics.increment(LRInstrumentation.importerCacheHits, 1);
+            notModified[0] = true;
+            return cached.text;
+        }
+
+        metrics.increment(LRInstrumentation.importerCacheMisses, 1);
+        String text = LRClient.getText(response);
+        if (status == 200)
+        {
+            Header etag = response.getFirstHeader("ETag");
+            Header lastModified = response.getFirstHeader("Last-Modified");
+            Header cacheControl = response.getFirstHeader("Cache-Control");
+            boolean noStore = cacheControl != null && cacheControl.getValue().toLowerCase().contains("no-store");
+            if ((etag != null || lastModified != null) && !noStore)
+            {
+                cache.put(key, (etag != null) ? etag.getValue() : null, (lastModified != null) ? lastModified.getValue() : null, text);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Get the validators of a cached response, for a conditional request
+     */
+    private static Header[] getValidators(LRResponseCache.Entry cached)
+    {
+        List<Header> headers = new ArrayList<Header>(2);
+        if (cached.etag != null)
+        {
+            headers.add(new BasicHeader("If-None-Match", cached.etag));
+        }
+        if (cached.lastModified != null)
+        {
+            headers.add(new BasicHeader("If-Modified-Since", cached.lastModified));
+        }
+        return headers.toArray(new Header[headers.size()]);
+    }
+
+    /**
+     * Fetch shared by concurrent identical requests
+     * Its request is run under an aborter of its own, which aborts it only once every caller waiting is cancelled.
+     */
+    private static final class Flight extends FutureTask<LRResult>
+    {
+        final LRClient.RequestAborter aborter = new LRClient.RequestAborter();
+        private final List<Object> key;
+
+        Flight(List<Object> key, Callable<LRResult> callable)
+        {
+            super(callable);
+            this.key = key;
+        }
+
+        public void run()
+        {
+            LRClient.RequestAborter previous = LRClient.setRequestAborter(aborter);
+            try
+            {
+                super.run();
+            }
+            finally
+            {
+                LRClient.setRequestAborter(previous);
+                inFlight.remove(key, this);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput of a bulk publish
+ * Counters are updated by the publishing threads and may be read at any time
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRIngestProgress
+{
+    /**
+     * Receiver of periodic progress reports
+     */
+    public interface Listener
+    {
+        /**
+         * Called with the current progress
+         *
+         * @param progress current progress
+         */
+        void progress(LRIngestProgress progress);
+    }
+
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime = 0;
+
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong recordsRead = new AtomicLong();
+    final AtomicLong documentsSigned = new AtomicLong();
+    final AtomicLong documentsPublished = new AtomicLong();
+    final AtomicLong documentsFailed = new AtomicLong();
+    final AtomicLong batchesSent = new AtomicLong();
+
+    private volatile LRException lastError;
+
+    /**
+     * Mark the publish as finished, fixing the elapsed time
+     */
+    void finish()
+    {
+        endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Record a document failure
+     *
+     * @param count number of documents that failed
+     * @param error cause of the failure
+     */
+    void fail(long count, LRException error)
+    {
+        documentsFailed.addAndGet(count);
+        lastError = error;
+    }
+
+    /**
+     * @return number of input bytes read so far
+     */
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return number of input records (lines or IDs) read so far
+     */
+    public long getRecordsRead()
+    {
+        return recordsRead.get();
+    }
+
+    /**
+     * @return number of documents signed so far
+     */
+    public long getDocumentsSigned()
+    {
+        return documentsSigned.get();
+    }
+
+    /**
+     * @return number of documents accepted by the node so far
+     */
+    public long getDocumentsPublished()
+    {
+        return documentsPublished.get();
+    }
+
+    /**
+     * @return number of documents that could not be mapped, signed or published so far
+     */
+    public long getDocumentsFailed()
+    {
+        return documentsFailed.get();
+    }
+
+    /**
+     * @return number of publish requests sent so far
+     */
+    public long getBatchesSent()
+    {
+        return batchesSent.get();
+    }
+
+    /**
+     * @return the last error that caused a document to fail, or null
+     */
+    public LRException getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * @return true once the publish has finished
+     */
+    public boolean isFinished()
+    {
+        return endTime != 0;
+    }
+
+    /**
+     * @return milliseconds elapsed since the publish started, up to when it finished
+     */
+    public long getElapsedMillis()
+    {
+        long end = (endTime != 0) ? endTime : System.currentTimeMillis();
+        return Math.max(end - startTime, 1);
+    }
+
+    /**
+     * @return documents accepted by the node per second
+     */
+    public double getDocumentsPerSecond()
+    {
+        return documentsPublished.get() * 1000.0 / getElapsedMillis();
+    }
+
+    /**
+     * @return input bytes read per second
+     */
+    public double getBytesPerSecond()
+    {
+        return bytesRead.get() * 1000.0 / getElapsedMillis();
+    }
+
+    public String toString()
+    {
+        return String.format("read %d records (%d bytes), signed %d, published %d, failed %d in %d batches; %.1f docs/s",
+            recordsRead.get(), bytesRead.get(), documentsSigned.get(), documentsPublished.get(), documentsFailed.get(),
+            batchesSent.get(), getDocumentsPerSecond());
+    }
+}
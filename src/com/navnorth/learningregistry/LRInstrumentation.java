@@ -0,0 +1,120 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Holder of the metrics installed for the library, and the names of the metrics it reports
+ * Timers are in nanoseconds and sizes in bytes unless named otherwise.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public final class LRInstrumentation
+{
+    // HTTP requests made by LRClient
+    public static final String clientRequests = "lr.client.requests";
+    public static final String clientRequestTime = "lr.client.request.time";
+    public static final String clientRequestErrors = "lr.client.request.errors";
+    public static final String clientRequestTimeouts = "lr.client.request.timeouts";
+    public static final String clientBytesSent = "lr.client.bytes.sent";
+    public static final String clientBytesReceived = "lr.client.bytes.received";
+    public static final String clientThrottleWaitTime = "lr.client.throttle.wait.time";
+    public static final String clientThrottled = "lr.client.throttled";
+    public static final String clientConcurrencyLimit = "lr.client.concurrency.limit";
+    public static final String clientCircuitOpened = "lr.client.circuit.opened";
+    public static final String clientCircuitHalfOpened = "lr.client.circuit.half.opened";
+    public static final String clientCircuitClosed = "lr.client.circuit.closed";
+    public static final String clientCircuitRejected = "lr.client.circuit.rejected";
+
+    // Node selection by LRNodeGroup
+    public static final String nodeGroupFailovers = "lr.nodegroup.failovers";
+    public static final String nodeGroupNodesDown = "lr.nodegroup.nodes.down";
+    public static final String nodeGroupNodesUp = "lr.nodegroup.nodes.up";
+    public static final String nodeGroupHedges = "lr.nodegroup.hedges";
+    public static final String nodeGroupHedgeWins = "lr.nodegroup.hedge.wins";
+
+    // Publish batches sent by LRExporter
+    public static final String exporterBatches = "lr.exporter.batches";
+    public static final String exporterBatchTime = "lr.exporter.batch.time";
+    public static final String exporterBatchDocuments = "lr.exporter.batch.documents";
+    public static final String exporterBatchBytes = "lr.exporter.batch.bytes";
+    public static final String exporterBatchErrors = "lr.exporter.batch.errors";
+    public static final String exporterDocumentsPublished = "lr.exporter.documents.published";
+    public static final String exporterDocumentsFailed = "lr.exporter.documents.failed";
+
+    // Stages of LRPublishPipeline; times are per document or batch, utilization is in percent of the stage's threads
+    public static final String pipelineBuildTime = "lr.pipeline.build.time";
+    public static final String pipelineBuildUtilization = "lr.pipeline.build.utilization";
+    public static final String pipelineSignTime = "lr.pipeline.sign.time";
+    public static final String pipelineSignUtilization = "lr.pipeline.sign.utilization";
+    public static final String pipelineSerializeTime = "lr.pipeline.serialize.time";
+    public static final String pipelineSerializeUtilization = "lr.pipeline.serialize.utilization";
+    public static final String pipelineSendTime = "lr.pipeline.send.time";
+    public static final String pipelineSendUtilization = "lr.pipeline.send.utilization";
+
+    // Signatures made by LRSigner
+    public static final String signerSignTime = "lr.signer.sign.time";
+    public static final String signerDocumentsSigned = "lr.signer.documents.signed";
+    public static final String signerErrors = "lr.signer.errors";
+
+    // Verifications made by LRVerify
+    public static final String verifyTime = "lr.verify.time";
+    public static final String verifyVerified = "lr.verify.verified";
+    public static final String verifyRejected = "lr.verify.rejected";
+    public static final String verifyErrors = "lr.verify.errors";
+
+    // Pages fetched by LRImporter
+    public static final String importerPages = "lr.importer.pages";
+    public static final String importerPageTime = "lr.importer.page.time";
+    public static final String importerParseTime = "lr.importer.parse.time";
+    public static final String importerPageBytes = "lr.importer.page.bytes";
+    public static final String importerErrors = "lr.importer.errors";
+    public static final String importerCacheHits = "lr.importer.cache.hits";
+    public static final String importerCacheMisses = "lr.importer.cache.misses";
+    public static final String importerCoalesced = "lr.importer.coalesced";
+    public static final String importerDuplicates = "lr.importer.duplicates";
+
+    private static volatile LRMetrics metrics = LRMetrics.NOOP;
+
+    private LRInstrumentation()
+    {
+    }
+
+    /**
+     * Install the metrics that every part of the library reports to
+     *
+     * @param metrics metrics to report to, or null to discard metrics
+     */
+    public static void setMetrics(LRMetrics metrics)
+    {
+        LRInstrumentation.metrics = (metrics != null) ? metrics : LRMetrics.NOOP;
+    }
+
+    /**
+     * Get the installed metrics
+     *
+     * @return installed metrics, never null
+     */
+    public static LRMetrics getMetrics()
+    {
+        return metrics;
+    }
+}
@@ -17,6 +17,7 @@ import com.navnorth.learningregistry.util.StringUtil;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 import org.json.*;
 import org.codehaus.jackson.map.ObjectMapper;
 
@@ -126,6 +127,48 @@ public class LRJSONDocument extends LREnvelope
     		submissionAttribution, signer, replaces);
     }
     
+    /**
+     * Create a new document from resource data that has already been decoded into a map
+     * Used by LRDocumentTemplate to avoid encoding and decoding the resource data again
+     *
+     * @param resourceData value for "resource_data"
+     * @param resourceDataType value for "resource_data_type"
+     * @param resourceLocator value for "resource_locator"
+     * @param curator value for "curator"
+     * @param owner value for "owner"
+     * @param tags value for "keys"
+     * @param payloadPlacement value for "payload_placement"
+     * @param payloadSchemaLocator value for "payload_schema_locator"
+     * @param payloadSchema value for "payload_schema"
+     * @param submitter value for "submitter"
+     * @param submitterType value for "submitter_type"
+     * @param submissionTOS value for "submission_TOS"
+     * @param submissionAttribution value for "submission_attribution"
+     * @param signer value for "signer"
+     * @param replaces array of document IDs to be replaced by this document
+     */
+    LRJSONDocument(Map<String, Object> resourceData, String resourceDataType, String resourceLocator, String curator, String owner, String[] tags,
+        String payloadPlacement, String payloadSchemaLocator, String[] payloadSchema,
+        String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer,
+        String[] replaces)
+    {
+        this.resourceData = resourceData;
+        this.resourceDataType = StringUtil.nullifyBadInput(resourceDataType);
+        this.resourceLocator = StringUtil.nullifyBadInput(resourceLocator);
+        this.curator = StringUtil.nullifyBadInput(curator);
+        this.owner = StringUtil.nullifyBadInput(owner);
+        this.tags = StringUtil.removeDuplicates(tags);
+        this.payloadPlacement = StringUtil.nullifyBadInput(payloadPlacement);
+        this.payloadSchemaLocator = StringUtil.nullifyBadInput(payloadSchemaLocator);
+        this.payloadSchema = StringUtil.nullifyBadInput(payloadSchema);
+        this.submissionTOS = StringUtil.nullifyBadInput(submissionTOS);
+        this.submissionAttribution = StringUtil.nullifyBadInput(submissionAttribution);
+        this.submitterType = StringUtil.nullifyBadInput(submitterType);
+        this.submitter = StringUtil.nullifyBadInput(submitter);
+        this.signer = StringUtil.nullifyBadInput(signer);
+        this.replaces = StringUtil.removeDuplicates(replaces);
+    }
+    
     protected void initProperties(LRJSONDocument document, JSONObject resourceData, String resourceDataType, String resourceLocator, String curator, String owner, String[] tags,
             String payloadPlacement, String payloadSchemaLocator, String[] payloadSchema,
             String submitter, String submitterType, String submissionTOS, String submissionAttribution, String signer,
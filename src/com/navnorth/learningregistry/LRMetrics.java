@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Receiver of the metrics reported by the library
+ * Implement this to forward counters, timers and histograms to a monitoring system, and install it with
+ * LRInstrumentation.setMetrics(). Methods are called from any thread, on the request path, so they should not block.
+ * Metric names are the constants of LRInstrumentation.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public interface LRMetrics
+{
+    /**
+     * Metrics that discard everything; the default
+     */
+    LRMetrics NOOP = new LRMetrics()
+    {
+        public void increment(String name, long delta)
+        {
+        }
+
+        public void time(String name, long nanos)
+        {
+        }
+
+        public void record(String name, long value)
+        {
+        }
+    };
+
+    /**
+     * Add to a counter
+     *
+     * @param name name of the counter
+     * @param delta amount to add
+     */
+    void increment(String name, long delta);
+
+    /**
+     * Record the duration of an operation
+     *
+     * @param name name of the timer
+     * @param nanos duration in nanoseconds
+     */
+    void time(String name, long nanos);
+
+    /**
+     * Record a value in a histogram (e.g. a size in bytes or documents)
+     *
+     * @param name name of the histogram
+     * @param value value to record
+     */
+    void record(String name, long value);
+}
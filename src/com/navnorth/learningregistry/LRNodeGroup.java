@@ -0,0 +1,870 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.StringUtil;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.StringEntity;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Group of replica Learning Registry nodes that share harvest and publish traffic
+ * Each request goes to the better of two randomly chosen nodes, by fewest outstanding requests or by recent latency
+ * weighted by outstanding requests. Nodes are health-checked passively: a node that fails several requests in a row is
+ * marked down and skipped, then given a single probe request once its down time has passed; the down time doubles
+ * each time a probe fails. Reads that fail on one node are retried on another, except pages of a resumption token,
+ * which only the node that issued the token can serve. Publishes are only retried when the connection was refused,
+ * since nothing was sent.
+ * Reads can optionally be hedged: a read still waiting after a percentile of recent read latency is also sent to a
+ * second node (or, for a single node or a resumption token, over a second connection to the same node), the first
+ * response is used and the other request is aborted. A budget caps hedges at a fraction of reads.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRNodeGroup
+{
+    // Node selection
+    public static final int LEAST_OUTSTANDING = 0;
+    public static final int LATENCY_WEIGHTED = 1;
+
+    private static final String resumptionTokenParam = "resumption_token=";
+    private static final int maxPinnedTokens = 4096;
+
+    // Weight of the newest sample in the latency average
+    private static final double latencyWeight = 0.3;
+
+    // Read latencies kept to find the hedge delay, and how often the delay is recomputed
+    private static final int latencySampleCount = 512;
+    private static final int minLatencySamples = 64;
+    private static final int hedgeDelayInterval = 32;
+    private static final long minHedgeDelay = 1000000L;
+    private static final double maxHedgeCredit = 10;
+
+    private final String protocol;
+    private final List<Node> nodes = new CopyOnWriteArrayList<Node>();
+
+    // Node that issued each resumption token, least recently used first
+    private final Map<String, Node> pinnedTokens = new LinkedHashMap<String, Node>(16, 0.75f, true)
+    {
+        protected boolean removeEldestEntry(Map.Entry<String, Node> eldest)
+        {
+            return size() > maxPinnedTokens;
+        }
+    };
+
+    private volatile int selection = LEAST_OUTSTANDING;
+    private volatile int failureThreshold = 3;
+    private volatile long minDownTime = 1000;
+    private volatile long maxDownTime = 30 * 1000;
+
+    // Hedging; guarded by the lock of latencySamples
+    private final long[] latencySamples = new long[latencySampleCount];
+    private long latencySampleTotal = 0;
+    private double hedgeCredit = 0;
+    private volatile double hedgePercentile = 0;
+    private volatile double hedgeBudget = 0;
+    private volatile long hedgeDelay = 0;
+
+    /**
+     * Creates a group of nodes
+     *
+     * @param protocol protocol used for every node (typically "http" or "https")
+     * @param nodeHosts IP/domain (and optional port) of each node
+     */
+    public LRNodeGroup(String protocol, List<String> nodeHosts)
+    {
+        this.protocol = protocol;
+        for (String nodeHost : nodeHosts)
+        {
+            addNode(nodeHost);
+        }
+    }
+
+    /**
+     * Creates a group of nodes
+     *
+     * @param protocol protocol used for every node (typically "http" or "https")
+     * @param nodeHosts IP/domain (and optional port) of each node
+     */
+    public LRNodeGroup(String protocol, String... nodeHosts)
+    {
+        this.protocol = protocol;
+        for (String nodeHost : nodeHosts)
+        {
+            addNode(nodeHost);
+        }
+    }
+
+    /**
+     * Add a node to the group; it starts as up
+     *
+     * @param nodeHost IP/domain (and optional port) of the node
+     */
+    public void addNode(String nodeHost)
+    {
+        nodeHost = StringUtil.nullifyBadInput(nodeHost);
+        if (nodeHost != null && getNode(nodeHost) == null)
+        {
+            nodes.add(new Node(nodeHost));
+        }
+    }
+
+    /**
+     * Remove a node from the group; requests already sent to it are not affected
+     *
+     * @param nodeHost IP/domain (and optional port) of the node
+     */
+    public void removeNode(String nodeHost)
+    {
+        Node node = getNode(nodeHost);
+        if (node != null)
+        {
+            nodes.remove(node);
+        }
+    }
+
+    /**
+     * Get the state of a node
+     *
+     * @param nodeHost IP/domain (and optional port) of the node
+     * @return the node, or null if it is not in the group
+     */
+    public Node getNode(String nodeHost)
+    {
+        for (Node node : nodes)
+        {
+            if (node.host.equals(nodeHost))
+            {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return state of every node in the group
+     */
+    public List<Node> getNodes()
+    {
+        return new ArrayList<Node>(nodes);
+    }
+
+    /**
+     * @return protocol used for every node
+     */
+    public String getProtocol()
+    {
+        return protocol;
+    }
+
+    /**
+     * Sets how nodes are chosen (default LEAST_OUTSTANDING)
+     *
+     * @param selection LEAST_OUTSTANDING or LATENCY_WEIGHTED
+     */
+    public void setSelection(int selection)
+    {
+        this.selection = selection;
+    }
+
+    /**
+     * Sets the number of failures in a row that mark a node down (default 3)
+     *
+     * @param failureThreshold number of failures
+     */
+    public void setFailureThreshold(int failureThreshold)
+    {
+        this.failureThreshold = Math.max(failureThreshold, 1);
+    }
+
+    /**
+     * Sets how long a node stays down before it is probed; the time doubles after each failed probe
+     *
+     * @param minDownTime first down time in milliseconds (default 1 second)
+     * @param maxDownTime longest down time in milliseconds (default 30 seconds)
+     */
+    public void setDownTime(long minDownTime, long maxDownTime)
+    {
+        this.minDownTime = Math.max(minDownTime, 0);
+        this.maxDownTime = Math.max(maxDownTime, this.minDownTime);
+    }
+
+    /**
+     * Sets hedging of reads (default off)
+     * Once enough reads have completed, a read still waiting after the given percentile of recent read latency is
+     * also sent elsewhere. Each read earns the budget in hedge credit, and each hedge spends one, so a budget of 0.05
+     * allows at most one hedge for every twenty reads over time.
+     *
+     * @param percentile percentile of read latency to wait before hedging (e.g. 95), or 0 to turn hedging off
+     * @param budget fraction of reads that may be hedged (e.g. 0.05)
+     */
+    public void setHedging(double percentile, double budget)
+    {
+        this.hedgePercentile = Math.min(Math.max(percentile, 0), 100);
+        this.hedgeBudget = Math.max(budget, 0);
+        synchronized (latencySamples)
+        {
+            updateHedgeDelay();
+        }
+    }
+
+    /**
+     * Get a path from a node of the group, failing over to other nodes
+     * A path with a resumption token goes to the node that issued the token.
+     *
+     * @param path path and query of the request
+     * @return text of the response
+     */
+    public String executeJsonGet(String path) throws Exception
+    {
+        Read read = get(path, null);
+        String text = LRClient.getText(read.response);
+        try
+        {
+            pinResumptionToken(new LRResult(new JSONObject(text)).getResumptionToken(), read.node);
+        }
+        catch (JSONException e)
+        {
+            // Not a page of results, so there is no token to pin
+        }
+        return text;
+    }
+
+    /**
+     * Get a path from a node of the group, as a conditional request if validators are given
+     * The validators sent to a node are those of the response cached from that node, since replicas do not share them.
+     * The resumption token of the page is not pinned; the caller pins it with pinResumptionToken() once it has parsed
+     * the page, or taken it from the cache on a 304.
+     *
+     * @param path path and query of the request
+     * @param validators validators of the responses cached from each node, or null
+     * @param node set to the node that answered
+     * @return response, with its body buffered in memory
+     */
+    HttpResponse executeGet(String path, Validators validators, Node[] node) throws Exception
+    {
+        Read read = get(path, validators);
+        node[0] = read.node;
+        return read.response;
+    }
+
+    /**
+     * Get the URL of a path on a node of the group
+     *
+     * @param node node of the group
+     * @param path path and query of the request
+     * @return URL of the request
+     */
+    String getUrl(Node node, String path)
+    {
+        return protocol + "://" + node.host + path;
+    }
+
+    private Read get(String path, Validators validators) throws Exception
+    {
+        Node pinned = getPinnedNode(path);
+        if (pinned != null)
+        {
+            return hedgedGet(pinned, path, validators, null);
+        }
+
+        List<Node> tried = new ArrayList<Node>();
+        Exception failure = null;
+
+        while (true)
+        {
+            Node node = select(tried);
+            if (node == null)
+            {
+                break;
+            }
+            boolean first = tried.isEmpty();
+            if (!first)
+            {
+                LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupFailovers, 1);
+            }
+            tried.add(node);
+
+            Read read;
+            try
+            {
+                read = first ? hedgedGet(node, path, validators, tried) : new Read(node, path, validators).call();
+            }
+            catch (LRException e)
+            {
+                if (e.getCode() == LRException.RESPONSE_TOO_LARGE)
+                {
+                    // Every replica would return the same response
+                    throw e;
+                }
+                failure = e;
+                continue;
+            }
+            catch (Exception e)
+            {
+                failure = e;
+                continue;
+            }
+
+            if (read.response.getStatusLine().getStatusCode() >= 500 && tried.size() < nodes.size())
+            {
+                continue;
+            }
+            return read;
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+        throw new LRException(LRException.NO_NODES);
+    }
+
+    /**
+     * Post JSON to a node of the group
+     * Only a refused connection or an open circuit breaker fails over to another node, since otherwise the node may
+     * have stored the documents.
+     *
+     * @param path path of the service
+     * @param se JSON body
+     * @param username user for basic authentication, or null
+     * @param password password for basic authentication, or null
+     * @return response of the node
+     */
+    public HttpResponse executeJsonPost(String path, StringEntity se, String username, String password) throws Exception
+    {
+        List<Node> tried = new ArrayList<Node>();
+
+        while (true)
+        {
+            Node node = select(tried);
+            if (node == null)
+            {
+                throw new LRException(LRException.NO_NODES);
+            }
+            if (!tried.isEmpty())
+            {
+                LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupFailovers, 1);
+            }
+            tried.add(node);
+
+            long start = node.begin();
+            try
+            {
+                HttpResponse response = LRClient.executeJsonPost(protocol + "://" + node.host + path, se, username, password);
+                node.end(start, response.getStatusLine().getStatusCode() < 500);
+                return response;
+            }
+            catch (ConnectException e)
+            {
+                node.end(start, false);
+                if (tried.size() >= nodes.size())
+                {
+                    throw e;
+                }
+            }
+            catch (LRException e)
+            {
+                node.end(start, false);
+                if (e.getCode() != LRException.CIRCUIT_OPEN || tried.size() >= nodes.size())
+                {
+                    throw e;
+                }
+            }
+            catch (Exception e)
+            {
+                node.end(start, false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Read from a node, hedging the read if it is slow and the budget allows
+     *
+     * @param node node to read from
+     * @param path path and query of the request
+     * @param validators validators of the responses cached from each node, or null
+     * @param tried nodes already tried for this request, to which a hedge node is added; null to hedge on the same node
+     * @return the first successful read
+     */
+    private Read hedgedGet(Node node, String path, Validators validators, List<Node> tried) throws Exception
+    {
+        long delay = hedgeDelay;
+        Read primary = new Read(node, path, validators);
+        if (delay <= 0)
+        {
+            return primary.call();
+        }
+
+        CompletionService<Read> completion = new ExecutorCompletionService<Read>(LRExecution.getSharedExecutor());
+        Read hedge = null;
+        Read winner = null;
+
+        try
+        {
+            completion.submit(primary);
+            Future<Read> done = completion.poll(delay, TimeUnit.NANOSECONDS);
+            if (done != null)
+            {
+                winner = getRead(done);
+                return winner;
+            }
+
+            if (!spendHedgeCredit())
+            {
+                winner = getRead(completion.take());
+                return winner;
+            }
+
+            Node second = (tried != null) ? select(tried) : null;
+            if (second != null)
+            {
+                tried.add(second);
+            }
+            else
+            {
+                second = node;
+            }
+
+            LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupHedges, 1);
+            hedge = new Read(second, path, validators);
+            completion.submit(hedge);
+
+            Exception failure = null;
+            for (int i = 0; i < 2; i++)
+            {
+                try
+                {
+                    winner = getRead(completion.take());
+                    if (winner == hedge)
+                    {
+                        LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupHedgeWins, 1);
+                    }
+                    return winner;
+                }
+                catch (Exception e)
+                {
+                    failure = e;
+                }
+            }
+            throw failure;
+        }
+        finally
+        {
+            if (winner != primary)
+            {
+                primary.cancel();
+            }
+            if (hedge != null && winner != hedge)
+            {
+                hedge.cancel();
+            }
+        }
+    }
+
+    private static Read getRead(Future<Read> future) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof Exception)
+            {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Spend the credit for one hedge, if the reads so far have earned it
+     */
+    private boolean spendHedgeCredit()
+    {
+        synchronized (latencySamples)
+        {
+            if (hedgeCredit >= 1)
+            {
+                hedgeCredit -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void recordReadLatency(long nanos)
+    {
+        synchronized (latencySamples)
+        {
+            latencySamples[(int) (latencySampleTotal % latencySampleCount)] = nanos;
+            latencySampleTotal++;
+            hedgeCredit = Math.min(hedgeCredit + hedgeBudget, maxHedgeCredit);
+            if (latencySampleTotal % hedgeDelayInterval == 0)
+            {
+                updateHedgeDelay();
+            }
+        }
+    }
+
+    /**
+     * Recompute the hedge delay from the latency samples; called with the lock of latencySamples held
+     */
+    private void updateHedgeDelay()
+    {
+        if (hedgePercentile <= 0 || hedgeBudget <= 0 || latencySampleTotal < minLatencySamples)
+        {
+            hedgeDelay = 0;
+            return;
+        }
+
+        int count = (int) Math.min(latencySampleTotal, latencySampleCount);
+        long[] sorted = Arrays.copyOf(latencySamples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(Math.ceil(hedgePercentile / 100 * count), count) - 1;
+        hedgeDelay = Math.max(sorted[Math.max(index, 0)], minHedgeDelay);
+    }
+
+    /**
+     * Choose the better of two random nodes that have not been tried
+     * Nodes that are down are skipped until their down time has passed, when a single probe is let through. If every
+     * untried node is down, the one that has been down longest is chosen rather than failing outright.
+     *
+     * @param tried nodes already tried for this request
+     * @return the node, or null if every node has been tried
+     */
+    private Node select(List<Node> tried)
+    {
+        List<Node> available = new ArrayList<Node>();
+        Node fallback = null;
+        long now = System.nanoTime();
+
+        for (Node node : nodes)
+        {
+            if (tried.contains(node))
+            {
+                continue;
+            }
+            if (node.isAvailable(now))
+            {
+                available.add(node);
+            }
+            else if (fallback == null || node.downUntil < fallback.downUntil)
+            {
+                fallback = node;
+            }
+        }
+
+        while (!available.isEmpty())
+        {
+            Node node = available.get(ThreadLocalRandom.current().nextInt(available.size()));
+            if (available.size() > 1)
+            {
+                Node other = available.get(ThreadLocalRandom.current().nextInt(available.size()));
+                if (other != node && score(other) < score(node))
+                {
+                    node = other;
+                }
+            }
+
+            if (node.up || node.probing.compareAndSet(false, true))
+            {
+                return node;
+            }
+            // Another thread is already probing this node
+            available.remove(node);
+            if (fallback == null)
+            {
+                fallback = node;
+            }
+        }
+
+        return fallback;
+    }
+
+    private double score(Node node)
+    {
+        if (selection == LATENCY_WEIGHTED)
+        {
+            return (node.latency + 1) * (node.outstanding.get() + 1);
+        }
+        return node.outstanding.get() + node.latency / 1e12;
+    }
+
+    private Node getPinnedNode(String path)
+    {
+        int start = path.indexOf(resumptionTokenParam);
+        if (start < 0)
+        {
+            return null;
+        }
+        start += resumptionTokenParam.length();
+        int end = path.indexOf('&', start);
+        String token = (end < 0) ? path.substring(start) : path.substring(start, end);
+
+        synchronized (pinnedTokens)
+        {
+            Node node = pinnedTokens.get(token);
+            return (node != null && nodes.contains(node)) ? node : null;
+        }
+    }
+
+    /**
+     * Remember the node that issued a resumption token, so that the pages of the token are read from it
+     *
+     * @param token resumption token of a page, as parsed, or null if the page has none
+     * @param node node that answered the page
+     */
+    void pinResumptionToken(String token, Node node)
+    {
+        if (token == null || token.length() == 0)
+        {
+            return;
+        }
+
+        synchronized (pinnedTokens)
+        {
+            pinnedTokens.put(token, node);
+        }
+    }
+
+    /**
+     * A read from one node, which can be aborted from another thread
+     */
+    private final class Read implements Callable<Read>
+    {
+        final Node node;
+        final String url;
+        final HttpGet request;
+        HttpResponse response;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+
+        Read(Node node, String path, Validators validators) throws Exception
+        {
+            this.node = node;
+            this.url = getUrl(node, path);
+            this.request = LRClient.createGet(url);
+            Header[] headers = (validators != null) ? validators.getHeaders(url) : null;
+            if (headers != null)
+            {
+                this.request.setHeaders(headers);
+            }
+        }
+
+        public Read call() throws Exception
+        {
+            long start = node.begin();
+            boolean healthy = false;
+            try
+            {
+                response = LRClient.execute(request);
+                healthy = response.getStatusLine().getStatusCode() < 500;
+                if (healthy)
+                {
+                    recordReadLatency(System.nanoTime() - start);
+                }
+                return this;
+            }
+            catch (LRException e)
+            {
+                // An oversized response says nothing about the health of the node
+                healthy = (e.getCode() == LRException.RESPONSE_TOO_LARGE);
+                throw e;
+            }
+            finally
+            {
+                finished = true;
+                if (cancelled)
+                {
+                    // Losing a hedge says nothing about the health of the node
+                    node.release();
+                }
+                else
+                {
+                    node.end(start, healthy);
+                }
+            }
+        }
+
+        void cancel()
+        {
+            cancelled = true;
+            if (!finished)
+            {
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * Validators of the responses cached from each node, for conditional reads
+     */
+    interface Validators
+    {
+        /**
+         * Get the validators of the response cached from one node
+         *
+         * @param url URL of the read on that node
+         * @return headers to send, or null
+         */
+        Header[] getHeaders(String url);
+    }
+
+    /**
+     * Health and load of a node in a group
+     */
+    public final class Node
+    {
+        private final String host;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean probing = new AtomicBoolean();
+
+        // Written under the lock of the node, read without it
+        private volatile boolean up = true;
+        private volatile double latency = 0;
+        private volatile long downUntil = 0;
+
+        // Guarded by the lock of the node
+        private int failures = 0;
+        private long downTime = 0;
+
+        Node(String host)
+        {
+            this.host = host;
+        }
+
+        /**
+         * @return IP/domain (and optional port) of the node
+         */
+        public String getHost()
+        {
+            return host;
+        }
+
+        /**
+         * @return false if the node has been marked down
+         */
+        public boolean isUp()
+        {
+            return up;
+        }
+
+        /**
+         * @return number of requests sent to the node that have not completed
+         */
+        public int getOutstanding()
+        {
+            return outstanding.get();
+        }
+
+        /**
+         * @return moving average of the latency of successful requests, in milliseconds
+         */
+        public double getLatency()
+        {
+            return latency / 1e6;
+        }
+
+        boolean isAvailable(long now)
+        {
+            return up || (now - downUntil >= 0 && !probing.get());
+        }
+
+        long begin()
+        {
+            outstanding.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        void release()
+        {
+            outstanding.decrementAndGet();
+            probing.set(false);
+        }
+
+        void end(long start, boolean healthy)
+        {
+            outstanding.decrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            boolean markedDown = false;
+            boolean markedUp = false;
+
+            synchronized (this)
+            {
+                if (healthy)
+                {
+                    latency = (latency == 0) ? elapsed : latency + latencyWeight * (elapsed - latency);
+                    failures = 0;
+                    downTime = 0;
+                    markedUp = !up;
+                    up = true;
+                }
+                else if (!up || ++failures >= failureThreshold)
+                {
+                    downTime = (downTime == 0) ? minDownTime : Math.min(downTime * 2, maxDownTime);
+                    downUntil = System.nanoTime() + downTime * 1000000L;
+                    markedDown = up;
+                    up = false;
+                }
+                probing.set(false);
+            }
+
+            if (markedDown)
+            {
+                LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupNodesDown, 1);
+            }
+            else if (markedUp)
+            {
+                LRInstrumentation.getMetrics().increment(LRInstrumentation.nodeGroupNodesUp, 1);
+            }
+        }
+
+        public String toString()
+        {
+            return host + (up ? " (up" : " (down") + ", " + outstanding.get() + " outstanding)";
+        }
+    }
+}
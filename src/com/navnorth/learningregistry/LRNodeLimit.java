@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+/**
+ * Rate and concurrency limits for the requests LRClient sends to a node
+ * Install limits with LRClient.setNodeLimit() or LRClient.setDefaultNodeLimit(); they are shared by every importer,
+ * exporter and node group in the JVM. Later changes to the limit object have no effect until it is installed again.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRNodeLimit
+{
+    private double requestsPerSecond = 0;
+    private int burst = 0;
+    private int maxConcurrency = 0;
+    private int minConcurrency = 1;
+    private int initialConcurrency = 4;
+    private boolean adaptive = true;
+    private long maxWait = 60 * 1000;
+
+    /**
+     * Create limits that allow everything; set a rate or a concurrency to limit requests
+     */
+    public LRNodeLimit()
+    {
+    }
+
+    /**
+     * Create a copy of limits
+     *
+     * @param limit limits to copy
+     */
+    public LRNodeLimit(LRNodeLimit limit)
+    {
+        this.requestsPerSecond = limit.requestsPerSecond;
+        this.burst = limit.burst;
+        this.maxConcurrency = limit.maxConcurrency;
+        this.minConcurrency = limit.minConcurrency;
+        this.initialConcurrency = limit.initialConcurrency;
+        this.adaptive = limit.adaptive;
+        this.maxWait = limit.maxWait;
+    }
+
+    /**
+     * @return largest sustained rate of requests, per second
+     */
+    public double getRequestsPerSecond()
+    {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Sets the largest sustained rate of requests (default no limit)
+     *
+     * @param requestsPerSecond requests per second, or 0 for no limit
+     */
+    public void setRequestsPerSecond(double requestsPerSecond)
+    {
+        this.requestsPerSecond = Math.max(requestsPerSecond, 0);
+    }
+
+    /**
+     * @return number of requests that may be sent at once after a quiet period
+     */
+    public int getBurst()
+    {
+        return (burst > 0) ? burst : (int) Math.max(Math.ceil(requestsPerSecond), 1);
+    }
+
+    /**
+     * Sets the number of requests that may be sent at once after a quiet period (default one second of requests)
+     *
+     * @param burst number of requests
+     */
+    public void setBurst(int burst)
+    {
+        this.burst = Math.max(burst, 0);
+    }
+
+    /**
+     * @return largest number of requests in progress at once
+     */
+    public int getMaxConcurrency()
+    {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the largest number of requests in progress at once (default no limit)
+     *
+     * @param maxConcurrency number of requests, or 0 for no limit
+     */
+    public void setMaxConcurrency(int maxConcurrency)
+    {
+        this.maxConcurrency = Math.max(maxConcurrency, 0);
+    }
+
+    /**
+     * @return smallest concurrency the adaptive limit falls to
+     */
+    public int getMinConcurrency()
+    {
+        return minConcurrency;
+    }
+
+    /**
+     * Sets the smallest concurrency the adaptive limit falls to (default 1)
+     *
+     * @param minConcurrency number of requests
+     */
+    public void setMinConcurrency(int minConcurrency)
+    {
+        this.minConcurrency = Math.max(minConcurrency, 1);
+    }
+
+    /**
+     * @return concurrency the adaptive limit starts at
+     */
+    public int getInitialConcurrency()
+    {
+        return initialConcurrency;
+    }
+
+    /**
+     * Sets the concurrency the adaptive limit starts at (default 4)
+     *
+     * @param initialConcurrency number of requests
+     */
+    public void setInitialConcurrency(int initialConcurrency)
+    {
+        this.initialConcurrency = Math.max(initialConcurrency, 1);
+    }
+
+    /**
+     * @return true if the concurrency limit adapts to the latency of the node
+     */
+    public boolean isAdaptive()
+    {
+        return adaptive;
+    }
+
+    /**
+     * Sets whether the concurrency limit adapts to the latency of the node (default true)
+     * An adaptive limit grows while latency stays near the latency of the unloaded node and shrinks as latency rises,
+     * or when the node times out or answers 429 or 503. A fixed limit stays at the maximum concurrency.
+     *
+     * @param adaptive true to adapt the limit
+     */
+    public void setAdaptive(boolean adaptive)
+    {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @return longest time a request waits for the limits, in milliseconds
+     */
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    /**
+     * Sets the longest time a request waits for the limits before failing with THROTTLED (default 60 seconds)
+     *
+     * @param maxWait time in milliseconds
+     */
+    public void setMaxWait(long maxWait)
+    {
+        this.maxWait = Math.max(maxWait, 0);
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket and adaptive concurrency limit for the requests sent to one node
+ * The concurrency limit follows the latency gradient: the ratio of the no-load latency to the recent average
+ * latency. The no-load latency is the least recent average seen over the last two windows of requests, which is
+ * steadier than the least single latency when latency varies from request to request. While recent latency stays
+ * within the tolerance of the no-load latency the limit grows by about its square root per update, allowing a short
+ * queue at the node; as requests queue longer the limit shrinks in proportion. Timeouts and 429 or 503 responses cut the limit, and a
+ * Retry-After pauses all requests to the node.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+final class LRNodeThrottle
+{
+    // Outcomes of a request, for the concurrency limit
+    static final int IGNORED = 0;
+    static final int SUCCEEDED = 1;
+    static final int DROPPED = 2;
+
+    // Recent latency over the no-load latency allowed before the limit shrinks
+    private static final double tolerance = 1.5;
+    private static final int rttWindow = 500;
+    private static final double shortRttWeight = 0.2;
+    private static final double limitSmoothing = 0.2;
+    private static final double dropBackoff = 0.9;
+
+    private final LRNodeLimit limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // Guarded by lock
+    private double tokens;
+    private long refilled;
+    private long pausedUntil;
+    private int inFlight;
+    private double concurrencyLimit;
+    private double noLoadRtt;
+    private double windowMinRtt;
+    private double previousWindowMinRtt;
+    private int windowSamples;
+    private double shortRtt;
+
+    LRNodeThrottle(LRNodeLimit limit)
+    {
+        this.limit = new LRNodeLimit(limit);
+        this.tokens = this.limit.getBurst();
+        this.refilled = System.nanoTime();
+
+        int max = this.limit.getMaxConcurrency();
+        this.concurrencyLimit = this.limit.isAdaptive()
+            ? Math.min(Math.max(this.limit.getInitialConcurrency(), this.limit.getMinConcurrency()), max)
+            : max;
+    }
+
+    /**
+     * Wait for a rate token and a concurrency permit
+     *
+     * @return nanoseconds spent waiting
+     * @throws LRException THROTTLED if the wait would be longer than allowed
+     */
+    long acquire() throws LRException
+    {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(limit.getMaxWait());
+        double rate = limit.getRequestsPerSecond();
+        int maxConcurrency = limit.getMaxConcurrency();
+
+        lock.lock();
+        try
+        {
+            while (true)
+            {
+                long now = System.nanoTime();
+                refill(now, rate);
+
+                boolean permitted = maxConcurrency <= 0 || inFlight < (int) concurrencyLimit;
+                long wait = 0;
+                if (pausedUntil - now > 0)
+                {
+                    wait = pausedUntil - now;
+                }
+                else if (rate > 0 && tokens < 1)
+                {
+                    wait = (long) Math.ceil((1 - tokens) / rate * 1e9);
+                }
+
+                if (permitted && wait == 0)
+                {
+                    if (rate > 0)
+                    {
+                        tokens -= 1;
+                    }
+                    inFlight++;
+                    return now - start;
+                }
+
+                long remaining = deadline - now;
+                if (remaining <= 0 || (permitted && wait > remaining))
+                {
+                    throw new LRException(LRException.THROTTLED);
+                }
+                changed.awaitNanos(wait > 0 ? Math.min(wait, remaining) : remaining);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.THROTTLED);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the permit of a completed request, and adapt the concurrency limit to its outcome
+     *
+     * @param rtt time the request took, in nanoseconds
+     * @param outcome SUCCEEDED, DROPPED (timed out or refused by the node's protections) or IGNORED
+     */
+    void release(long rtt, int outcome)
+    {
+        lock.lock();
+        try
+        {
+            int wasInFlight = inFlight;
+            inFlight--;
+
+            if (limit.isAdaptive() && limit.getMaxConcurrency() > 0)
+            {
+                if (outcome == DROPPED)
+                {
+                    setConcurrencyLimit(concurrencyLimit * dropBackoff);
+                }
+                else if (outcome == SUCCEEDED)
+                {
+                    updateLatency(rtt, wasInFlight);
+                }
+            }
+            changed.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop sending requests to the node for a time, as asked by a Retry-After header
+     *
+     * @param millis time to pause in milliseconds
+     */
+    void pause(long millis)
+    {
+        lock.lock();
+        try
+        {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            if (until - pausedUntil > 0)
+            {
+                pausedUntil = until;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return current concurrency limit, or 0 if concurrency is not limited
+     */
+    int getConcurrencyLimit()
+    {
+        lock.lock();
+        try
+        {
+            return (limit.getMaxConcurrency() > 0) ? (int) concurrencyLimit : 0;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now, double rate)
+    {
+        if (rate > 0)
+        {
+            tokens = Math.min(tokens + (now - refilled) / 1e9 * rate, limit.getBurst());
+        }
+        refilled = now;
+    }
+
+    private void updateLatency(long rtt, int wasInFlight)
+    {
+        shortRtt = (shortRtt == 0) ? rtt : shortRtt + shortRttWeight * (rtt - shortRtt);
+
+        // The least of this window and the last, so the baseline follows a node that gets slower for good
+        if (windowSamples == 0 || shortRtt < windowMinRtt)
+        {
+            windowMinRtt = shortRtt;
+        }
+        if (++windowSamples >= rttWindow)
+        {
+            previousWindowMinRtt = windowMinRtt;
+            windowSamples = 0;
+        }
+        noLoadRtt = (previousWindowMinRtt > 0) ? Math.min(windowMinRtt, previousWindowMinRtt) : windowMinRtt;
+
+        // A node that was not kept busy says nothing about how much more it could take
+        if (wasInFlight < concurrencyLimit / 2)
+        {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadRtt / shortRtt));
+        double target = concurrencyLimit * gradient + Math.sqrt(concurrencyLimit);
+        setConcurrencyLimit(concurrencyLimit * (1 - limitSmoothing) + target * limitSmoothing);
+    }
+
+    private void setConcurrencyLimit(double value)
+    {
+        concurrencyLimit = Math.max(limit.getMinConcurrency(), Math.min(value, limit.getMaxConcurrency()));
+        LRInstrumentation.getMetrics().record(LRInstrumentation.clientConcurrencyLimit, (long) concurrencyLimit);
+    }
+}
@@ -0,0 +1,746 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import com.navnorth.learningregistry.util.HyperLogLog;
+
+import java.util.Date;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TimeZone;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.json.*;
+
+/**
+ * Streaming statistics over harvested activity paradata
+ * Paradata envelopes are parsed as pages arrive, and their measures are added to per resource and verb
+ * aggregates kept for each time pane. Windows are built by merging panes, so both tumbling windows
+ * (slide equal to window) and sliding windows are supported. Statistics can be queried while a harvest
+ * is still feeding pages in from other threads.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRParadataStats
+{
+    private static final String paradataType = "paradata";
+
+    private static final String resourceDataTypeField = "resource_data_type";
+    private static final String resourceDataField = "resource_data";
+    private static final String resourceLocatorField = "resource_locator";
+    private static final String documentField = "document";
+    private static final String activityField = "activity";
+    private static final String verbField = "verb";
+    private static final String actionField = "action";
+    private static final String dateField = "date";
+    private static final String measureField = "measure";
+    private static final String objectField = "object";
+    private static final String idField = "id";
+    private static final String valueField = "value";
+    private static final String scaleMinField = "scaleMin";
+    private static final String scaleMaxField = "scaleMax";
+    private static final String sampleSizeField = "sampleSize";
+    private static final String[] timestampFields = {"create_timestamp", "node_timestamp", "update_timestamp"};
+
+    private static final ThreadLocal<DateFormat> dayFormat = new ThreadLocal<DateFormat>()
+    {
+        protected DateFormat initialValue()
+        {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format;
+        }
+    };
+
+    private final long windowMillis;
+    private final long slideMillis;
+
+    // Aggregates for each resource/verb/pane
+    private final ConcurrentMap<PaneKey, Aggregate> panes = new ConcurrentHashMap<PaneKey, Aggregate>();
+
+    // Distinct resource sketches for each pane
+    private final ConcurrentMap<Long, HyperLogLog> resourceSketches = new ConcurrentHashMap<Long, HyperLogLog>();
+
+    /**
+     * Create statistics over tumbling windows
+     *
+     * @param windowMillis length of each window in milliseconds
+     */
+    public LRParadataStats(long windowMillis)
+    {
+        this(windowMillis, windowMillis);
+    }
+
+    /**
+     * Create statistics over sliding windows
+     *
+     * @param windowMillis length of each window in milliseconds
+     * @param slideMillis distance between the starts of consecutive windows; the window length must be a multiple of it
+     */
+    public LRParadataStats(long windowMillis, long slideMillis)
+    {
+        if (slideMillis <= 0 || windowMillis < slideMillis || windowMillis % slideMillis != 0)
+        {
+            throw new IllegalArgumentException("Window length must be a positive multiple of the slide.");
+        }
+
+        this.windowMillis = windowMillis;
+        this.slideMillis = slideMillis;
+    }
+
+    /**
+     * Add every paradata envelope of an obtain, harvest or extract result
+     *
+     * @param result result page from an importer
+     * @return number of paradata envelopes added
+     */
+    public int accept(LRResult result)
+    {
+        int added = 0;
+
+        for (JSONObject document : result.getDocuments())
+        {
+            added += acceptContainer(document);
+        }
+        for (JSONObject record : result.getRecords())
+        {
+            added += acceptContainer(record);
+        }
+
+        return added;
+    }
+
+    /**
+     * Add every paradata envelope of the first page and every following page, using resumption tokens
+     *
+     * @param importer importer to request following pages from
+     * @param firstPage first page of an obtain request
+     * @return number of paradata envelopes added
+     * @throws LRException IMPORT_FAILED, JSON_IMPORT_FAILED
+     */
+    public int accept(LRImporter importer, LRResult firstPage) throws LRException
+    {
+        int added = accept(firstPage);
+        String resumptionToken = firstPage.getResumptionToken();
+
+        while (resumptionToken != null)
+        {
+            LRResult page = importer.getObtainJSONData(resumptionToken);
+            added += accept(page);
+            resumptionToken = page.getResumptionToken();
+        }
+
+        return added;
+    }
+
+    /**
+     * Add a single envelope; envelopes that are not paradata activities are ignored
+     *
+     * @param envelope envelope JSON
+     * @return true if added
+     */
+    public boolean accept(JSONObject envelope)
+    {
+        if (!paradataType.equals(envelope.optString(resourceDataTypeField)))
+        {
+            return false;
+        }
+
+        JSONObject resourceData = getObject(envelope, resourceDataField);
+        JSONObject activity = (resourceData != null) ? getObject(resourceData, activityField) : null;
+
+        if (activity == null)
+        {
+            return false;
+        }
+
+        JSONObject verb = activity.optJSONObject(verbField);
+        String action = null;
+        if (verb != null)
+        {
+            action = verb.optString(actionField, null);
+        }
+        else
+        {
+            action = activity.optString(verbField, null);
+        }
+
+        String resource = getResource(activity, envelope);
+        Long time = getTime(verb, envelope);
+
+        if (action == null || resource == null || time == null)
+        {
+            return false;
+        }
+
+        long paneStart = paneStart(time);
+        Aggregate aggregate = getAggregate(new PaneKey(resource, action, paneStart));
+
+        Object measure = (verb != null) ? verb.opt(measureField) : null;
+        if (measure instanceof JSONArray)
+        {
+            JSONArray measures = (JSONArray) measure;
+            for (int i = 0; i < measures.length(); i++)
+            {
+                aggregate.add(measures.optJSONObject(i));
+            }
+        }
+        else
+        {
+            aggregate.add(measure instanceof JSONObject ? (JSONObject) measure : null);
+        }
+
+        HyperLogLog sketch = resourceSketches.get(paneStart);
+        if (sketch == null)
+        {
+            sketch = new HyperLogLog();
+            HyperLogLog existing = resourceSketches.putIfAbsent(paneStart, sketch);
+            if (existing != null)
+            {
+                sketch = existing;
+            }
+        }
+        sketch.add(resource);
+
+        return true;
+    }
+
+    /**
+     * Get the statistics of a resource and verb over the window ending at the specified time
+     *
+     * @param resource resource locator or object id
+     * @param action the action type of the verb
+     * @param windowEnd end of the window (exclusive)
+     * @return merged statistics of the window
+     */
+    public Aggregate getStats(String resource, String action, Date windowEnd)
+    {
+        long end = paneStart(windowEnd.getTime() - 1) + slideMillis;
+        Aggregate result = new Aggregate();
+
+        for (long pane = end - windowMillis; pane < end; pane += slideMillis)
+        {
+            Aggregate aggregate = panes.get(new PaneKey(resource, action, pane));
+            if (aggregate != null)
+            {
+                result.merge(aggregate);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the statistics of a resource and verb over every retained pane
+     *
+     * @param resource resource locator or object id
+     * @param action the action type of the verb
+     * @return merged statistics
+     */
+    public Aggregate getTotalStats(String resource, String action)
+    {
+        Aggregate result = new Aggregate();
+
+        for (Map.Entry<PaneKey, Aggregate> entry : panes.entrySet())
+        {
+            PaneKey key = entry.getKey();
+            if (key.resource.equals(resource) && key.action.equals(action))
+            {
+                result.merge(entry.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Estimate the number of distinct resources with activity in the window ending at the specified time
+     *
+     * @param windowEnd end of the window (exclusive)
+     * @return estimated number of distinct resources
+     */
+    public long estimateDistinctResources(Date windowEnd)
+    {
+        long end = paneStart(windowEnd.getTime() - 1) + slideMillis;
+        HyperLogLog merged = new HyperLogLog();
+
+        for (long pane = end - windowMillis; pane < end; pane += slideMillis)
+        {
+            HyperLogLog sketch = resourceSketches.get(pane);
+            if (sketch != null)
+            {
+                merged.merge(sketch);
+            }
+        }
+
+        return merged.estimate();
+    }
+
+    /**
+     * Get every resource with retained statistics
+     *
+     * @return set of resource locators or object ids
+     */
+    public Set<String> getResources()
+    {
+        Set<String> resources = new HashSet<String>();
+
+        for (PaneKey key : panes.keySet())
+        {
+            resources.add(key.resource);
+        }
+
+        return resources;
+    }
+
+    /**
+     * Drop every pane that ends before the specified time, to bound memory on long running harvests
+     *
+     * @param before time before which panes are dropped
+     */
+    public void expire(Date before)
+    {
+        long cutoff = before.getTime();
+
+        for (PaneKey key : panes.keySet())
+        {
+            if (key.paneStart + slideMillis <= cutoff)
+            {
+                panes.remove(key);
+            }
+        }
+        for (Long pane : resourceSketches.keySet())
+        {
+            if (pane + slideMillis <= cutoff)
+            {
+                resourceSketches.remove(pane);
+            }
+        }
+    }
+
+    /**
+     * Add the envelopes held by an obtain document, harvest record or extract document
+     *
+     * @param container JSON holding one or more envelopes
+     * @return number of paradata envelopes added
+     */
+    private int acceptContainer(JSONObject container)
+    {
+        if (container.has(resourceDataTypeField))
+        {
+            return accept(container) ? 1 : 0;
+        }
+
+        int added = 0;
+        Object inner = container.opt(documentField);
+        if (inner == null)
+        {
+            inner = container.opt(resourceDataField);
+        }
+
+        if (inner instanceof JSONArray)
+        {
+            JSONArray envelopes = (JSONArray) inner;
+            for (int i = 0; i < envelopes.length(); i++)
+            {
+                JSONObject envelope = envelopes.optJSONObject(i);
+                if (envelope != null && accept(envelope))
+                {
+                    added++;
+                }
+            }
+        }
+        else if (inner instanceof JSONObject && accept((JSONObject) inner))
+        {
+            added++;
+        }
+
+        return added;
+    }
+
+    private Aggregate getAggregate(PaneKey key)
+    {
+        Aggregate aggregate = panes.get(key);
+
+        if (aggregate == null)
+        {
+            aggregate = new Aggregate();
+            Aggregate existing = panes.putIfAbsent(key, aggregate);
+            if (existing != null)
+            {
+                aggregate = existing;
+            }
+        }
+
+        return aggregate;
+    }
+
+    /**
+     * Get a JSON object field, decoding it if it was sent as a string (resource_data in 0.51.0 envelopes)
+     */
+    private static JSONObject getObject(JSONObject json, String field)
+    {
+        Object value = json.opt(field);
+
+        if (value instanceof JSONObject)
+        {
+            return (JSONObject) value;
+        }
+        if (value instanceof String)
+        {
+            try
+            {
+                return new JSONObject((String) value);
+            }
+            catch (JSONException e)
+            {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the resource of an activity, from its object or else from the envelope's resource locator
+     */
+    private static String getResource(JSONObject activity, JSONObject envelope)
+    {
+        Object object = activity.opt(objectField);
+
+        if (object instanceof JSONObject)
+        {
+            String id = ((JSONObject) object).optString(idField, null);
+            if (id != null)
+            {
+                return id;
+            }
+        }
+        else if (object instanceof String)
+        {
+            return (String) object;
+        }
+
+        return envelope.optString(resourceLocatorField, null);
+    }
+
+    /**
+     * Get the time of an activity, from the start of its verb date or else from the envelope timestamps
+     */
+    private static Long getTime(JSONObject verb, JSONObject envelope)
+    {
+        String date = (verb != null) ? verb.optString(dateField, null) : null;
+
+        for (int i = -1; i < timestampFields.length; i++)
+        {
+            if (i >= 0)
+            {
+                date = envelope.optString(timestampFields[i], null);
+            }
+            Long time = (date != null) ? parseTime(date) : null;
+            if (time != null)
+            {
+                return time;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse an ISO 8601 date or timestamp, taking the start of a range and UTC for a time without an offset
+     *
+     * @return time in milliseconds, or null if the text is not a date
+     */
+    private static Long parseTime(String date)
+    {
+        int range = date.indexOf('/');
+        String start = (range >= 0) ? date.substring(0, range).trim() : date.trim();
+
+        if (start.length() > 10)
+        {
+            try
+            {
+                return OffsetDateTime.parse(start).toInstant().toEpochMilli();
+            }
+            catch (DateTimeParseException e)
+            {
+                // Try a time without an offset
+            }
+            try
+            {
+                return LocalDateTime.parse(start).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            catch (DateTimeParseException e)
+            {
+                // Fall back to the day
+            }
+        }
+
+        if (start.length() >= 10)
+        {
+            try
+            {
+                return dayFormat.get().parse(start.substring(0, 10)).getTime();
+            }
+            catch (ParseException e)
+            {
+                // Not a date
+            }
+        }
+
+        return null;
+    }
+
+    private long paneStart(long time)
+    {
+        long mod = time % slideMillis;
+        return time - (mod < 0 ? mod + slideMillis : mod);
+    }
+
+    /**
+     * Key for the aggregate of a resource and verb in one pane
+     */
+    private static final class PaneKey
+    {
+        final String resource;
+        final String action;
+        final long paneStart;
+
+        PaneKey(String resource, String action, long paneStart)
+        {
+            this.resource = resource;
+            this.action = action;
+            this.paneStart = paneStart;
+        }
+
+        public int hashCode()
+        {
+            return (31 * resource.hashCode() + action.hashCode()) * 31 + (int) (paneStart ^ (paneStart >>> 32));
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof PaneKey))
+            {
+                return false;
+            }
+            PaneKey other = (PaneKey) o;
+            return paneStart == other.paneStart && resource.equals(other.resource) && action.equals(other.action);
+        }
+    }
+
+    /**
+     * Mergeable statistics of the measures reported for a resource and verb
+     * Each measure counts for its sample size (or one if it has none), so averages are weighted by sample size
+     */
+    public static class Aggregate
+    {
+        private long activities;
+        private double samples;
+        private double valueSamples;
+        private double valueSum;
+        private double weightedSum;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private double scaleMin = Double.NaN;
+        private double scaleMax = Double.NaN;
+
+        /**
+         * Add an activity and its measure
+         *
+         * @param measure measure JSON, or null if the activity has no measure
+         */
+        synchronized void add(JSONObject measure)
+        {
+            activities++;
+
+            if (measure == null || !measure.has(valueField))
+            {
+                samples += 1;
+                return;
+            }
+
+            double value = measure.optDouble(valueField, Double.NaN);
+            double sampleSize = measure.optDouble(sampleSizeField, 1);
+
+            if (Double.isNaN(value))
+            {
+                samples += 1;
+                return;
+            }
+            if (Double.isNaN(sampleSize) || sampleSize <= 0)
+            {
+                sampleSize = 1;
+            }
+
+            samples += sampleSize;
+            valueSamples += sampleSize;
+            valueSum += value;
+            weightedSum += value * sampleSize;
+            min = Double.isNaN(min) ? value : Math.min(min, value);
+            max = Double.isNaN(max) ? value : Math.max(max, value);
+
+            double low = measure.optDouble(scaleMinField, Double.NaN);
+            double high = measure.optDouble(scaleMaxField, Double.NaN);
+            if (!Double.isNaN(low))
+            {
+                scaleMin = Double.isNaN(scaleMin) ? low : Math.min(scaleMin, low);
+            }
+            if (!Double.isNaN(high))
+            {
+                scaleMax = Double.isNaN(scaleMax) ? high : Math.max(scaleMax, high);
+            }
+        }
+
+        /**
+         * Merge another aggregate into this one
+         *
+         * @param other aggregate to merge
+         */
+        public void merge(Aggregate other)
+        {
+            Aggregate copy = other.copy();
+
+            synchronized (this)
+            {
+                activities += copy.activities;
+                samples += copy.samples;
+                valueSamples += copy.valueSamples;
+                valueSum += copy.valueSum;
+                weightedSum += copy.weightedSum;
+                min = minOf(min, copy.min);
+                max = maxOf(max, copy.max);
+                scaleMin = minOf(scaleMin, copy.scaleMin);
+                scaleMax = maxOf(scaleMax, copy.scaleMax);
+            }
+        }
+
+        private synchronized Aggregate copy()
+        {
+            Aggregate copy = new Aggregate();
+            copy.activities = activities;
+            copy.samples = samples;
+            copy.valueSamples = valueSamples;
+            copy.valueSum = valueSum;
+            copy.weightedSum = weightedSum;
+            copy.min = min;
+            copy.max = max;
+            copy.scaleMin = scaleMin;
+            copy.scaleMax = scaleMax;
+            return copy;
+        }
+
+        /**
+         * Get the number of activity envelopes
+         *
+         * @return number of activities
+         */
+        public synchronized long getActivities()
+        {
+            return activities;
+        }
+
+        /**
+         * Get the number of samples represented by the activities
+         *
+         * @return sum of sample sizes
+         */
+        public synchronized double getSamples()
+        {
+            return samples;
+        }
+
+        /**
+         * Get the sum of measure values, e.g. the total of "count" measures
+         *
+         * @return sum of values
+         */
+        public synchronized double getValueSum()
+        {
+            return valueSum;
+        }
+
+        /**
+         * Get the average measure value, weighted by sample size, e.g. the average rating
+         *
+         * @return weighted average, or NaN if there are no values
+         */
+        public synchronized double getAverage()
+        {
+            return (valueSamples > 0) ? weightedSum / valueSamples : Double.NaN;
+        }
+
+        /**
+         * @return smallest measure value, or NaN if there are no values
+         */
+        public synchronized double getMin()
+        {
+            return min;
+        }
+
+        /**
+         * @return largest measure value, or NaN if there are no values
+         */
+        public synchronized double getMax()
+        {
+            return max;
+        }
+
+        /**
+         * @return smallest reported scale minimum, or NaN if none was reported
+         */
+        public synchronized double getScaleMin()
+        {
+            return scaleMin;
+        }
+
+        /**
+         * @return largest reported scale maximum, or NaN if none was reported
+         */
+        public synchronized double getScaleMax()
+        {
+            return scaleMax;
+        }
+
+        private static double minOf(double a, double b)
+        {
+            return Double.isNaN(a) ? b : (Double.isNaN(b) ? a : Math.min(a, b));
+        }
+
+        private static double maxOf(double a, double b)
+        {
+            return Double.isNaN(a) ? b : (Double.isNaN(b) ? a : Math.max(a, b));
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged publisher of documents, which builds, signs, serializes and sends them on separate pools of threads
+ * Each stage has its own threads and takes its work from a bounded queue, so signing, which is bound by the CPU,
+ * overlaps with sending, which is bound by the network, and a slow stage holds back the stages before it rather than
+ * filling memory. Signed envelopes are gathered into batches of the exporter's batch size before serialization.
+ * Submit documents from one or more threads, then call finish() once, after the last submit; finish() waits for every
+ * document to be sent. Documents that fail are counted in the progress, and the others go on.
+ * <br>
+ * The time each stage spends on a document or batch, and the share of its threads' time spent working, are reported
+ * to the installed metrics; a stage whose utilization is near 100% is the one that bounds the throughput, and is the
+ * one to give more threads.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRPublishPipeline<T>
+{
+    /**
+     * Maps a submitted document to an envelope, in the build stage
+     * It is called from several threads at once.
+     */
+    public interface Mapper<T>
+    {
+        /**
+         * Map a document to an envelope
+         *
+         * @param document document to map
+         * @return envelope for the document
+         * @throws LRException if the document cannot be mapped
+         */
+        LREnvelope toEnvelope(T document) throws LRException;
+    }
+
+    // Stages of the pipeline
+    public static final int BUILD = 0;
+    public static final int SIGN = 1;
+    public static final int SERIALIZE = 2;
+    public static final int SEND = 3;
+
+    private static final String[] stageNames = {"build", "sign", "serialize", "send"};
+    private static final String[] timeMetrics = {
+        LRInstrumentation.pipelineBuildTime,
+        LRInstrumentation.pipelineSignTime,
+        LRInstrumentation.pipelineSerializeTime,
+        LRInstrumentation.pipelineSendTime
+    };
+    private static final String[] utilizationMetrics = {
+        LRInstrumentation.pipelineBuildUtilization,
+        LRInstrumentation.pipelineSignUtilization,
+        LRInstrumentation.pipelineSerializeUtilization,
+        LRInstrumentation.pipelineSendUtilization
+    };
+
+    // Tells a worker of a stage to stop
+    private static final Object endOfStage = new Object();
+
+    private final LRExporter exporter;
+    private final LRSigner signer;
+    private final Mapper<? super T> mapper;
+    private final LRIngestProgress progress = new LRIngestProgress();
+
+    private final int[] threads = {1, Runtime.getRuntime().availableProcessors(), 1, 4};
+    private int queueCapacity = 1000;
+
+    // Set once the first document is submitted
+    private volatile List<Stage> stages;
+    private volatile boolean finished;
+    private int batchSize;
+
+    // Signed envelopes waiting for a full batch, guarded by this
+    private List<LREnvelope> pending;
+
+    /**
+     * Creates the pipeline
+     *
+     * @param exporter configured exporter to publish through; its batch size is used for each publish request
+     * @param signer signer for the documents, or null to publish them unsigned
+     * @param mapper mapper of each document to an envelope, such as an LRDocumentTemplate for lines of JSON
+     */
+    public LRPublishPipeline(LRExporter exporter, LRSigner signer, Mapper<? super T> mapper)
+    {
+        this.exporter = exporter;
+        this.signer = signer;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Sets the number of threads of a stage, before the first document is submitted
+     * Defaults to 1 for building, one per processor for signing, 1 for serializing and 4 for sending. In the virtual
+     * mode of LRExecution the threads of each stage are virtual threads.
+     *
+     * @param stage BUILD, SIGN, SERIALIZE or SEND
+     * @param count number of threads
+     */
+    public void setThreads(int stage, int count)
+    {
+        checkNotStarted();
+        threads[stage] = Math.max(count, 1);
+    }
+
+    /**
+     * Sets the number of documents each queue between stages holds, before the first document is submitted
+     * Defaults to 1000; the queues of batches hold this many documents' worth of batches, and at least one batch.
+     *
+     * @param queueCapacity number of documents
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        checkNotStarted();
+        this.queueCapacity = Math.max(queueCapacity, 1);
+    }
+
+    /**
+     * Submit a document, waiting while the build queue is full
+     *
+     * @param document document to publish
+     * @throws LRException UNKNOWN if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is finished
+     */
+    public void submit(T document) throws LRException
+    {
+        if (finished)
+        {
+            throw new IllegalStateException("The pipeline is finished");
+        }
+        List<Stage> started = start();
+
+        try
+        {
+            started.get(BUILD).put(document);
+            progress.recordsRead.incrementAndGet();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.UNKNOWN);
+        }
+    }
+
+    /**
+     * Send the documents still in the pipeline, wait for them, and stop the threads of the pipeline
+     *
+     * @return final progress of the publish
+     * @throws LRException UNKNOWN if interrupted while waiting; the documents not yet sent are dropped
+     */
+    public LRIngestProgress finish() throws LRException
+    {
+        List<Stage> started = start();
+        if (finished)
+        {
+            return progress;
+        }
+        finished = true;
+
+        try
+        {
+            started.get(BUILD).close();
+            started.get(SIGN).close();
+
+            List<LREnvelope> rest;
+            synchronized (this)
+            {
+                rest = pending;
+                pending = new ArrayList<LREnvelope>(batchSize);
+            }
+            if (rest.size() > 0)
+            {
+                started.get(SERIALIZE).put(rest);
+            }
+
+            started.get(SERIALIZE).close();
+            started.get(SEND).close();
+        }
+        catch (InterruptedException e)
+        {
+            for (Stage stage : started)
+            {
+                stage.abort();
+            }
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.UNKNOWN);
+        }
+        finally
+        {
+            progress.finish();
+        }
+
+        return progress;
+    }
+
+    /**
+     * @return progress of the publish so far
+     */
+    public LRIngestProgress getProgress()
+    {
+        return progress;
+    }
+
+    /**
+     * Get the share of the time of a stage's threads spent working, since the first document was submitted
+     *
+     * @param stage BUILD, SIGN, SERIALIZE or SEND
+     * @return utilization from 0 to 1, or 0 if no document has been submitted
+     */
+    public double getUtilization(int stage)
+    {
+        List<Stage> started = stages;
+        return (started != null) ? started.get(stage).getUtilization() : 0;
+    }
+
+    /**
+     * Get the number of items waiting in the queue of a stage: documents for BUILD and SIGN, batches for SERIALIZE and
+     * SEND
+     *
+     * @param stage BUILD, SIGN, SERIALIZE or SEND
+     * @return number of items waiting
+     */
+    public int getQueueSize(int stage)
+    {
+        List<Stage> started = stages;
+        return (started != null) ? started.get(stage).queue.size() : 0;
+    }
+
+    private List<Stage> start()
+    {
+        List<Stage> started = stages;
+        if (started != null)
+        {
+            return started;
+        }
+
+        synchronized (this)
+        {
+            if (stages == null)
+            {
+                batchSize = Math.max(exporter.getBatchSize(), 1);
+                pending = new ArrayList<LREnvelope>(batchSize);
+                int batchCapacity = Math.max(queueCapacity / batchSize, 1);
+
+                Stage send = new Stage(SEND, batchCapacity, null);
+                Stage serialize = new Stage(SERIALIZE, batchCapacity, send);
+                Stage sign = new Stage(SIGN, queueCapacity, serialize);
+                Stage build = new Stage(BUILD, queueCapacity, sign);
+                stages = Arrays.asList(build, sign, serialize, send);
+            }
+            return stages;
+        }
+    }
+
+    private void checkNotStarted()
+    {
+        if (stages != null)
+        {
+            throw new IllegalStateException("The pipeline has started");
+        }
+    }
+
+    /**
+     * Do the work of a stage on one item
+     *
+     * @return item for the next stage, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private Object process(int stage, Object item) throws LRException
+    {
+        switch (stage)
+        {
+            case BUILD:
+                return mapper.toEnvelope((T) item);
+
+            case SIGN:
+                LREnvelope envelope = (LREnvelope) item;
+                if (signer != null)
+                {
+                    signer.sign(envelope);
+                }
+                progress.documentsSigned.incrementAndGet();
+                synchronized (this)
+                {
+                    pending.add(envelope);
+                    if (pending.size() < batchSize)
+                    {
+                        return null;
+                    }
+                    List<LREnvelope> full = pending;
+                    pending = new ArrayList<LREnvelope>(batchSize);
+                    return full;
+                }
+
+            case SERIALIZE:
+                List<LREnvelope> batch = (List<LREnvelope>) item;
+                List<Object> sendable = new ArrayList<Object>(batch.size());
+                for (LREnvelope signed : batch)
+                {
+                    sendable.add(signed.getSendableData());
+                }
+                return new Serialized(LRExporter.getBatchJSON(sendable), batch.size());
+
+            default:
+                send((Serialized) item);
+                return null;
+        }
+    }
+
+    /**
+     * Send a serialized batch and record its outcome
+     */
+    private void send(Serialized batch) throws LRException
+    {
+        LRResponse response = exporter.sendBatchJSON(batch.json, batch.documents);
+        long published = 0;
+
+        progress.batchesSent.incrementAndGet();
+        if (response != null && response.getBatchSuccess())
+        {
+            published = response.getResourceSuccess().size();
+        }
+
+        progress.documentsPublished.addAndGet(published);
+        if (published < batch.documents)
+        {
+            progress.fail(batch.documents - published, new LRException(LRException.INVALID_RESPONSE));
+        }
+    }
+
+    /**
+     * @return number of documents in an item of a stage
+     */
+    @SuppressWarnings("unchecked")
+    private static int countDocuments(Object item)
+    {
+        if (item instanceof Serialized)
+        {
+            return ((Serialized) item).documents;
+        }
+        if (item instanceof List)
+        {
+            return ((List<Object>) item).size();
+        }
+        return 1;
+    }
+
+    /**
+     * One stage: its queue and the threads that take from it
+     */
+    private class Stage
+    {
+        private final int index;
+        private final int threadCount;
+        private final BlockingQueue<Object> queue;
+        private final Stage next;
+        private final ExecutorService executor;
+        private final CountDownLatch stopped;
+        private final AtomicLong busy = new AtomicLong();
+        private final long startTime = System.nanoTime();
+        private volatile long endTime;
+
+        Stage(int index, int capacity, Stage next)
+        {
+            this.index = index;
+            this.threadCount = threads[index];
+            this.queue = new ArrayBlockingQueue<Object>(capacity);
+            this.next = next;
+            this.stopped = new CountDownLatch(threadCount);
+            this.executor = LRExecution.newExecutor("LRPublishPipeline " + stageNames[index], threadCount);
+
+            for (int i = 0; i < threadCount; i++)
+            {
+                executor.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        work();
+                    }
+                });
+            }
+            executor.shutdown();
+        }
+
+        void put(Object item) throws InterruptedException
+        {
+            queue.put(item);
+        }
+
+        /**
+         * Stop the threads once the queue is empty, and wait for them
+         */
+        void close() throws InterruptedException
+        {
+            for (int i = 0; i < threadCount; i++)
+            {
+                queue.put(endOfStage);
+            }
+            stopped.await();
+            endTime = System.nanoTime();
+            LRInstrumentation.getMetrics().record(utilizationMetrics[index], Math.round(getUtilization() * 100));
+        }
+
+        void abort()
+        {
+            queue.clear();
+            executor.shutdownNow();
+        }
+
+        double getUtilization()
+        {
+            long end = (endTime != 0) ? endTime : System.nanoTime();
+            long elapsed = Math.max(end - startTime, 1);
+            return Math.min(busy.get() / ((double) elapsed * threadCount), 1.0);
+        }
+
+        private void work()
+        {
+            LRMetrics metrics = LRInstrumentation.getMetrics();
+
+            try
+            {
+                while (true)
+                {
+                    Object item = queue.take();
+                    if (item == endOfStage)
+                    {
+                        break;
+                    }
+
+                    // Only the work itself counts, not the wait for room in the next queue
+                    long start = System.nanoTime();
+                    Object result = null;
+                    try
+                    {
+                        result = process(index, item);
+                    }
+                    catch (LRException e)
+                    {
+                        progress.fail(countDocuments(item), e);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        progress.fail(countDocuments(item), new LRException(LRException.UNKNOWN));
+                    }
+                    long time = System.nanoTime() - start;
+                    busy.addAndGet(time);
+                    metrics.time(timeMetrics[index], time);
+
+                    if (result != null && next != null)
+                    {
+                        next.put(result);
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                stopped.countDown();
+            }
+        }
+    }
+
+    /**
+     * A batch serialized into the body of a publish request
+     */
+    private static final class Serialized
+    {
+        final String json;
+        final int documents;
+
+        Serialized(String json, int documents)
+        {
+            this.json = json;
+            this.documents = documents;
+        }
+    }
+}
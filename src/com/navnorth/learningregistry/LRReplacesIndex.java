@@ -0,0 +1,391 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Index of the replaces chains of harvested envelopes, giving the current version of any doc ID
+ * An envelope whose "replaces" array lists other doc IDs supersedes them, and a delete envelope, whose payload
+ * placement is "none", supersedes them with nothing. The doc IDs linked this way form a chain, kept as one shared
+ * object that every doc ID of it maps to, along with its current version: of the envelopes that nothing replaces, the
+ * one indexed last. Looking up the current version of a doc ID is then one map lookup, and a chain whose current
+ * version is a delete is tombstoned. Envelopes may be indexed in any order, a successor before what it replaces.
+ * <br>
+ * Indexing an envelope that links chains merges the smaller into the larger, so each doc ID moves between chains a
+ * logarithmic number of times at most and indexing a corpus takes time about linear in its size. Envelopes are taken
+ * to be indexed in the order they were published, which is the datestamp order of a harvest. An importer given an
+ * index with LRImporter.setReplacesIndex() indexes the envelopes of every page it fetches. An index may be used by
+ * several threads at once.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRReplacesIndex
+{
+    private static final String docIDField = "doc_ID";
+    private static final String replacesField = "replaces";
+    private static final String payloadPlacementField = "payload_placement";
+    private static final String deletePayloadPlacement = "none";
+
+    private final Map<String, Version> versions = new HashMap<String, Version>();
+
+    private long indexed;
+    private long sequence;
+
+    /**
+     * Index an envelope
+     *
+     * @param envelope JSON of the envelope, as obtained or harvested
+     * @return true if the envelope was indexed, false if it has no doc ID or was indexed before
+     */
+    public boolean add(JSONObject envelope)
+    {
+        String docID = envelope.optString(docIDField, null);
+        if (docID == null)
+        {
+            return false;
+        }
+
+        String[] replaces = null;
+        JSONArray replacesArray = envelope.optJSONArray(replacesField);
+        if (replacesArray != null)
+        {
+            replaces = new String[replacesArray.length()];
+            for (int i = 0; i < replaces.length; i++)
+            {
+                replaces[i] = replacesArray.optString(i, null);
+            }
+        }
+
+        boolean delete = deletePayloadPlacement.equals(envelope.optString(payloadPlacementField, null));
+        return add(docID, replaces, delete);
+    }
+
+    /**
+     * Index the envelopes of a result
+     *
+     * @param result result of an obtain or harvest request
+     * @return number of envelopes indexed, not counting those indexed before
+     */
+    public int addAll(LRResult result)
+    {
+        int added = 0;
+        for (JSONObject envelope : result.getEnvelopes())
+        {
+            if (add(envelope))
+            {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Index an envelope
+     *
+     * @param docID doc ID of the envelope
+     * @param replaces doc IDs the envelope replaces, or null
+     * @param delete true if the envelope is a delete
+     * @return true if the envelope was indexed, false if it was indexed before
+     */
+    public synchronized boolean add(String docID, String[] replaces, boolean delete)
+    {
+        Version version = versions.get(docID);
+        if (version == null)
+        {
+            version = new Version(docID);
+            versions.put(docID, version);
+        }
+        else if (version.sequence != 0)
+        {
+            return false;
+        }
+        version.sequence = ++sequence;
+        version.delete = delete;
+        indexed++;
+
+        Set<String> replaced = new LinkedHashSet<String>();
+        if (replaces != null)
+        {
+            for (String id : replaces)
+            {
+                if (id != null && !id.equals(docID))
+                {
+                    replaced.add(id);
+                }
+            }
+        }
+        if (replaced.isEmpty())
+        {
+            // A version already in a chain is there because something replaces it, so the chain is unchanged
+            return true;
+        }
+
+        // Find the chains being linked, with their current versions before the link
+        List<Chain> chains = new ArrayList<Chain>();
+        List<Version> currents = new ArrayList<Version>();
+        addChain(chainOf(version), chains, currents);
+        for (String id : replaced)
+        {
+            Version old = versions.get(id);
+            if (old == null)
+            {
+                old = new Version(id);
+                versions.put(id, old);
+            }
+            addChain(chainOf(old), chains, currents);
+            old.replaced = true;
+        }
+
+        Chain chain = chains.get(0);
+        for (int i = 1; i < chains.size(); i++)
+        {
+            chain = merge(chain, chains.get(i));
+        }
+
+        if (!version.replaced)
+        {
+            // Nothing indexed before replaces the new version, which makes it the latest
+            chain.current = version;
+            return true;
+        }
+
+        // The new version arrived after a successor, so the current version is one the chains already had
+        chain.current = null;
+        for (Version current : currents)
+        {
+            if (current == null)
+            {
+                continue;
+            }
+            if (current.replaced)
+            {
+                chain.current = latest(chain);
+                break;
+            }
+            if (chain.current == null || current.sequence > chain.current.sequence)
+            {
+                chain.current = current;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the current version of a doc ID
+     *
+     * @param docID doc ID of any version
+     * @return doc ID of the current version, which is the doc ID itself if nothing replaces it, or null if the doc ID
+     *      is not known or its chain is tombstoned
+     */
+    public synchronized String getCurrent(String docID)
+    {
+        Version current = currentOf(docID);
+        return (current != null && !current.delete) ? current.docID : null;
+    }
+
+    /**
+     * Check whether the chain of a doc ID ends in a delete
+     *
+     * @param docID doc ID of any version
+     * @return true if the current version of the chain is a delete
+     */
+    public synchronized boolean isTombstoned(String docID)
+    {
+        Version current = currentOf(docID);
+        return current != null && current.delete;
+    }
+
+    /**
+     * Check whether a doc ID is current, that is, indexed, not a delete, and not replaced
+     *
+     * @param docID doc ID to check
+     * @return true if the doc ID is its own current version
+     */
+    public synchronized boolean isCurrent(String docID)
+    {
+        Version current = currentOf(docID);
+        return current != null && !current.delete && current.docID.equals(docID);
+    }
+
+    /**
+     * Get the versions of the chain of a doc ID, in the order they were indexed
+     * Doc IDs that are replaced but were not indexed themselves are left out.
+     *
+     * @param docID doc ID of any version
+     * @return doc IDs of the indexed versions, empty if the doc ID is not known
+     */
+    public synchronized List<String> getVersions(String docID)
+    {
+        List<String> result = new ArrayList<String>();
+        Version version = versions.get(docID);
+        if (version == null)
+        {
+            return result;
+        }
+        if (version.chain == null)
+        {
+            result.add(docID);
+            return result;
+        }
+
+        List<Version> indexedVersions = new ArrayList<Version>();
+        for (Version member : version.chain.versions)
+        {
+            if (member.sequence != 0)
+            {
+                indexedVersions.add(member);
+            }
+        }
+        Collections.sort(indexedVersions, new Comparator<Version>()
+        {
+            public int compare(Version a, Version b)
+            {
+                return (a.sequence < b.sequence) ? -1 : ((a.sequence == b.sequence) ? 0 : 1);
+            }
+        });
+        for (Version member : indexedVersions)
+        {
+            result.add(member.docID);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of envelopes indexed
+     */
+    public synchronized long size()
+    {
+        return indexed;
+    }
+
+    private Version currentOf(String docID)
+    {
+        Version version = versions.get(docID);
+        if (version == null)
+        {
+            return null;
+        }
+        // A version alone in its chain has been indexed and is replaced by nothing
+        return (version.chain == null) ? version : version.chain.current;
+    }
+
+    /**
+     * Get the chain of a version, making one for it if it is alone
+     */
+    private static Chain chainOf(Version version)
+    {
+        if (version.chain == null)
+        {
+            version.chain = new Chain();
+            version.chain.versions.add(version);
+            version.chain.current = (version.sequence != 0 && !version.replaced) ? version : null;
+        }
+        return version.chain;
+    }
+
+    private static void addChain(Chain chain, List<Chain> chains, List<Version> currents)
+    {
+        for (Chain other : chains)
+        {
+            if (other == chain)
+            {
+                return;
+            }
+        }
+        chains.add(chain);
+        currents.add(chain.current);
+    }
+
+    /**
+     * Merge two chains, moving the versions of the smaller
+     *
+     * @return the merged chain
+     */
+    private static Chain merge(Chain a, Chain b)
+    {
+        Chain larger = (a.versions.size() >= b.versions.size()) ? a : b;
+        Chain smaller = (larger == a) ? b : a;
+
+        for (Version version : smaller.versions)
+        {
+            version.chain = larger;
+        }
+        larger.versions.addAll(smaller.versions);
+        smaller.versions.clear();
+        return larger;
+    }
+
+    /**
+     * Find the version indexed last that nothing replaces, going through the whole chain
+     */
+    private static Version latest(Chain chain)
+    {
+        Version latest = null;
+        for (Version version : chain.versions)
+        {
+            if (version.sequence != 0 && !version.replaced && (latest == null || version.sequence > latest.sequence))
+            {
+                latest = version;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Doc ID, indexed or only replaced by something indexed
+     */
+    private static final class Version
+    {
+        private final String docID;
+
+        // Order in which the envelope was indexed, or zero if it has not been
+        private long sequence;
+        private boolean delete;
+        private boolean replaced;
+        private Chain chain;
+
+        private Version(String docID)
+        {
+            this.docID = docID;
+        }
+    }
+
+    /**
+     * Doc IDs linked by replaces arrays
+     */
+    private static final class Chain
+    {
+        private final List<Version> versions = new ArrayList<Version>();
+        private Version current;
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel replay of an envelope archive through a processing step, such as re-verifying signatures, rebuilding an
+ * index or recomputing paradata statistics
+ * The archive is split into ranges of blocks of about the split size, which run as tasks of a fork/join pool with one
+ * thread per core. The results of the processor go to the sink, one range at a time: in archive order if the replay is
+ * ordered, or as ranges finish otherwise. At most a few ranges per thread are in flight at once, so memory stays
+ * bounded however large the archive.
+ * <br>
+ * With a checkpoint file, the replay records how far it has got, every checkpoint interval and at the end, and a
+ * later replay of the same archive starts from there. The checkpoint is the end of the ranges whose results have all
+ * gone to the sink in order; in an unordered replay, results of ranges past it may already have gone to the sink, and
+ * are sent again after a restart.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRReplay<R>
+{
+    /**
+     * Processing step applied to each envelope, from several threads at once
+     */
+    public interface Processor<R>
+    {
+        /**
+         * Process an envelope
+         *
+         * @param index index of the envelope in the archive
+         * @param envelope JSON text of the envelope
+         * @return result for the sink, or null for none
+         * @throws LRException if the envelope cannot be processed; it is counted as failed and the replay goes on
+         */
+        R process(long index, String envelope) throws LRException;
+    }
+
+    /**
+     * Receiver of the results, called by one thread at a time
+     */
+    public interface Sink<R>
+    {
+        /**
+         * Accept the result of an envelope
+         *
+         * @param index index of the envelope in the archive
+         * @param result result of the processor
+         * @throws LRException to stop the replay with this failure
+         */
+        void accept(long index, R result) throws LRException;
+    }
+
+    private static final String checkpointBlock = "block";
+    private static final String checkpointRecord = "record";
+    private static final String checkpointRecords = "records";
+
+    private final LRArchiveReader archive;
+    private final Processor<? extends R> processor;
+
+    private Sink<? super R> sink;
+    private boolean ordered = false;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long splitSize = 4L * 1024 * 1024;
+    private File checkpoint;
+    private long checkpointInterval = 10 * 1000;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LRException lastError;
+    private long skipped;
+
+    /**
+     * Creates the replay
+     *
+     * @param archive archive to replay
+     * @param processor processing step for each envelope
+     */
+    public LRReplay(LRArchiveReader archive, Processor<? extends R> processor)
+    {
+        this.archive = archive;
+        this.processor = processor;
+    }
+
+    /**
+     * Sets the receiver of the results
+     *
+     * @param sink receiver of the results, or null to discard them
+     */
+    public void setSink(Sink<? super R> sink)
+    {
+        this.sink = sink;
+    }
+
+    /**
+     * Sets whether results go to the sink in archive order (default false)
+     * An ordered replay holds the results of ranges that finish ahead of an earlier range.
+     *
+     * @param ordered true for archive order
+     */
+    public void setOrdered(boolean ordered)
+    {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Sets the number of threads (default one per processor)
+     *
+     * @param parallelism number of threads
+     */
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * Sets the stored size of the ranges the archive is split into (default 4 MB); a range is at least one block
+     *
+     * @param splitSize size in bytes
+     */
+    public void setSplitSize(long splitSize)
+    {
+        this.splitSize = Math.max(splitSize, 1);
+    }
+
+    /**
+     * Sets the checkpoint file, read at the start of the replay and written as it goes
+     *
+     * @param checkpoint checkpoint file, or null for none
+     * @param intervalMillis least time between two writes of the checkpoint in milliseconds
+     */
+    public void setCheckpoint(File checkpoint, long intervalMillis)
+    {
+        this.checkpoint = checkpoint;
+        this.checkpointInterval = intervalMillis;
+    }
+
+    /**
+     * Replay the archive, from the checkpoint if there is one
+     *
+     * @return number of envelopes processed by this replay
+     * @throws LRException the failure of the sink, WRITE_FAILED if the checkpoint cannot be written, or UNKNOWN if
+     *      interrupted
+     */
+    public long run() throws LRException
+    {
+        processed.set(0);
+        failed.set(0);
+        lastError = null;
+
+        int startBlock = readCheckpoint();
+        skipped = archive.getFirstRecord(startBlock);
+        List<int[]> ranges = split(startBlock);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<Range> inFlight = new ArrayDeque<Range>();
+        int window = parallelism * 4;
+        int next = 0;
+        long lastCheckpoint = System.currentTimeMillis();
+
+        try
+        {
+            while (next < ranges.size() || !inFlight.isEmpty())
+            {
+                while (next < ranges.size() && inFlight.size() < window)
+                {
+                    int[] range = ranges.get(next++);
+                    Range task = new Range(range[0], range[1]);
+                    pool.execute(task);
+                    inFlight.add(task);
+                }
+
+                // The earliest range; in an unordered replay, later ranges that finished have sent their results
+                Range head = inFlight.poll();
+                List<Object> results = head.get();
+                if (ordered)
+                {
+                    emit(results);
+                }
+
+                if (checkpoint != null && System.currentTimeMillis() - lastCheckpoint >= checkpointInterval)
+                {
+                    writeCheckpoint(head.toBlock);
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+
+            if (checkpoint != null)
+            {
+                writeCheckpoint(archive.getBlockCount());
+            }
+            return processed.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            while (cause instanceof LRFailure)
+            {
+                cause = cause.getCause();
+            }
+            if (cause instanceof LRException)
+            {
+                throw new LRException(((LRException) cause).getCode());
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new LRException(LRException.UNKNOWN);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.UNKNOWN);
+        }
+        finally
+        {
+            for (Range range : inFlight)
+            {
+                range.cancel(false);
+            }
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return number of envelopes processed by the last replay, so far
+     */
+    public long getProcessed()
+    {
+        return processed.get();
+    }
+
+    /**
+     * @return number of envelopes the processor failed on in the last replay
+     */
+    public long getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * @return last failure of the processor in the last replay, or null
+     */
+    public LRException getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * @return number of envelopes before the checkpoint the last replay started from
+     */
+    public long getSkipped()
+    {
+        return skipped;
+    }
+
+    /**
+     * Split the blocks from a block on into ranges of about the split size
+     */
+    private List<int[]> split(int startBlock)
+    {
+        List<int[]> ranges = new ArrayList<int[]>();
+        int blocks = archive.getBlockCount();
+        int from = startBlock;
+
+        while (from < blocks)
+        {
+            int to = from + 1;
+            while (to < blocks && archive.getSize(from, to + 1) <= splitSize)
+            {
+                to++;
+            }
+            ranges.add(new int[] {from, to});
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Send the results of a range to the sink
+     *
+     * @param results index and result of each envelope, in turn
+     */
+    @SuppressWarnings("unchecked")
+    private void emit(List<Object> results) throws LRException
+    {
+        if (sink == null)
+        {
+            return;
+        }
+        synchronized (this)
+        {
+            for (int i = 0; i < results.size(); i += 2)
+            {
+                sink.accept((Long) results.get(i), (R) results.get(i + 1));
+            }
+        }
+    }
+
+    /**
+     * Read the checkpoint
+     *
+     * @return block to start from
+     */
+    private int readCheckpoint()
+    {
+        if (checkpoint == null || !checkpoint.exists())
+        {
+            return 0;
+        }
+
+        Properties properties = new Properties();
+        try
+        {
+            InputStream in = new FileInputStream(checkpoint);
+            try
+            {
+                properties.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+
+            // Only a checkpoint of this archive, as far as can be told, is used
+            int block = Integer.parseInt(properties.getProperty(checkpointBlock, "0"));
+            long record = Long.parseLong(properties.getProperty(checkpointRecord, "0"));
+            long records = Long.parseLong(properties.getProperty(checkpointRecords, "-1"));
+            if (block >= 0 && block <= archive.getBlockCount() && archive.getFirstRecord(block) == record
+                && records <= archive.getRecordCount())
+            {
+                return block;
+            }
+        }
+        catch (IOException e)
+        {
+            //Start from the beginning
+        }
+        catch (NumberFormatException e)
+        {
+            //Start from the beginning
+        }
+        return 0;
+    }
+
+    /**
+     * Write the checkpoint through a temporary file, so a crash leaves the previous checkpoint
+     *
+     * @param block block the next replay starts from
+     */
+    private void writeCheckpoint(int block) throws LRException
+    {
+        Properties properties = new Properties();
+        properties.setProperty(checkpointBlock, Integer.toString(block));
+        properties.setProperty(checkpointRecord, Long.toString(archive.getFirstRecord(block)));
+        properties.setProperty(checkpointRecords, Long.toString(archive.getRecordCount()));
+
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        try
+        {
+            OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                properties.store(out, "LRReplay checkpoint");
+            }
+            finally
+            {
+                out.close();
+            }
+            checkpoint.delete();
+            if (!temp.renameTo(checkpoint))
+            {
+                throw new LRException(LRException.WRITE_FAILED);
+            }
+        }
+        catch (IOException e)
+        {
+            temp.delete();
+            throw new LRException(LRException.WRITE_FAILED);
+        }
+    }
+
+    /**
+     * Task processing one range of blocks
+     * It returns its results for an ordered replay, and sends them to the sink itself otherwise.
+     */
+    private class Range extends RecursiveTask<List<Object>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromBlock;
+        private final int toBlock;
+
+        Range(int fromBlock, int toBlock)
+        {
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        protected List<Object> compute()
+        {
+            final List<Object> results = new ArrayList<Object>();
+
+            try
+            {
+                archive.scan(fromBlock, toBlock, new LRArchiveReader.Visitor()
+                {
+                    public boolean visit(long index, String envelope)
+                    {
+                        try
+                        {
+                            R result = processor.process(index, envelope);
+                            if (result != null && sink != null)
+                            {
+                                results.add(index);
+                                results.add(result);
+                            }
+                        }
+                        catch (LRException e)
+                        {
+                            failed.incrementAndGet();
+                            lastError = e;
+                        }
+                        catch (RuntimeException e)
+                        {
+                            failed.incrementAndGet();
+                            lastError = new LRException(LRException.UNKNOWN);
+                        }
+                        processed.incrementAndGet();
+                        return !isCancelled();
+                    }
+                });
+
+                if (!ordered)
+                {
+                    emit(results);
+                    results.clear();
+                }
+            }
+            catch (LRException e)
+            {
+                // A damaged block, or the failure of the sink, ends the replay
+                throw new LRFailure(e);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Carries an LRException out of a task
+     */
+    private static final class LRFailure extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        LRFailure(LRException cause)
+        {
+            super(cause);
+        }
+    }
+}
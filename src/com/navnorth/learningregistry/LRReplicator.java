@@ -0,0 +1,793 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Mirror of the documents of one node on another
+ * Each run harvests the records that reached the source node since the last run, with listrecords, and publishes
+ * them to the destination with their doc IDs, in batches of the batch size of the destination exporter. The next page
+ * of records is fetched while a page is published, and the checks of a page run at once, on up to the thread count.
+ * <br>
+ * A document is skipped if the destination already has its doc ID, or if a document of the same content has been
+ * published by this replicator. A signature is kept if the hash it signs matches the content of the envelope and, if a
+ * public key is known for its key location, the signature verifies with the key; a signature that cannot be kept is
+ * replaced by one of the signer of the replicator, or dropped if it has none.
+ * <br>
+ * With a checkpoint file, the replicator records after each page how far it has got, and the next run goes on from
+ * there. A run that completes moves the start of the next run to the time it started; the runs overlap by a second,
+ * and documents of the overlap are skipped as already present.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRReplicator
+{
+    private static final String signatureHeader = "-----BEGIN PGP SIGNATURE-----";
+    private static final String signatureField = "signature";
+    private static final String keyLocationField = "key_location";
+    private static final String nodeTimestampField = "node_timestamp";
+    private static final String okField = "OK";
+
+    private static final String checkpointFrom = "from";
+    private static final String checkpointUntil = "until";
+    private static final String checkpointToken = "token";
+    private static final String checkpointDatestamp = "datestamp";
+
+    private static final String dateFormat = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final int dateLength = 19;
+
+    // Content hashes of the documents published, enough to catch copies harvested close together
+    private static final int rememberedHashes = 100000;
+
+    private final LRImporter source;
+    private final LRExporter destination;
+    private final LRImporter destinationImporter;
+
+    private final Map<String, String> publicKeys = new ConcurrentHashMap<String, String>();
+    private LRSigner signer;
+    private Date from;
+    private File checkpoint;
+    private int threads = 16;
+
+    // Guarded by itself
+    private final Map<String, Boolean> hashes = new LinkedHashMap<String, Boolean>()
+    {
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+        {
+            return size() > rememberedHashes;
+        }
+    };
+
+    // Window of the run, and how far it has got
+    private boolean started;
+    private Date windowFrom;
+    private Date windowUntil;
+    private String token;
+    private String datestamp;
+
+    private final AtomicLong harvested = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong present = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong signaturesKept = new AtomicLong();
+    private final AtomicLong signaturesReplaced = new AtomicLong();
+    private final AtomicLong signaturesDropped = new AtomicLong();
+    private volatile LRException lastError;
+
+    /**
+     * Creates the replicator
+     *
+     * @param source importer of the source node
+     * @param destination configured exporter of the destination node
+     * @param destinationImporter importer of the destination node, to check for documents it already has, or null to
+     *      check only the content of the documents published by this replicator
+     */
+    public LRReplicator(LRImporter source, LRExporter destination, LRImporter destinationImporter)
+    {
+        this.source = source;
+        this.destination = destination;
+        this.destinationImporter = destinationImporter;
+    }
+
+    /**
+     * Sets the signer for envelopes whose signature cannot be kept
+     *
+     * @param signer signer, or null to publish such envelopes unsigned
+     */
+    public void setSigner(LRSigner signer)
+    {
+        this.signer = signer;
+    }
+
+    /**
+     * Adds a public key to verify the signatures of the envelopes that name its location
+     *
+     * @param keyLocation key location, as in the "key_location" of a signature
+     * @param publicKey armored public key
+     */
+    public void addPublicKey(String keyLocation, String publicKey)
+    {
+        publicKeys.put(keyLocation, publicKey);
+    }
+
+    /**
+     * Sets where the first run starts, when there is no checkpoint (default the earliest records of the source)
+     *
+     * @param from time from which to harvest, or null for the earliest records
+     */
+    public void setFrom(Date from)
+    {
+        this.from = from;
+    }
+
+    /**
+     * Sets the checkpoint file, read at the start of a run and written after each page
+     *
+     * @param checkpoint checkpoint file, or null for none
+     */
+    public void setCheckpoint(File checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets the number of documents of a page checked at once (default 16)
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Replicate the records that reached the source since the last run, or since the checkpoint
+     *
+     * @return number of documents published by this run
+     * @throws LRException IMPORT_FAILED if the source refuses a page, the failure of a request to the source or the
+     *      destination, WRITE_FAILED if the checkpoint cannot be written, or UNKNOWN if interrupted
+     */
+    public long run() throws LRException
+    {
+        harvested.set(0);
+        published.set(0);
+        present.set(0);
+        duplicates.set(0);
+        failed.set(0);
+        signaturesKept.set(0);
+        signaturesReplaced.set(0);
+        signaturesDropped.set(0);
+        lastError = null;
+
+        readCheckpoint();
+        if (windowUntil == null)
+        {
+            windowUntil = new Date();
+        }
+
+        boolean resuming = (token != null);
+        Future<LRResult> next = fetch(token);
+
+        try
+        {
+            while (next != null)
+            {
+                LRResult page = next.get();
+                next = null;
+
+                if (page.getData() == null || !page.getData().optBoolean(okField, true))
+                {
+                    if (!resuming)
+                    {
+                        throw new LRException(LRException.IMPORT_FAILED);
+                    }
+
+                    // The token of the checkpoint has expired; harvest again from the last record published
+                    Date last = parseDate(datestamp);
+                    if (last != null)
+                    {
+                        windowFrom = last;
+                    }
+                    resuming = false;
+                    token = null;
+                    next = fetch(null);
+                    continue;
+                }
+                resuming = false;
+
+                String nextToken = page.getResumptionToken();
+                if (nextToken != null && nextToken.length() > 0)
+                {
+                    next = fetch(nextToken);
+                }
+                else
+                {
+                    nextToken = null;
+                }
+
+                replicate(page.getEnvelopes());
+
+                token = nextToken;
+                writeCheckpoint();
+            }
+
+            // The next run starts where this one ended
+            windowFrom = windowUntil;
+            windowUntil = null;
+            datestamp = null;
+            writeCheckpoint();
+
+            return published.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof LRException)
+            {
+                throw new LRException(((LRException) cause).getCode());
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new LRException(LRException.IMPORT_FAILED);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LRException(LRException.UNKNOWN);
+        }
+        finally
+        {
+            if (next != null)
+            {
+                next.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return number of envelopes harvested from the source by the last run
+     */
+    public long getHarvested()
+    {
+        return harvested.get();
+    }
+
+    /**
+     * @return number of documents published to the destination by the last run
+     */
+    public long getPublished()
+    {
+        return published.get();
+    }
+
+    /**
+     * @return number of documents skipped by the last run because the destination already had their doc ID
+     */
+    public long getPresent()
+    {
+        return present.get();
+    }
+
+    /**
+     * @return number of documents skipped by the last run because a document of the same content was published
+     */
+    public long getDuplicates()
+    {
+        return duplicates.get();
+    }
+
+    /**
+     * @return number of documents that could not be read, signed or published in the last run
+     */
+    public long getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * @return number of documents sent with the signature they were harvested with in the last run
+     */
+    public long getSignaturesKept()
+    {
+        return signaturesKept.get();
+    }
+
+    /**
+     * @return number of documents sent with a signature of the signer of the replicator in the last run
+     */
+    public long getSignaturesReplaced()
+    {
+        return signaturesReplaced.get();
+    }
+
+    /**
+     * @return number of documents sent unsigned in the last run, because their signature could not be kept
+     */
+    public long getSignaturesDropped()
+    {
+        return signaturesDropped.get();
+    }
+
+    /**
+     * @return last failure of a document in the last run, or null
+     */
+    public LRException getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * Start fetching a page of the window in the background
+     *
+     * @param resumptionToken token of the page, or null for the first page
+     */
+    private Future<LRResult> fetch(final String resumptionToken)
+    {
+        final Date pageFrom = windowFrom;
+        final Date pageUntil = windowUntil;
+
+        return LRExecution.getSharedExecutor().submit(new Callable<LRResult>()
+        {
+            public LRResult call() throws LRException
+            {
+                if (resumptionToken != null)
+                {
+                    return source.getListRecordsJSONData(resumptionToken);
+                }
+                return source.getListRecordsJSONData(pageFrom, pageUntil);
+            }
+        });
+    }
+
+    /**
+     * Publish the envelopes of a page that the destination does not have
+     */
+    private void replicate(List<JSONObject> envelopes) throws LRException, InterruptedException
+    {
+        List<LRHarvestedEnvelope> candidates = new ArrayList<LRHarvestedEnvelope>();
+        List<String> candidateHashes = new ArrayList<String>();
+
+        for (JSONObject json : envelopes)
+        {
+            harvested.incrementAndGet();
+
+            String timestamp = json.optString(nodeTimestampField, null);
+            if (timestamp != null && (datestamp == null || timestamp.compareTo(datestamp) > 0))
+            {
+                datestamp = timestamp;
+            }
+
+            LRHarvestedEnvelope envelope;
+            String hash;
+            try
+            {
+                envelope = new LRHarvestedEnvelope(json.toString());
+                hash = LRSigner.bencode(envelope.getSignableData());
+            }
+            catch (LRException e)
+            {
+                fail(e);
+                continue;
+            }
+
+            synchronized (hashes)
+            {
+                if (hashes.containsKey(hash))
+                {
+                    duplicates.incrementAndGet();
+                    continue;
+                }
+                hashes.put(hash, Boolean.TRUE);
+            }
+            candidates.add(envelope);
+            candidateHashes.add(hash);
+        }
+
+        // If the page is not settled, its documents are forgotten so that the next run publishes them; those already
+        // published are then found at the destination
+        boolean settled = false;
+        try
+        {
+            // Check for each document at the destination and settle its signature, all at once
+            List<Future<LRHarvestedEnvelope>> checks = new ArrayList<Future<LRHarvestedEnvelope>>();
+            LRTaskScope scope = new LRTaskScope("LRReplicator", threads);
+            try
+            {
+                for (int i = 0; i < candidates.size(); i++)
+                {
+                    final LRHarvestedEnvelope envelope = candidates.get(i);
+                    final String hash = candidateHashes.get(i);
+                    checks.add(scope.fork(new Callable<LRHarvestedEnvelope>()
+                    {
+                        public LRHarvestedEnvelope call()
+                        {
+                            return prepare(envelope, hash);
+                        }
+                    }));
+                }
+                scope.join();
+            }
+            finally
+            {
+                scope.close();
+            }
+
+            List<LRHarvestedEnvelope> sendable = new ArrayList<LRHarvestedEnvelope>();
+            List<String> sendableHashes = new ArrayList<String>();
+            for (int i = 0; i < checks.size(); i++)
+            {
+                LRHarvestedEnvelope envelope;
+                try
+                {
+                    envelope = checks.get(i).get();
+                }
+                catch (ExecutionException e)
+                {
+                    // Not reached; join() has thrown any failure
+                    throw new LRException(LRException.UNKNOWN);
+                }
+                if (envelope != null)
+                {
+                    sendable.add(envelope);
+                    sendableHashes.add(candidateHashes.get(i));
+                }
+            }
+
+            publish(sendable, sendableHashes);
+            settled = true;
+        }
+        finally
+        {
+            if (!settled)
+            {
+                for (String hash : candidateHashes)
+                {
+                    forget(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decide whether a document is sent, and with which signature
+     *
+     * @return the envelope to send, or null if it is not sent
+     */
+    private LRHarvestedEnvelope prepare(LRHarvestedEnvelope envelope, String hash)
+    {
+        if (isPresent(envelope.getDocID()))
+        {
+            present.incrementAndGet();
+            return null;
+        }
+
+        Map<String, Object> signature = envelope.getDigitalSignature();
+        if (signature == null)
+        {
+            return envelope;
+        }
+        if (isSignatureValid(signature, hash))
+        {
+            signaturesKept.incrementAndGet();
+            return envelope;
+        }
+
+        envelope.removeSignature();
+        if (signer == null)
+        {
+            signaturesDropped.incrementAndGet();
+            return envelope;
+        }
+        try
+        {
+            signer.sign(envelope);
+            signaturesReplaced.incrementAndGet();
+            return envelope;
+        }
+        catch (LRException e)
+        {
+            fail(e);
+            forget(hash);
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the destination has a doc ID
+     * A destination that cannot be asked is taken not to have it; publishing the document will fail in turn.
+     */
+    private boolean isPresent(String docID)
+    {
+        if (docID == null || destinationImporter == null)
+        {
+            return false;
+        }
+        try
+        {
+            return destinationImporter.getObtainJSONData(docID, false, true, true).getDocIDs().contains(docID);
+        }
+        catch (LRException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether a signature still holds for the content of its envelope
+     *
+     * @param signature digital signature of the envelope
+     * @param hash hash of the bencoded envelope, which is the clear text of its signature
+     */
+    private boolean isSignatureValid(Map<String, Object> signature, String hash)
+    {
+        Object value = signature.get(signatureField);
+        if (!(value instanceof String))
+        {
+            return false;
+        }
+        String message = (String) value;
+        int armor = message.indexOf(signatureHeader);
+        if (armor < 0 || !message.substring(0, armor).trim().endsWith(hash))
+        {
+            return false;
+        }
+
+        Object locations = signature.get(keyLocationField);
+        List<Object> keyLocations = new ArrayList<Object>();
+        if (locations instanceof List)
+        {
+            keyLocations.addAll((List<?>) locations);
+        }
+        else if (locations != null)
+        {
+            keyLocations.add(locations);
+        }
+
+        boolean known = false;
+        for (Object location : keyLocations)
+        {
+            String publicKey = (location != null) ? publicKeys.get(location.toString()) : null;
+            if (publicKey == null)
+            {
+                continue;
+            }
+            known = true;
+            try
+            {
+                if (LRVerify.VerifyStrings(message.substring(armor), message, publicKey))
+                {
+                    return true;
+                }
+            }
+            catch (LRException e)
+            {
+                //Try the next key
+            }
+        }
+
+        // Without a known key, matching the content is as far as the signature can be checked
+        return !known;
+    }
+
+    /**
+     * Publish envelopes to the destination, a batch at a time
+     */
+    private void publish(List<LRHarvestedEnvelope> envelopes, List<String> envelopeHashes) throws LRException
+    {
+        int batchSize = Math.max(destination.getBatchSize(), 1);
+
+        for (int start = 0; start < envelopes.size(); start += batchSize)
+        {
+            int end = Math.min(start + batchSize, envelopes.size());
+            List<LRResponse> responses = destination.sendDocuments(envelopes.subList(start, end));
+            List<Boolean> outcomes = new ArrayList<Boolean>();
+            for (LRResponse response : responses)
+            {
+                if (response.getBatchSuccess())
+                {
+                    outcomes.addAll(response.getResourceOutcomes());
+                }
+            }
+
+            for (int i = start; i < end; i++)
+            {
+                if (i - start < outcomes.size() && outcomes.get(i - start))
+                {
+                    published.incrementAndGet();
+                }
+                else
+                {
+                    failed.incrementAndGet();
+                    forget(envelopeHashes.get(i));
+                }
+            }
+        }
+    }
+
+    private void forget(String hash)
+    {
+        synchronized (hashes)
+        {
+            hashes.remove(hash);
+        }
+    }
+
+    private void fail(LRException e)
+    {
+        failed.incrementAndGet();
+        lastError = e;
+    }
+
+    /**
+     * Read the checkpoint, or go on from the last run of this replicator, or start from the configured time
+     */
+    private void readCheckpoint()
+    {
+        if (checkpoint == null || !checkpoint.exists())
+        {
+            if (!started)
+            {
+                windowFrom = from;
+                started = true;
+            }
+            return;
+        }
+
+        Properties properties = new Properties();
+        try
+        {
+            InputStream in = new FileInputStream(checkpoint);
+            try
+            {
+                properties.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            //Start from the configured time
+            return;
+        }
+
+        windowFrom = parseDate(properties.getProperty(checkpointFrom));
+        windowUntil = parseDate(properties.getProperty(checkpointUntil));
+        datestamp = properties.getProperty(checkpointDatestamp);
+
+        // A token only goes on with the window it belongs to
+        token = (windowUntil != null) ? properties.getProperty(checkpointToken) : null;
+    }
+
+    /**
+     * Write the checkpoint through a temporary file, so a crash leaves the previous checkpoint
+     */
+    private void writeCheckpoint() throws LRException
+    {
+        if (checkpoint == null)
+        {
+            return;
+        }
+
+        Properties properties = new Properties();
+        if (windowFrom != null)
+        {
+            properties.setProperty(checkpointFrom, formatDate(windowFrom));
+        }
+        if (windowUntil != null)
+        {
+            properties.setProperty(checkpointUntil, formatDate(windowUntil));
+        }
+        if (token != null)
+        {
+            properties.setProperty(checkpointToken, token);
+        }
+        if (datestamp != null)
+        {
+            properties.setProperty(checkpointDatestamp, datestamp);
+        }
+
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        try
+        {
+            OutputStream out = new FileOutputStream(temp);
+            try
+            {
+                properties.store(out, "LRReplicator checkpoint");
+            }
+            finally
+            {
+                out.close();
+            }
+            checkpoint.delete();
+            if (!temp.renameTo(checkpoint))
+            {
+                throw new LRException(LRException.WRITE_FAILED);
+            }
+        }
+        catch (IOException e)
+        {
+            temp.delete();
+            throw new LRException(LRException.WRITE_FAILED);
+        }
+    }
+
+    private static String formatDate(Date date)
+    {
+        return newDateFormat().format(date) + "Z";
+    }
+
+    /**
+     * Parse the seconds of a UTC date, such as a node timestamp
+     *
+     * @return the date, or null if it cannot be parsed
+     */
+    private static Date parseDate(String date)
+    {
+        if (date == null || date.length() < dateLength)
+        {
+            return null;
+        }
+        try
+        {
+            return newDateFormat().parse(date.substring(0, dateLength));
+        }
+        catch (ParseException e)
+        {
+            return null;
+        }
+    }
+
+    private static DateFormat newDateFormat()
+    {
+        DateFormat format = new SimpleDateFormat(dateFormat);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
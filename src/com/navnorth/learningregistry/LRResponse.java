@@ -37,6 +37,7 @@ public class LRResponse
     private boolean batchSuccess;
     private List<String> resourceSuccess = new ArrayList<String>();
     private List<String> resourceFailure = new ArrayList<String>();
+    private List<Boolean> resourceOutcomes = new ArrayList<Boolean>();
     
     /**
      * Create a response
@@ -60,6 +61,7 @@ public class LRResponse
     public void addResourceSuccess(String id)
     {
         resourceSuccess.add(id);
+        resourceOutcomes.add(true);
     }
     
     /**
@@ -70,6 +72,7 @@ public class LRResponse
     public void addResourceFailure(String error)
     {
         resourceFailure.add(error);
+        resourceOutcomes.add(false);
     }
     
     /**
@@ -143,4 +146,14 @@ public class LRResponse
     {
         return resourceFailure;
     }
+    
+    /**
+     * Get the outcome of each resource in this batch, in the order the resources were sent
+     *
+     * @return List of true for each successfully added resource and false for each failure
+     */
+    public List<Boolean> getResourceOutcomes()
+    {
+        return resourceOutcomes;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,442 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Cache of importer responses, revalidated with conditional requests
+ * Responses that carry an ETag or Last-Modified validator are kept, and later requests for the same path send
+ * If-None-Match and If-Modified-Since; a 304 Not Modified response is answered from the cache. Entries live in a
+ * memory tier and, if a directory is given, a disk tier; each tier is bounded in size and evicts its least recently
+ * used entries, with entries evicted from memory moving to disk. The disk tier survives restarts.
+ * A cache can be shared by several importers and threads. Failures to read or write the disk tier are treated as
+ * misses.
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class LRResponseCache
+{
+    private static final String entrySuffix = ".entry";
+    private static final int entryVersion = 1;
+
+    // Memory used by an entry besides its text
+    private static final int entryOverhead = 256;
+
+    private final long maxMemoryBytes;
+    private final File directory;
+    private final long maxDiskBytes;
+
+    // Guarded by this; both in order of last use
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    /**
+     * Create a cache held in memory
+     *
+     * @param maxMemoryBytes largest size of the cached responses, in bytes
+     */
+    public LRResponseCache(long maxMemoryBytes)
+    {
+        this(maxMemoryBytes, null, 0);
+    }
+
+    /**
+     * Create a cache held in memory and on disk
+     * Entries already in the directory are loaded, so responses cached by an earlier run are revalidated rather than
+     * fetched again.
+     *
+     * @param maxMemoryBytes largest size of the responses cached in memory, in bytes
+     * @param directory directory of the disk tier, created if needed, or null for no disk tier
+     * @param maxDiskBytes largest size of the responses cached on disk, in bytes
+     */
+    public LRResponseCache(long maxMemoryBytes, File directory, long maxDiskBytes)
+    {
+        this.maxMemoryBytes = Math.max(maxMemoryBytes, 0);
+        this.directory = (maxDiskBytes > 0) ? directory : null;
+        this.maxDiskBytes = Math.max(maxDiskBytes, 0);
+
+        if (this.directory != null)
+        {
+            this.directory.mkdirs();
+            loadDisk();
+        }
+    }
+
+    /**
+     * @return bytes of the responses cached in memory
+     */
+    public synchronized long getMemorySize()
+    {
+        return memoryBytes;
+    }
+
+    /**
+     * @return bytes of the responses cached on disk
+     */
+    public synchronized long getDiskSize()
+    {
+        return diskBytes;
+    }
+
+    /**
+     * Remove every entry from the cache, in memory and on disk
+     */
+    public void clear()
+    {
+        List<String> keys;
+        synchronized (this)
+        {
+            keys = new ArrayList<String>(disk.keySet());
+            memory.clear();
+            disk.clear();
+            memoryBytes = 0;
+            diskBytes = 0;
+        }
+        for (String key : keys)
+        {
+            getFile(key).delete();
+        }
+    }
+
+    /**
+     * Find the cached response for a key, from memory or else from disk
+     *
+     * @param key key of the response
+     * @return cached response, or null if there is none
+     */
+    Entry get(String key)
+    {
+        synchronized (this)
+        {
+            Entry entry = memory.get(key);
+            if (entry != null || disk.get(key) == null)
+            {
+                return entry;
+            }
+        }
+
+        File file = getFile(key);
+        Entry entry = readEntry(file);
+        if (entry == null || !entry.key.equals(key))
+        {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+
+        List<Entry> evicted;
+        synchronized (this)
+        {
+            evicted = putInMemory(entry);
+        }
+        writeToDisk(evicted);
+        return entry;
+    }
+
+    /**
+     * Cache a response, replacing any earlier response for the key
+     *
+     * @param key key of the response
+     * @param etag ETag of the response, or null
+     * @param lastModified Last-Modified of the response, or null
+     * @param text text of the response
+     */
+    void put(String key, String etag, String lastModified, String text)
+    {
+        Entry entry = new Entry(key, etag, lastModified, text);
+        List<Entry> evicted;
+        synchronized (this)
+        {
+            // The copy on disk, if any, is out of date
+            removeFromDisk(key);
+            evicted = putInMemory(entry);
+        }
+        writeToDisk(evicted);
+    }
+
+    /**
+     * Add an entry to the memory tier and evict the least recently used entries over the size limit
+     *
+     * @return entries evicted that should move to the disk tier
+     */
+    private List<Entry> putInMemory(Entry entry)
+    {
+        Entry old = memory.put(entry.key, entry);
+        if (old != null)
+        {
+            memoryBytes -= old.size;
+        }
+        memoryBytes += entry.size;
+
+        List<Entry> evicted = null;
+        Iterator<Entry> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext())
+        {
+            Entry victim = eldest.next();
+            eldest.remove();
+            memoryBytes -= victim.size;
+            if (directory != null && !disk.containsKey(victim.key))
+            {
+                if (evicted == null)
+                {
+                    evicted = new ArrayList<Entry>();
+                }
+                evicted.add(victim);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Write entries evicted from memory to the disk tier, outside the lock
+     */
+    private void writeToDisk(List<Entry> entries)
+    {
+        if (entries == null)
+        {
+            return;
+        }
+
+        for (Entry entry : entries)
+        {
+            File file = getFile(entry.key);
+            long length = writeEntry(entry, file);
+            if (length < 0)
+            {
+                continue;
+            }
+
+            synchronized (this)
+            {
+                Long old = disk.put(entry.key, length);
+                if (old != null)
+                {
+                    diskBytes -= old;
+                }
+                diskBytes += length;
+                evictFromDisk();
+            }
+        }
+    }
+
+    private void removeFromDisk(String key)
+    {
+        Long length = disk.remove(key);
+        if (length != null)
+        {
+            diskBytes -= length;
+            getFile(key).delete();
+        }
+    }
+
+    private void evictFromDisk()
+    {
+        Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && eldest.hasNext())
+        {
+            Map.Entry<String, Long> victim = eldest.next();
+            eldest.remove();
+            diskBytes -= victim.getValue();
+            getFile(victim.getKey()).delete();
+        }
+    }
+
+    /**
+     * Index the entries left in the directory by an earlier run, least recently used first
+     */
+    private void loadDisk()
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File a, File b)
+            {
+                long diff = a.lastModified() - b.lastModified();
+                return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+            }
+        });
+
+        for (File file : files)
+        {
+            if (!file.getName().endsWith(entrySuffix))
+            {
+                continue;
+            }
+            Entry entry = readEntry(file);
+            if (entry == null || !file.equals(getFile(entry.key)))
+            {
+                file.delete();
+                continue;
+            }
+            disk.put(entry.key, file.length());
+            diskBytes += file.length();
+        }
+        evictFromDisk();
+    }
+
+    private File getFile(String key)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            return new File(directory, new String(Hex.encodeHex(digest)) + entrySuffix);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write an entry to a file, through a temporary file so a reader never sees part of an entry
+     *
+     * @return length of the file, or -1 if it could not be written
+     */
+    private long writeEntry(Entry entry, File file)
+    {
+        File temp = null;
+        try
+        {
+            temp = File.createTempFile("entry", ".tmp", directory);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try
+            {
+                byte[] text = entry.text.getBytes("UTF-8");
+                out.writeInt(entryVersion);
+                out.writeUTF(entry.key);
+                out.writeUTF((entry.etag != null) ? entry.etag : "");
+                out.writeUTF((entry.lastModified != null) ? entry.lastModified : "");
+                out.writeInt(text.length);
+                out.write(text);
+            }
+            finally
+            {
+                out.close();
+            }
+
+            file.delete();
+            if (!temp.renameTo(file))
+            {
+                temp.delete();
+                return -1;
+            }
+            return file.length();
+        }
+        catch (IOException e)
+        {
+            if (temp != null)
+            {
+                temp.delete();
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Read an entry from a file
+     *
+     * @return the entry, or null if the file is missing or cannot be read
+     */
+    private static Entry readEntry(File file)
+    {
+        try
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try
+            {
+                if (in.readInt() != entryVersion)
+                {
+                    return null;
+                }
+                String key = in.readUTF();
+                String etag = in.readUTF();
+                String lastModified = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > file.length())
+                {
+                    return null;
+                }
+                byte[] text = new byte[length];
+                in.readFully(text);
+                return new Entry(key, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified, new String(text, "UTF-8"));
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * A cached response and its validators
+     */
+    static final class Entry
+    {
+        final String key;
+        final String etag;
+        final String lastModified;
+        final String text;
+        final long size;
+
+        Entry(String key, String etag, String lastModified, String text)
+        {
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.text = text;
+            this.size = 2L * (key.length() + text.length()) + entryOverhead;
+        }
+    }
+}
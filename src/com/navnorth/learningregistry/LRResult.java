@@ -38,7 +38,11 @@ public class LRResult
     private static String documentParam = "document";
     private static String getRecordParam = "getrecord";
     private static String recordParam = "record";
+    private static String listRecordsParam = "listrecords";
     private static String resourceDataParam = "resource_data";
+    private static String docIDParam = "doc_ID";
+    private static String headerParam = "header";
+    private static String identifierParam = "identifier";
 
     private JSONObject data;
     
@@ -106,11 +110,11 @@ public class LRResult
                     if (json.has(documentParam))
                     {
                         JSONObject result = json.getJSONObject(documentParam);
-                        results.add(result);
+                        resources.add(result);
                     }
                 }
             }
-            else if (data != null && data.has(getRecordParam))
+            else if (data != null && (data.has(getRecordParam) || data.has(listRecordsParam)))
             {
                 List<JSONObject> results = getRecords();
                 
@@ -119,7 +123,7 @@ public class LRResult
                     if (json.has(resourceDataParam))
                     {
                         JSONObject result = json.getJSONObject(resourceDataParam);
-                        results.add(result);
+                        resources.add(result);
                     }
                 }
             }
@@ -163,7 +167,7 @@ public class LRResult
     }
     
     /**
-     * Returns records from harvest request
+     * Returns records from harvest getrecord or listrecords request
      *
      * @return records from harvest request
      */
@@ -188,6 +192,19 @@ public class LRResult
                     }
                 }
             }
+            else if (data != null && data.has(listRecordsParam))
+            {
+                JSONArray jsonListRecords = data.getJSONArray(listRecordsParam);
+                
+                for(int i = 0; i < jsonListRecords.length(); i++)
+                {
+                    JSONObject item = jsonListRecords.optJSONObject(i);
+                    if (item != null && item.has(recordParam))
+                    {
+                        records.add(item.getJSONObject(recordParam));
+                    }
+                }
+            }
         }
         catch (JSONException e)
         {
@@ -196,4 +213,98 @@ public class LRResult
         
         return records;
     }
+    
+    /**
+     * Returns the envelopes in an obtain, harvest or extract result
+     * Results requested with ids_only have no envelopes.
+     *
+     * @return list of envelopes as JSON, in the order of the result
+     */
+    public List<JSONObject> getEnvelopes()
+    {
+        List<JSONObject> envelopes = new ArrayList<JSONObject>();
+        
+        for (JSONObject document : getDocuments())
+        {
+            JSONArray obtained = document.optJSONArray(documentParam);
+            JSONObject extracted = document.optJSONObject(resourceDataParam);
+            
+            if (obtained != null)
+            {
+                for (int i = 0; i < obtained.length(); i++)
+                {
+                    JSONObject envelope = obtained.optJSONObject(i);
+                    if (envelope != null)
+                    {
+                        envelopes.add(envelope);
+                    }
+                }
+            }
+            else if (extracted != null)
+            {
+                envelopes.add(extracted);
+            }
+        }
+        
+        for (JSONObject record : getRecords())
+        {
+            JSONObject envelope = record.optJSONObject(resourceDataParam);
+            
+            if (envelope != null)
+            {
+                envelopes.add(envelope);
+            }
+        }
+        
+        return envelopes;
+    }
+    
+    /**
+     * Returns the doc IDs of the envelopes in an obtain, harvest or extract result
+     * For obtain results, the IDs of the envelopes in each document are used, since the document ID may be a resource locator
+     *
+     * @return list of doc IDs
+     */
+    public List<String> getDocIDs()
+    {
+        List<String> ids = new ArrayList<String>();
+        
+        for (JSONObject document : getDocuments())
+        {
+            JSONArray envelopes = document.optJSONArray(documentParam);
+            
+            if (envelopes != null)
+            {
+                for (int i = 0; i < envelopes.length(); i++)
+                {
+                    JSONObject envelope = envelopes.optJSONObject(i);
+                    if (envelope != null && envelope.has(docIDParam))
+                    {
+                        ids.add(envelope.optString(docIDParam));
+                    }
+                }
+            }
+            else if (document.has(docIDParam))
+            {
+                ids.add(document.optString(docIDParam));
+            }
+        }
+        
+        for (JSONObject record : getRecords())
+        {
+            JSONObject envelope = record.optJSONObject(resourceDataParam);
+            JSONObject header = record.optJSONObject(headerParam);
+            
+            if (envelope != null && envelope.has(docIDParam))
+            {
+                ids.add(envelope.optString(docIDParam));
+            }
+            else if (header != null && header.has(identifierParam))
+            {
+                ids.add(header.optString(identifierParam));
+            }
+        }
+        
+        return ids;
+    }
 }
\ No newline at end of file
@@ -30,6 +30,8 @@ import java.io.File;
 import java.security.MessageDigest;
 import java.security.Security;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.bcpg.ArmoredOutputStream;
 import org.bouncycastle.bcpg.BCPGOutputStream;
@@ -62,6 +64,13 @@ public class LRSigner
     private String privateKey;
     private String passPhrase;
 
+    // Signing key, read and decrypted once and then shared by every signature
+    private volatile PGPSecretKey secretKey;
+    private volatile PGPPrivateKey signingKey;
+
+    // Guards reading the key, which may block on a file or URL
+    private final ReentrantLock keyLock = new ReentrantLock();
+
     /**
      * Creates a signer, using specified key values
      *
@@ -91,13 +100,7 @@ public class LRSigner
      */
     public LREnvelope sign(LREnvelope envelope) throws LRException
     {
-        // Bencode the document
-        String bencodedMessage = bencode(envelope.getSignableData());
-
-        // Clear sign the bencoded document
-        String clearSignedMessage = signEnvelopeData(bencodedMessage);
-
-        envelope.addSigningData(signingMethod, publicKeyLocation, clearSignedMessage);
+        addSignature(envelope);
 
         return envelope;
     }
@@ -111,13 +114,7 @@ public class LRSigner
      */
     public LRDelete sign(LRDelete envelope) throws LRException
     {
-        // Bencode the document
-        String bencodedMessage = bencode(envelope.getSignableData());
-
-        // Clear sign the bencoded document
-        String clearSignedMessage = signEnvelopeData(bencodedMessage);
-
-        envelope.addSigningData(signingMethod, publicKeyLocation, clearSignedMessage);
+        addSignature(envelope);
 
         return envelope;
     }
@@ -131,15 +128,49 @@ public class LRSigner
      */
     public LRActivity sign(LRActivity envelope) throws LRException
     {
-        // Bencode the document
-        String bencodedMessage = bencode(envelope.getSignableData());
+        addSignature(envelope);
 
-        // Clear sign the bencoded document
-        String clearSignedMessage = signEnvelopeData(bencodedMessage);
+        return envelope;
+    }
 
-        envelope.addSigningData(signingMethod, publicKeyLocation, clearSignedMessage);
+    /**
+     * Bencode and clear sign the envelope, adding the signature to it
+     *
+     * @param envelope envelope to be signed
+     * @throws LRException BENCODE_FAILED, SIGNING_FAILED, NULL_FIELD or a key error if the envelope cannot be signed
+     */
+    private void addSignature(LREnvelope envelope) throws LRException
+    {
+        LRMetrics metrics = LRInstrumentation.getMetrics();
+        LRFlightRecorder.Sign event = new LRFlightRecorder.Sign();
+        event.begin();
+        long start = System.nanoTime();
+        boolean signed = false;
 
-        return envelope;
+        try
+        {
+            // Bencode the document
+            String bencodedMessage = bencode(envelope.getSignableData());
+
+            // Clear sign the bencoded document
+            String clearSignedMessage = signEnvelopeData(bencodedMessage);
+
+            envelope.addSigningData(signingMethod, publicKeyLocation, clearSignedMessage);
+            signed = true;
+        }
+        finally
+        {
+            metrics.time(LRInstrumentation.signerSignTime, System.nanoTime() - start);
+            metrics.increment(signed ? LRInstrumentation.signerDocumentsSigned : LRInstrumentation.signerErrors, 1);
+
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.envelopeType = envelope.getClass().getSimpleName();
+                event.succeeded = signed;
+                event.commit();
+            }
+        }
     }
 
     /**
@@ -150,7 +181,7 @@ public class LRSigner
      * - nested maps/JSON documents are normalized
      * @param doc Document to normalize
      */
-    private Map<String, Object> normalizeMap(Map<String, Object> doc) {
+    private static Map<String, Object> normalizeMap(Map<String, Object> doc) {
 
     	final Map<String, Object> result = new LinkedHashMap<String, Object>();
 
@@ -179,7 +210,7 @@ public class LRSigner
      * @param list
      * @return Normalized list for encoding/hashing/signing
      */
-    private List<Object> normalizeList(List<Object> list) {
+    private static List<Object> normalizeList(List<Object> list) {
     	List<Object> result = new ArrayList<Object>();
     	for (Object o : list) {
     		if (o == null) {
@@ -205,7 +236,7 @@ public class LRSigner
      * @return Bencoded string of the provided document
      * @throws LRException BENCODE_FAILED if document cannot be bencoded
     */
-    private String bencode(final Map<String, Object> doc) throws LRException
+    static String bencode(final Map<String, Object> doc) throws LRException
     {
         String text = "";
         String encodedString = "";
@@ -265,21 +296,16 @@ public class LRSigner
             throw new LRException(LRException.NULL_FIELD);
         }
 
-        // Get an InputStream for the private key
-        InputStream privateKeyStream = getPrivateKeyStream(privateKey);
+        // Get the private key, reading it on first use
+        PGPPrivateKey pk = getSigningKey();
+        PGPSecretKey sk = secretKey;
 
         // Get an OutputStream for the result
         ByteArrayOutputStream result = new ByteArrayOutputStream();
         ArmoredOutputStream aOut = new ArmoredOutputStream(result);
 
-        // Get the pass phrase
-        char[] privateKeyPassword = passPhrase.toCharArray();
-
         try
         {
-            // Get the private key from the InputStream
-            PGPSecretKey sk = readSecretKey(privateKeyStream);
-            PGPPrivateKey pk = sk.extractPrivateKey(new JcePBESecretKeyDecryptorBuilder().setProvider("BC").build(privateKeyPassword));
             PGPSignatureGenerator sGen = new PGPSignatureGenerator(new JcaPGPContentSignerBuilder(sk.getPublicKey().getAlgorithm(), PGPUtil.SHA256).setProvider("BC"));
             PGPSignatureSubpacketGenerator spGen = new PGPSignatureSubpacketGenerator();
 
@@ -314,10 +340,6 @@ public class LRSigner
         {
             try
             {
-                if (privateKeyStream != null) {
-                    privateKeyStream.close();
-                }
-
                 result.close();
             }
             catch (IOException e)
@@ -327,6 +349,76 @@ public class LRSigner
         }
     }
 
+    /**
+     * Gets the private key used for signing, reading and decrypting it on first use
+     * The matching secret key is available from secretKey once this returns
+     *
+     * @return private key for signing
+     * @throws LRException NO_KEY_STREAM, NO_KEY or SIGNING_FAILED if the key cannot be obtained
+    */
+    private PGPPrivateKey getSigningKey() throws LRException
+    {
+        PGPPrivateKey key = signingKey;
+        if (key != null)
+        {
+            return key;
+        }
+
+        keyLock.lock();
+        try
+        {
+            if (signingKey != null)
+            {
+                return signingKey;
+            }
+            return readSigningKey();
+        }
+        finally
+        {
+            keyLock.unlock();
+        }
+    }
+
+    /**
+     * Reads and decrypts the private key used for signing; called with the key lock held
+     *
+     * @return private key for signing
+     * @throws LRException NO_KEY_STREAM, NO_KEY or SIGNING_FAILED if the key cannot be obtained
+    */
+    private PGPPrivateKey readSigningKey() throws LRException
+    {
+        // Get an InputStream for the private key
+        InputStream privateKeyStream = getPrivateKeyStream(privateKey);
+
+        // Get the pass phrase
+        char[] privateKeyPassword = passPhrase.toCharArray();
+
+        try
+        {
+            // Get the private key from the InputStream
+            PGPSecretKey sk = readSecretKey(privateKeyStream);
+            PGPPrivateKey pk = sk.extractPrivateKey(new JcePBESecretKeyDecryptorBuilder().setProvider("BC").build(privateKeyPassword));
+            secretKey = sk;
+            signingKey = pk;
+            return pk;
+        }
+        catch (PGPException e)
+        {
+            throw new LRException(LRException.SIGNING_FAILED);
+        }
+        finally
+        {
+            try
+            {
+                privateKeyStream.close();
+            }
+            catch (IOException e)
+            {
+                //Could not close the stream
+            }
+        }
+    }
+
     /**
      * Reads private key from the provided InputStream
      *
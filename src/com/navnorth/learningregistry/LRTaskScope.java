@@ -0,0 +1,230 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scope for tasks forked from one caller, which all end before the scope does
+ * Tasks run on the threads of LRExecution. The first task to fail cancels the others, and join() throws its failure;
+ * closing the scope cancels any task still running and waits for it. Cancelling a task interrupts it and aborts the
+ * LRClient request it is waiting on. Use it in a try-with-resources block:
+ * <pre>
+ * try (LRTaskScope scope = new LRTaskScope("harvest", 16))
+ * {
+ *     Future&lt;LRResult&gt; a = scope.fork(...);
+ *     Future&lt;LRResult&gt; b = scope.fork(...);
+ *     scope.join();
+ *     ... a.get(), b.get()
+ * }
+ * </pre>
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public final class LRTaskScope implements AutoCloseable
+{
+    private final ExecutorService executor;
+    private final List<FutureTask<?>> tasks = new ArrayList<FutureTask<?>>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    private final Thread owner = Thread.currentThread();
+    private boolean closed;
+
+    /**
+     * Create a scope
+     *
+     * @param name prefix of the names of its threads
+     * @param platformThreads tasks run at once in the platform mode; in the virtual mode every task runs at once
+     */
+    public LRTaskScope(String name, int platformThreads)
+    {
+        this.executor = LRExecution.newExecutor(name, platformThreads);
+    }
+
+    /**
+     * Start a task in the scope
+     *
+     * @param task task to run
+     * @return future of the task, whose result is available once join() returns
+     */
+    public <T> Future<T> fork(Callable<T> task)
+    {
+        checkOwner();
+        FutureTask<T> future = new FutureTask<T>(task)
+        {
+            private final LRClient.RequestAborter aborter = new LRClient.RequestAborter();
+
+            public void run()
+            {
+                LRClient.RequestAborter previous = LRClient.setRequestAborter(aborter);
+                try
+                {
+                    super.run();
+                }
+                finally
+                {
+                    LRClient.setRequestAborter(previous);
+                }
+            }
+
+            public boolean cancel(boolean mayInterruptIfRunning)
+            {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled)
+                {
+                    // An interrupt does not end a blocking read, so abort the request of the task as well
+                    aborter.abort();
+                }
+                return cancelled;
+            }
+
+            protected void setException(Throwable t)
+            {
+                super.setException(t);
+                if (failure.compareAndSet(null, t))
+                {
+                    cancelAll();
+                }
+            }
+        };
+
+        synchronized (tasks)
+        {
+            tasks.add(future);
+        }
+        if (failure.get() != null)
+        {
+            future.cancel(false);
+        }
+        else
+        {
+            executor.execute(future);
+        }
+        return future;
+    }
+
+    /**
+     * Wait for every task to end
+     *
+     * @throws LRException the failure of the first task to fail, or UNKNOWN if it failed with another exception
+     * @throws InterruptedException if interrupted while waiting; the tasks are cancelled
+     */
+    public void join() throws LRException, InterruptedException
+    {
+        checkOwner();
+        for (FutureTask<?> task : snapshot())
+        {
+            try
+            {
+                task.get();
+            }
+            catch (InterruptedException e)
+            {
+                cancelAll();
+                throw e;
+            }
+            catch (Exception e)
+            {
+                // The first failure is thrown below
+            }
+        }
+
+        Throwable first = failure.get();
+        if (first instanceof LRException)
+        {
+            throw new LRException(((LRException) first).getCode());
+        }
+        if (first instanceof Error)
+        {
+            throw (Error) first;
+        }
+        if (first != null)
+        {
+            throw new LRException(LRException.UNKNOWN);
+        }
+    }
+
+    /**
+     * Cancel every task still running, and wait for them to end
+     */
+    public void close()
+    {
+        checkOwner();
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        cancelAll();
+        executor.shutdown();
+
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES))
+                {
+                    break;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancelAll()
+    {
+        for (FutureTask<?> task : snapshot())
+        {
+            task.cancel(true);
+        }
+    }
+
+    private List<FutureTask<?>> snapshot()
+    {
+        synchronized (tasks)
+        {
+            return new ArrayList<FutureTask<?>>(tasks);
+        }
+    }
+
+    private void checkOwner()
+    {
+        if (Thread.currentThread() != owner)
+        {
+            throw new IllegalStateException("A task scope may only be used by the thread that created it");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the number of submitted tasks that have not yet finished, so that bulk publishers can wait for them
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+class LRTaskTracker
+{
+    // Guards the count of running tasks
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition finished = lock.newCondition();
+    private int running = 0;
+
+    /**
+     * Record that a task has been submitted
+     */
+    void start()
+    {
+        lock.lock();
+        try
+        {
+            running++;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record that a task has finished
+     */
+    void finish()
+    {
+        lock.lock();
+        try
+        {
+            running--;
+            if (running == 0)
+            {
+                finished.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until every submitted task has finished
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void await() throws InterruptedException
+    {
+        lock.lock();
+        try
+        {
+            while (running > 0)
+            {
+                finished.await();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -91,7 +91,32 @@ public class LRVerify
 		}
 		
 		// Feed the input streams into the primary verify function
-		return Verify(isSignature, isMessage, isPublicKey);
+		LRMetrics metrics = LRInstrumentation.getMetrics();
+		LRFlightRecorder.Verify event = new LRFlightRecorder.Verify();
+		event.begin();
+		long start = System.nanoTime();
+		String outcome = LRInstrumentation.verifyErrors;
+		
+		try
+		{
+			boolean verified = Verify(isSignature, isMessage, isPublicKey);
+			outcome = verified ? LRInstrumentation.verifyVerified : LRInstrumentation.verifyRejected;
+			return verified;
+		}
+		finally
+		{
+			metrics.time(LRInstrumentation.verifyTime, System.nanoTime() - start);
+			metrics.increment(outcome, 1);
+			
+			event.end();
+			if (event.shouldCommit())
+			{
+				event.bytes = message.length();
+				event.verified = (outcome == LRInstrumentation.verifyVerified);
+				event.succeeded = (outcome != LRInstrumentation.verifyErrors);
+				event.commit();
+			}
+		}
 	}
 
 	/**
@@ -167,7 +192,19 @@ public class LRVerify
 					PGPPublicKey publicKey = pgpRings.getPublicKey(sig.getKeyID());
 					sig.init(new JcaPGPContentVerifierBuilderProvider().setProvider("BC"), publicKey);
 					
-					sig.update(bOut.toByteArray());
+					// The line break before the signature armor is not part of the signed text
+					byte[] clearText = bOut.toByteArray();
+					int length = clearText.length;
+					if (length > 0 && clearText[length - 1] == '\n')
+					{
+						length--;
+					}
+					if (length > 0 && clearText[length - 1] == '\r')
+					{
+						length--;
+					}
+					
+					sig.update(clearText, 0, length);
 					verify = sig.verify();
 				}
 			}
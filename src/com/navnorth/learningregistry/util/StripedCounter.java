@@ -0,0 +1,143 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.navnorth.learningregistry.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter spread over several cells to avoid contention between threads
+ * Once sealed, the counter rejects further additions so the caller can move on to a fresh counter
+ *
+ * @version 0.1
+ * @since 2026-10-19
+ * @author Navigation North
+ *      <br>
+ *      Copyright © 2026 Navigation North
+ *      <br>
+ *      Licensed under the Apache License, Version 2.0 (the "License"); See LICENSE
+ *      and README.md files distributed with this work for additional information
+ *      regarding copyright ownership.
+ */
+public class StripedCounter
+{
+    // Marker stored in every cell once the counter has been sealed
+    private static final long SEALED = Long.MIN_VALUE;
+
+    // Cells are spaced apart so that two stripes never share a cache line
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Add to the counter
+     *
+     * @param delta amount to add
+     * @return true if added, false if the counter has been sealed
+     */
+    public boolean add(long delta)
+    {
+        int index = stripe() * PADDING;
+
+        while (true)
+        {
+            long current = cells.get(index);
+
+            if (current == SEALED)
+            {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current + delta))
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the current total of the counter
+     *
+     * @return sum of all cells, or zero if sealed
+     */
+    public long sum()
+    {
+        long total = 0;
+
+        for (int i = 0; i < STRIPES; i++)
+        {
+            long value = cells.get(i * PADDING);
+
+            if (value != SEALED)
+            {
+                total += value;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Seal the counter and return its final total
+     * Every addition is either included in the returned total or rejected by add()
+     *
+     * @return final total of the counter
+     */
+    public long seal()
+    {
+        long total = 0;
+
+        for (int i = 0; i < STRIPES; i++)
+        {
+            long value = cells.getAndSet(i * PADDING, SEALED);
+
+            if (value != SEALED)
+            {
+                total += value;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Check whether the counter has been sealed
+     *
+     * @return true if sealed
+     */
+    public boolean isSealed()
+    {
+        return cells.get(0) == SEALED;
+    }
+
+    private static int stripe()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+
+    private static int stripeCount()
+    {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+
+        while (stripes < cpus * 2 && stripes < 64)
+        {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}